@@ -5,6 +5,7 @@ import android.util.Log;
 import androidx.multidex.MultiDexApplication;
 
 import com.example.tounesna.util.FirebaseManager;
+import com.example.tounesna.util.LocalMirror;
 import com.google.firebase.FirebaseApp;
 
 /**
@@ -23,6 +24,7 @@ public class TounesnaApplication extends MultiDexApplication {
             // Initialize Firebase
             FirebaseApp.initializeApp(this);
             FirebaseManager.init(this);
+            LocalMirror.init(this);
             Log.d(TAG, "✅ Application started - Firebase initialized");
             Log.d(TAG, "🔥 Using Firebase Realtime Database");
             Log.d(TAG, "📍 Database URL: https://tounesna-8021d-default-rtdb.firebaseio.com");
@@ -12,14 +12,19 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.tounesna.R;
 import com.example.tounesna.model.Notification;
+import com.example.tounesna.view.adapter.EntityDiffer;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
 public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapter.NotificationViewHolder> {
     
+    // Change payload: only the read state differs
+    private static final Object PAYLOAD_READ = "read";
+    
     private Context context;
-    private List<Notification> notifications;
+    private final EntityDiffer<Notification> differ;
     private OnNotificationClickListener listener;
     
     public interface OnNotificationClickListener {
@@ -28,7 +33,7 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
     
     public NotificationAdapter(Context context, List<Notification> notifications, OnNotificationClickListener listener) {
         this.context = context;
-        this.notifications = notifications;
+        this.differ = new EntityDiffer<>(this, notifications, new NotificationDiff());
         this.listener = listener;
     }
     
@@ -41,12 +46,34 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
     
     @Override
     public void onBindViewHolder(@NonNull NotificationViewHolder holder, int position) {
-        Notification notification = notifications.get(position);
+        Notification notification = differ.get(position);
         
         holder.tvTitle.setText(notification.getTitle());
         holder.tvMessage.setText(notification.getMessage());
         holder.tvTime.setText(getTimeAgo(notification.getCreatedAt()));
         
+        bindReadState(holder, notification);
+        
+        // Set icon based on notification type
+        int iconRes = getIconForNotificationType(notification.getType());
+        holder.ivIcon.setImageResource(iconRes);
+        
+        bindClick(holder, notification);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull NotificationViewHolder holder, int position, @NonNull List<Object> payloads) {
+        // The read state is the only partial rebind; an empty list means a full one
+        if (payloads.contains(PAYLOAD_READ)) {
+            Notification notification = differ.get(position);
+            bindReadState(holder, notification);
+            bindClick(holder, notification);
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+    
+    private void bindReadState(NotificationViewHolder holder, Notification notification) {
         // Show unread indicator
         if (!notification.isRead()) {
             holder.unreadIndicator.setVisibility(View.VISIBLE);
@@ -55,11 +82,9 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
             holder.unreadIndicator.setVisibility(View.GONE);
             holder.itemView.setBackgroundColor(context.getResources().getColor(android.R.color.transparent));
         }
-        
-        // Set icon based on notification type
-        int iconRes = getIconForNotificationType(notification.getType());
-        holder.ivIcon.setImageResource(iconRes);
-        
+    }
+    
+    private void bindClick(NotificationViewHolder holder, Notification notification) {
         holder.itemView.setOnClickListener(v -> {
             if (listener != null) {
                 listener.onNotificationClick(notification);
@@ -69,7 +94,19 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
     
     @Override
     public int getItemCount() {
-        return notifications.size();
+        return differ.size();
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return differ.getItemId(position);
+    }
+    
+    /**
+     * Show newNotifications, rebinding only the rows that changed
+     */
+    public void updateNotifications(List<Notification> newNotifications) {
+        differ.submit(newNotifications);
     }
     
     private String getTimeAgo(long timestamp) {
@@ -117,6 +154,28 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
         }
     }
     
+    /**
+     * Compares the fields a notification row shows
+     */
+    private static class NotificationDiff extends EntityDiffer.ItemCallback<Notification> {
+        @Override
+        public boolean areContentsTheSame(@NonNull Notification oldItem, @NonNull Notification newItem) {
+            return oldItem.isRead() == newItem.isRead() && sameExceptRead(oldItem, newItem);
+        }
+        
+        @Override
+        public Object getChangePayload(@NonNull Notification oldItem, @NonNull Notification newItem) {
+            return sameExceptRead(oldItem, newItem) ? PAYLOAD_READ : null;
+        }
+        
+        private static boolean sameExceptRead(Notification oldItem, Notification newItem) {
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getMessage(), newItem.getMessage())
+                    && Objects.equals(oldItem.getCreatedAt(), newItem.getCreatedAt())
+                    && Objects.equals(oldItem.getType(), newItem.getType());
+        }
+    }
+    
     static class NotificationViewHolder extends RecyclerView.ViewHolder {
         ImageView ivIcon;
         TextView tvTitle;
@@ -4,6 +4,11 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import com.example.tounesna.model.Organization;
 import com.example.tounesna.model.Volunteer;
+import com.example.tounesna.model.codec.OrganizationCodec;
+import com.example.tounesna.model.codec.VolunteerCodec;
+import com.example.tounesna.util.BatchLoader;
+import com.example.tounesna.util.EntityCache;
+import com.example.tounesna.util.EntityCaches;
 import com.example.tounesna.util.FirebaseManager;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
@@ -13,10 +18,15 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class AuthController {
     private static final String TAG = "AuthController";
     
+    // Coalesces getOrganizationById calls made in the same main-loop pass
+    private static final BatchLoader<Organization> ORGANIZATION_LOADER =
+            new BatchLoader<>(AuthController::loadOrganizations);
+    
     public interface AuthCallback {
         void onSuccess(String userId, String userType);
         void onError(String message);
@@ -51,23 +61,8 @@ public class AuthController {
             volunteer.setCreatedAt(System.currentTimeMillis());
             volunteer.setUpdatedAt(System.currentTimeMillis());
             
-            Map<String, Object> volunteerMap = new HashMap<>();
-            volunteerMap.put("id", volunteerId);
-            volunteerMap.put("name", volunteer.getName());
-            volunteerMap.put("surname", volunteer.getSurname());
-            volunteerMap.put("email", volunteer.getEmail());
-            volunteerMap.put("password", volunteer.getPassword());
-            volunteerMap.put("phone", volunteer.getPhone());
-            volunteerMap.put("location", volunteer.getLocation());
-            volunteerMap.put("profilePictureUrl", volunteer.getProfilePictureUrl());
-            volunteerMap.put("interests", volunteer.getInterests());
-            volunteerMap.put("skills", volunteer.getSkills());
-            volunteerMap.put("availability", volunteer.getAvailability());
+            Map<String, Object> volunteerMap = VolunteerCodec.INSTANCE.encode(volunteer);
             volunteerMap.put("isApproved", true);
-            volunteerMap.put("rating", 0.0);
-            volunteerMap.put("ratingCount", 0);
-            volunteerMap.put("createdAt", volunteer.getCreatedAt());
-            volunteerMap.put("updatedAt", volunteer.getUpdatedAt());
             
             FirebaseManager.getVolunteersRef().child(volunteerId).setValue(volunteerMap)
                 .addOnSuccessListener(aVoid -> callback.onSuccess(volunteerId))
@@ -89,25 +84,8 @@ public class AuthController {
             organization.setCreatedAt(System.currentTimeMillis());
             organization.setUpdatedAt(System.currentTimeMillis());
             
-            Map<String, Object> orgMap = new HashMap<>();
-            orgMap.put("id", orgId);
-            orgMap.put("name", organization.getName());
-            orgMap.put("domain", organization.getDomain());
-            orgMap.put("location", organization.getLocation());
-            orgMap.put("website", organization.getWebsite());
-            orgMap.put("email", organization.getEmail());
-            orgMap.put("phone", organization.getPhone());
-            orgMap.put("password", organization.getPassword());
-            orgMap.put("profilePictureUrl", organization.getProfilePictureUrl());
-            orgMap.put("memberCount", organization.getMemberCount());
-            orgMap.put("foundedYear", organization.getFoundedYear());
-            orgMap.put("isApproved", true);
-            orgMap.put("rating", 0.0);
-            orgMap.put("ratingCount", 0);
-            orgMap.put("followersCount", 0);
-            orgMap.put("tags", organization.getTags());
-            orgMap.put("createdAt", organization.getCreatedAt());
-            orgMap.put("updatedAt", organization.getUpdatedAt());
+            organization.setApproved(true);
+            Map<String, Object> orgMap = OrganizationCodec.INSTANCE.encode(organization);
             
             FirebaseManager.getOrganizationsRef().child(orgId).setValue(orgMap)
                 .addOnSuccessListener(aVoid -> callback.onSuccess(orgId))
@@ -219,102 +197,101 @@ public class AuthController {
     }
     
     public static void getVolunteerById(String volunteerId, UserDataCallback callback) {
+        EntityCache.Lookup<Volunteer> cached = EntityCaches.volunteers().lookup(volunteerId);
+        if (cached != null) {
+            callback.onVolunteerLoaded(cached.getValue());
+            if (!cached.isStale()) {
+                return;
+            }
+            // Served the stale copy, refresh it for the next caller
+            readVolunteer(volunteerId, null);
+            return;
+        }
+        readVolunteer(volunteerId, callback);
+    }
+    
+    private static void readVolunteer(String volunteerId, UserDataCallback callback) {
         FirebaseManager.getVolunteersRef().child(volunteerId)
             .addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
                     if (snapshot.exists()) {
-                        Volunteer volunteer = new Volunteer();
-                        // Handle both String and Long IDs from Firebase
-                        Object idObj = snapshot.child("id").getValue();
-                        String id = (idObj instanceof String) ? (String) idObj : String.valueOf(idObj);
-                        volunteer.setId(id);
-                        volunteer.setName(snapshot.child("name").getValue(String.class));
-                        volunteer.setSurname(snapshot.child("surname").getValue(String.class));
-                        volunteer.setEmail(snapshot.child("email").getValue(String.class));
-                        volunteer.setPhone(snapshot.child("phone").getValue(String.class));
-                        volunteer.setLocation(snapshot.child("location").getValue(String.class));
-                        volunteer.setProfilePictureUrl(snapshot.child("profilePictureUrl").getValue(String.class));
-                        
-                        // Load interests
-                        DataSnapshot interestsSnapshot = snapshot.child("interests");
-                        List<String> interests = new ArrayList<>();
-                        if (interestsSnapshot.exists()) {
-                            for (DataSnapshot interestSnapshot : interestsSnapshot.getChildren()) {
-                                String interest = interestSnapshot.getValue(String.class);
-                                if (interest != null) interests.add(interest);
-                            }
-                        }
-                        volunteer.setInterests(interests);
-                        
-                        Long createdAt = snapshot.child("createdAt").getValue(Long.class);
-                        if (createdAt != null) volunteer.setCreatedAt(createdAt);
-                        callback.onVolunteerLoaded(volunteer);
+                        Volunteer volunteer = VolunteerCodec.INSTANCE.decode(snapshot);
+                        EntityCaches.volunteers().put(volunteerId, volunteer);
+                        if (callback != null) callback.onVolunteerLoaded(volunteer);
                     } else {
-                        callback.onError("Volunteer not found");
+                        EntityCaches.volunteers().invalidate(volunteerId);
+                        if (callback != null) callback.onError("Volunteer not found");
                     }
                 }
                 
                 @Override
                 public void onCancelled(@NonNull DatabaseError error) {
-                    callback.onError(error.getMessage());
+                    if (callback != null) callback.onError(error.getMessage());
                 }
             });
     }
     
     public static void getOrganizationById(String orgId, UserDataCallback callback) {
+        EntityCache.Lookup<Organization> cached = EntityCaches.organizations().lookup(orgId);
+        if (cached != null) {
+            callback.onOrganizationLoaded(cached.getValue());
+            if (!cached.isStale()) {
+                return;
+            }
+            // Served the stale copy, refresh it for the next caller
+            ORGANIZATION_LOADER.load(orgId, new BatchLoader.Callback<Organization>() {
+                @Override
+                public void onLoaded(Organization organization) {
+                    // Cached by readOrganization
+                }
+                
+                @Override
+                public void onError(String message) {
+                    Log.w(TAG, "⚠️ Failed to revalidate organization " + orgId + ": " + message);
+                }
+            });
+            return;
+        }
+        
+        ORGANIZATION_LOADER.load(orgId, new BatchLoader.Callback<Organization>() {
+            @Override
+            public void onLoaded(Organization organization) {
+                callback.onOrganizationLoaded(organization);
+            }
+            
+            @Override
+            public void onError(String message) {
+                callback.onError(message);
+            }
+        });
+    }
+    
+    private static void loadOrganizations(Set<String> orgIds, BatchLoader.BatchResult<Organization> result) {
+        // One read per distinct ID, all issued at once so they run in parallel
+        for (String orgId : orgIds) {
+            readOrganization(orgId, result);
+        }
+    }
+    
+    private static void readOrganization(String orgId, BatchLoader.BatchResult<Organization> result) {
         FirebaseManager.getOrganizationsRef().child(orgId)
             .addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
                     if (snapshot.exists()) {
-                        Organization org = new Organization();
-                        // Handle both String and Long IDs from Firebase
-                        Object idObj = snapshot.child("id").getValue();
-                        String id = (idObj instanceof String) ? (String) idObj : String.valueOf(idObj);
-                        org.setId(id);
-                        org.setName(snapshot.child("name").getValue(String.class));
-                        org.setDomain(snapshot.child("domain").getValue(String.class));
-                        org.setLocation(snapshot.child("location").getValue(String.class));
-                        org.setEmail(snapshot.child("email").getValue(String.class));
-                        org.setPhone(snapshot.child("phone").getValue(String.class));
-                        org.setProfilePictureUrl(snapshot.child("profilePictureUrl").getValue(String.class));
-                        org.setWebsite(snapshot.child("website").getValue(String.class));
-                        org.setDescription(snapshot.child("description").getValue(String.class));
-                        
-                        // Load tags
-                        DataSnapshot tagsSnapshot = snapshot.child("tags");
-                        List<String> tags = new ArrayList<>();
-                        if (tagsSnapshot.exists()) {
-                            for (DataSnapshot tagSnapshot : tagsSnapshot.getChildren()) {
-                                String tag = tagSnapshot.getValue(String.class);
-                                if (tag != null) tags.add(tag);
-                            }
-                        }
-                        org.setTags(tags);
-                        
-                        Integer memberCount = snapshot.child("memberCount").getValue(Integer.class);
-                        if (memberCount != null) org.setMemberCount(memberCount);
-                        Integer foundedYear = snapshot.child("foundedYear").getValue(Integer.class);
-                        if (foundedYear != null) org.setFoundedYear(foundedYear);
-                        Integer followersCount = snapshot.child("followersCount").getValue(Integer.class);
-                        if (followersCount != null) org.setFollowersCount(followersCount);
-                        Integer ratingCount = snapshot.child("ratingCount").getValue(Integer.class);
-                        if (ratingCount != null) org.setRatingCount(ratingCount);
-                        
-                        Boolean isApproved = snapshot.child("isApproved").getValue(Boolean.class);
-                        if (isApproved != null) org.setApproved(isApproved);
-                        Double rating = snapshot.child("rating").getValue(Double.class);
-                        if (rating != null) org.setRating(rating);
-                        callback.onOrganizationLoaded(org);
+                        Organization org = OrganizationCodec.INSTANCE.decode(snapshot);
+                        EntityCaches.organizations().put(orgId, org);
+                        result.resolve(orgId, org);
                     } else {
-                        callback.onError("Organization not found");
+                        EntityCaches.organizations().invalidate(orgId);
+                        result.reject(orgId, "Organization not found");
                     }
                 }
                 
                 @Override
                 public void onCancelled(@NonNull DatabaseError error) {
-                    callback.onError(error.getMessage());
+                    result.reject(orgId, error.getMessage());
                 }
             });
     }
@@ -349,52 +326,10 @@ public class AuthController {
     
     // Public helper methods for other controllers
     public static Volunteer snapshotToVolunteer(DataSnapshot snapshot) {
-        Volunteer volunteer = new Volunteer();
-        // Handle both String and Long IDs
-        Object idObj = snapshot.child("id").getValue();
-        volunteer.setId((idObj instanceof String) ? (String) idObj : String.valueOf(idObj));
-        volunteer.setName(snapshot.child("name").getValue(String.class));
-        volunteer.setEmail(snapshot.child("email").getValue(String.class));
-        volunteer.setPhone(snapshot.child("phone").getValue(String.class));
-        volunteer.setPassword(snapshot.child("password").getValue(String.class));
-        volunteer.setDateOfBirth(snapshot.child("dateOfBirth").getValue(String.class));
-        volunteer.setLocation(snapshot.child("location").getValue(String.class));
-        
-        Long createdAt = snapshot.child("createdAt").getValue(Long.class);
-        if (createdAt != null) volunteer.setCreatedAt(createdAt);
-        
-        Long updatedAt = snapshot.child("updatedAt").getValue(Long.class);
-        if (updatedAt != null) volunteer.setUpdatedAt(updatedAt);
-        
-        return volunteer;
+        return VolunteerCodec.INSTANCE.decode(snapshot);
     }
     
     public static Organization snapshotToOrganization(DataSnapshot snapshot) {
-        Organization org = new Organization();
-        // Handle both String and Long IDs
-        Object idObj = snapshot.child("id").getValue();
-        org.setId((idObj instanceof String) ? (String) idObj : String.valueOf(idObj));
-        org.setName(snapshot.child("name").getValue(String.class));
-        org.setDomain(snapshot.child("domain").getValue(String.class));
-        org.setDescription(snapshot.child("description").getValue(String.class));
-        org.setLocation(snapshot.child("location").getValue(String.class));
-        org.setEmail(snapshot.child("email").getValue(String.class));
-        org.setPhone(snapshot.child("phone").getValue(String.class));
-        org.setPassword(snapshot.child("password").getValue(String.class));
-        org.setRegistrationNumber(snapshot.child("registrationNumber").getValue(String.class));
-        
-        Boolean isApproved = snapshot.child("isApproved").getValue(Boolean.class);
-        if (isApproved != null) org.setApproved(isApproved);
-        
-        Double rating = snapshot.child("rating").getValue(Double.class);
-        if (rating != null) org.setRating(rating);
-        
-        Long createdAt = snapshot.child("createdAt").getValue(Long.class);
-        if (createdAt != null) org.setCreatedAt(createdAt);
-        
-        Long updatedAt = snapshot.child("updatedAt").getValue(Long.class);
-        if (updatedAt != null) org.setUpdatedAt(updatedAt);
-        
-        return org;
+        return OrganizationCodec.INSTANCE.decode(snapshot);
     }
 }
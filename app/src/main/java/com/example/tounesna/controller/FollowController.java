@@ -4,19 +4,36 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import com.example.tounesna.model.Follow;
 import com.example.tounesna.model.Notification;
+import com.example.tounesna.model.codec.FollowCodec;
+import com.example.tounesna.util.EntityCaches;
 import com.example.tounesna.util.FirebaseManager;
+import com.example.tounesna.util.SingleFlight;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.MutableData;
 import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
 import com.google.firebase.database.ValueEventListener;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class FollowController {
     private static final String TAG = "FollowController";
     
+    // Identical follow-list queries issued while one is in flight share its answer
+    private static final SingleFlight<List<Follow>> FOLLOWED_FLIGHTS = new SingleFlight<>();
+    
+    // Set under migrations/ once every follow has its deterministic ID
+    private static final String FOLLOWS_MIGRATION = "follows";
+    // Once seen, legacy push-ID lookups are skipped for the rest of the process
+    private static volatile boolean followsMigrated = false;
+    
     public interface FollowCallback {
         void onSuccess(String followId);
         void onError(String message);
@@ -32,8 +49,40 @@ public class FollowController {
         void onError(String message);
     }
     
+    public interface MigrationCallback {
+        void onSuccess(int migratedCount);
+        void onError(String message);
+    }
+    
+    public interface ReconcileCallback {
+        void onSuccess(int correctedCount);
+        void onError(String message);
+    }
+    
+    private interface LegacyFollowCallback {
+        void onResult(String legacyFollowId);
+        void onError(String message);
+    }
+    
+    private interface EdgeCallback {
+        void onComplete(boolean flipped, Object previous);
+        void onError(String message);
+    }
+    
+    private interface CounterCallback {
+        void onSuccess();
+        void onError(String message);
+    }
+    
+    /**
+     * Deterministic follow ID, so membership checks and unfollows are single-key operations
+     */
+    public static String getFollowId(String volunteerId, String organizationId) {
+        return volunteerId + "_" + organizationId;
+    }
+    
     public static void followOrganization(String volunteerId, String organizationId, FollowCallback callback) {
-        String followId = FirebaseManager.generateId(FirebaseManager.PATH_FOLLOWS);
+        String followId = getFollowId(volunteerId, organizationId);
         
         Map<String, Object> followMap = new HashMap<>();
         followMap.put("id", followId);
@@ -41,74 +90,118 @@ public class FollowController {
         followMap.put("organizationId", organizationId);
         followMap.put("createdAt", System.currentTimeMillis());
         
-        FirebaseManager.getFollowsRef().child(followId).setValue(followMap)
-            .addOnSuccessListener(aVoid -> {
-                Log.d(TAG, "✅ Follow created: " + followId);
-                
-                // Increment organization's follower count
-                incrementFollowerCount(organizationId);
-                
-                // Send notification to organization
-                sendFollowNotification(volunteerId, organizationId);
-                
-                callback.onSuccess(followId);
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "❌ Follow failed", e);
-                callback.onError("Failed to follow: " + e.getMessage());
-            });
-    }
-    
-    private static void incrementFollowerCount(String organizationId) {
-        FirebaseManager.getOrganizationsRef().child(organizationId)
-            .addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    if (snapshot.exists()) {
-                        Integer currentCount = snapshot.child("followersCount").getValue(Integer.class);
-                        int newCount = (currentCount != null ? currentCount : 0) + 1;
+        setFollowEdge(followId, followMap, new EdgeCallback() {
+            @Override
+            public void onComplete(boolean flipped, Object previous) {
+                if (!flipped) {
+                    // Already following (double tap or another device): nothing to count
+                    Log.d(TAG, "Follow already exists: " + followId);
+                    callback.onSuccess(followId);
+                    return;
+                }
+                adjustFollowersCount(organizationId, 1, new CounterCallback() {
+                    @Override
+                    public void onSuccess() {
+                        Log.d(TAG, "✅ Follow created: " + followId);
                         
-                        Map<String, Object> updates = new HashMap<>();
-                        updates.put("followersCount", newCount);
+                        // Send notification to organization
+                        sendFollowNotification(volunteerId, organizationId);
                         
-                        FirebaseManager.getOrganizationsRef().child(organizationId).updateChildren(updates)
-                            .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Follower count updated to " + newCount))
-                            .addOnFailureListener(e -> Log.e(TAG, "❌ Failed to update follower count", e));
+                        callback.onSuccess(followId);
                     }
-                }
-                
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    Log.e(TAG, "❌ Failed to read organization for follower count", error.toException());
-                }
-            });
+                    
+                    @Override
+                    public void onError(String message) {
+                        // Undo the follow so the edge and the counter stay in step
+                        rollBackEdge(followId, null);
+                        callback.onError("Failed to follow: " + message);
+                    }
+                });
+            }
+            
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "❌ Follow failed: " + message);
+                callback.onError("Failed to follow: " + message);
+            }
+        });
     }
     
-    private static void decrementFollowerCount(String organizationId) {
-        FirebaseManager.getOrganizationsRef().child(organizationId)
-            .addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    if (snapshot.exists()) {
-                        Integer currentCount = snapshot.child("followersCount").getValue(Integer.class);
-                        int newCount = Math.max((currentCount != null ? currentCount : 0) - 1, 0);
-                        
-                        Map<String, Object> updates = new HashMap<>();
-                        updates.put("followersCount", newCount);
-                        
-                        FirebaseManager.getOrganizationsRef().child(organizationId).updateChildren(updates)
-                            .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Follower count updated to " + newCount))
-                            .addOnFailureListener(e -> Log.e(TAG, "❌ Failed to update follower count", e));
-                    }
+    /**
+     * Create (value set) or delete (value null) one follow node in a transaction.
+     * flipped is true only when this call changed it, so concurrent or repeated calls
+     * move the follower count at most once; previous is the node's value before.
+     */
+    private static void setFollowEdge(String followId, Object value, EdgeCallback callback) {
+        // doTransaction may rerun against fresher data; the last run is the one committed
+        AtomicBoolean flipped = new AtomicBoolean(false);
+        AtomicReference<Object> previous = new AtomicReference<>();
+        FirebaseManager.getFollowsRef().child(followId).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                previous.set(currentData.getValue());
+                boolean present = previous.get() != null;
+                boolean wanted = value != null;
+                flipped.set(present != wanted);
+                if (present != wanted) {
+                    currentData.setValue(value);
                 }
-                
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    Log.e(TAG, "❌ Failed to read organization for follower count", error.toException());
+                return Transaction.success(currentData);
+            }
+            
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
+                if (error != null) {
+                    callback.onError(error.getMessage());
+                } else {
+                    callback.onComplete(committed && flipped.get(), previous.get());
                 }
+            }
+        });
+    }
+    
+    /**
+     * Put a follow node back to its value before a flip whose counter update failed
+     */
+    private static void rollBackEdge(String followId, Object previous) {
+        setFollowEdge(followId, previous, new EdgeCallback() {
+            @Override
+            public void onComplete(boolean flipped, Object ignored) {
+                Log.w(TAG, "⚠️ Rolled back follow " + followId + " after a failed count update");
+            }
+            
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "❌ Failed to roll back follow " + followId + ": " + message);
+            }
+        });
+    }
+    
+    private static void adjustFollowersCount(String organizationId, int delta, CounterCallback callback) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(followersCountPath(organizationId), ServerValue.increment(delta));
+        updates.put(organizationUpdatedAtPath(organizationId), ServerValue.TIMESTAMP);
+        
+        FirebaseManager.getRootRef().updateChildren(updates)
+            .addOnSuccessListener(aVoid -> {
+                EntityCaches.organizations().invalidate(organizationId);
+                callback.onSuccess();
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "❌ Follower count update failed for " + organizationId, e);
+                callback.onError(e.getMessage());
             });
     }
     
+    private static String followersCountPath(String organizationId) {
+        return FirebaseManager.PATH_ORGANIZATIONS + "/" + organizationId + "/followersCount";
+    }
+    
+    private static String organizationUpdatedAtPath(String organizationId) {
+        return FirebaseManager.PATH_ORGANIZATIONS + "/" + organizationId + "/updatedAt";
+    }
+    
     private static void sendFollowNotification(String volunteerId, String organizationId) {
         Notification notification = new Notification();
         notification.setUserId(organizationId);
@@ -132,38 +225,162 @@ public class FollowController {
     }
     
     public static void unfollowOrganization(String volunteerId, String organizationId, FollowCallback callback) {
+        String followId = getFollowId(volunteerId, organizationId);
+        removeFollow(followId, organizationId, new EdgeCallback() {
+            @Override
+            public void onComplete(boolean flipped, Object previous) {
+                if (flipped) {
+                    callback.onSuccess(followId);
+                    return;
+                }
+                // Follow may still be stored under a legacy push ID
+                findLegacyFollow(volunteerId, organizationId, new LegacyFollowCallback() {
+                    @Override
+                    public void onResult(String legacyFollowId) {
+                        if (legacyFollowId == null) {
+                            callback.onError("Follow relationship not found");
+                            return;
+                        }
+                        removeFollow(legacyFollowId, organizationId, new EdgeCallback() {
+                            @Override
+                            public void onComplete(boolean flipped, Object previous) {
+                                if (flipped) {
+                                    callback.onSuccess(legacyFollowId);
+                                } else {
+                                    callback.onError("Follow relationship not found");
+                                }
+                            }
+                            
+                            @Override
+                            public void onError(String message) {
+                                callback.onError(message);
+                            }
+                        });
+                    }
+                    
+                    @Override
+                    public void onError(String message) {
+                        callback.onError(message);
+                    }
+                });
+            }
+            
+            @Override
+            public void onError(String message) {
+                callback.onError(message);
+            }
+        });
+    }
+    
+    /**
+     * Delete one follow node; the counter is decremented only by the call that removed it,
+     * and the callback fires once that decrement is committed
+     */
+    private static void removeFollow(String followId, String organizationId, EdgeCallback callback) {
+        setFollowEdge(followId, null, new EdgeCallback() {
+            @Override
+            public void onComplete(boolean flipped, Object previous) {
+                if (!flipped) {
+                    callback.onComplete(false, previous);
+                    return;
+                }
+                adjustFollowersCount(organizationId, -1, new CounterCallback() {
+                    @Override
+                    public void onSuccess() {
+                        Log.d(TAG, "✅ Unfollowed: " + followId);
+                        callback.onComplete(true, previous);
+                    }
+                    
+                    @Override
+                    public void onError(String message) {
+                        // Restore the follow so the edge and the counter stay in step
+                        rollBackEdge(followId, previous);
+                        callback.onError("Failed to unfollow: " + message);
+                    }
+                });
+            }
+            
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "❌ Unfollow failed: " + message);
+                callback.onError("Failed to unfollow: " + message);
+            }
+        });
+    }
+    
+    public static void isFollowing(String volunteerId, String organizationId, FollowCheckCallback callback) {
+        String followId = getFollowId(volunteerId, organizationId);
+        FirebaseManager.getFollowsRef().child(followId)
+            .addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    if (snapshot.exists()) {
+                        callback.onSuccess(true);
+                        return;
+                    }
+                    findLegacyFollow(volunteerId, organizationId, new LegacyFollowCallback() {
+                        @Override
+                        public void onResult(String legacyFollowId) {
+                            callback.onSuccess(legacyFollowId != null);
+                        }
+                        
+                        @Override
+                        public void onError(String message) {
+                            callback.onError(message);
+                        }
+                    });
+                }
+                
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    callback.onError(error.getMessage());
+                }
+            });
+    }
+    
+    /**
+     * Look for a follow written before deterministic IDs, scanning only this volunteer's follows.
+     * Skipped once migrateFollows has run, so "not following" stays a single-key read.
+     */
+    private static void findLegacyFollow(String volunteerId, String organizationId, LegacyFollowCallback callback) {
+        if (followsMigrated) {
+            callback.onResult(null);
+            return;
+        }
+        FirebaseManager.getMigrationsRef().child(FOLLOWS_MIGRATION)
+            .addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    if (Boolean.TRUE.equals(snapshot.getValue(Boolean.class))) {
+                        followsMigrated = true;
+                        callback.onResult(null);
+                    } else {
+                        scanLegacyFollows(volunteerId, organizationId, callback);
+                    }
+                }
+                
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    scanLegacyFollows(volunteerId, organizationId, callback);
+                }
+            });
+    }
+    
+    private static void scanLegacyFollows(String volunteerId, String organizationId, LegacyFollowCallback callback) {
         FirebaseManager.getFollowsRef()
+            .orderByChild("volunteerId")
+            .equalTo(volunteerId)
             .addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
                     for (DataSnapshot followSnapshot : snapshot.getChildren()) {
-                        // Handle both String and Long IDs
-                        Object vidObj = followSnapshot.child("volunteerId").getValue();
-                        String vid = (vidObj instanceof String) ? (String) vidObj : String.valueOf(vidObj);
-                        
-                        Object oidObj = followSnapshot.child("organizationId").getValue();
-                        String oid = (oidObj instanceof String) ? (String) oidObj : String.valueOf(oidObj);
-                        
-                        if (volunteerId.equals(vid) && organizationId.equals(oid)) {
-                            Object fidObj = followSnapshot.child("id").getValue();
-                            String followId = (fidObj instanceof String) ? (String) fidObj : String.valueOf(fidObj);
-                            FirebaseManager.getFollowsRef().child(followId).removeValue()
-                                .addOnSuccessListener(aVoid -> {
-                                    Log.d(TAG, "✅ Unfollowed: " + followId);
-                                    
-                                    // Decrement organization's follower count
-                                    decrementFollowerCount(organizationId);
-                                    
-                                    callback.onSuccess(followId);
-                                })
-                                .addOnFailureListener(e -> {
-                                    Log.e(TAG, "❌ Unfollow failed", e);
-                                    callback.onError("Failed to unfollow: " + e.getMessage());
-                                });
+                        Follow follow = snapshotToFollow(followSnapshot);
+                        if (organizationId.equals(follow.getOrganizationId())) {
+                            callback.onResult(followSnapshot.getKey());
                             return;
                         }
                     }
-                    callback.onError("Follow relationship not found");
+                    callback.onResult(null);
                 }
                 
                 @Override
@@ -173,25 +390,107 @@ public class FollowController {
             });
     }
     
-    public static void isFollowing(String volunteerId, String organizationId, FollowCheckCallback callback) {
+    /**
+     * Move every follow stored under a push ID to its deterministic ID in one multi-path update.
+     * Duplicate follows of the same pair collapse into a single entry. The same write sets
+     * the migration flag that turns off legacy lookups.
+     */
+    public static void migrateFollows(MigrationCallback callback) {
         FirebaseManager.getFollowsRef()
             .addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    Map<String, Object> updates = new HashMap<>();
+                    int count = 0;
                     for (DataSnapshot followSnapshot : snapshot.getChildren()) {
-                        // Handle both String and Long IDs
-                        Object vidObj = followSnapshot.child("volunteerId").getValue();
-                        String vid = (vidObj instanceof String) ? (String) vidObj : String.valueOf(vidObj);
-                        
-                        Object oidObj = followSnapshot.child("organizationId").getValue();
-                        String oid = (oidObj instanceof String) ? (String) oidObj : String.valueOf(oidObj);
-                        
-                        if (volunteerId.equals(vid) && organizationId.equals(oid)) {
-                            callback.onSuccess(true);
-                            return;
+                        Follow follow = snapshotToFollow(followSnapshot);
+                        String key = followSnapshot.getKey();
+                        if (key == null || key.equals(getFollowId(follow.getVolunteerId(), follow.getOrganizationId()))) {
+                            continue;
                         }
+                        addMigrationUpdates(updates, key, follow);
+                        count++;
+                    }
+                    
+                    updates.put(FirebaseManager.PATH_MIGRATIONS + "/" + FOLLOWS_MIGRATION, true);
+                    
+                    int migratedCount = count;
+                    FirebaseManager.getRootRef().updateChildren(updates)
+                        .addOnSuccessListener(aVoid -> {
+                            followsMigrated = true;
+                            Log.d(TAG, "✅ Migrated " + migratedCount + " follows to deterministic IDs");
+                            callback.onSuccess(migratedCount);
+                        })
+                        .addOnFailureListener(e -> {
+                            Log.e(TAG, "❌ Follow migration failed", e);
+                            callback.onError("Failed to migrate follows: " + e.getMessage());
+                        });
+                }
+                
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    callback.onError(error.getMessage());
+                }
+            });
+    }
+    
+    /**
+     * Recompute every organization's followersCount from the follows node and
+     * write back only the counts that drifted, in one multi-path update
+     */
+    public static void reconcileFollowerCounts(ReconcileCallback callback) {
+        FirebaseManager.getFollowsRef()
+            .addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot followsSnapshot) {
+                    Map<String, Integer> counts = new HashMap<>();
+                    for (DataSnapshot followSnapshot : followsSnapshot.getChildren()) {
+                        Follow follow = snapshotToFollow(followSnapshot);
+                        Integer count = counts.get(follow.getOrganizationId());
+                        counts.put(follow.getOrganizationId(), count != null ? count + 1 : 1);
                     }
-                    callback.onSuccess(false);
+                    
+                    FirebaseManager.getOrganizationsRef()
+                        .addListenerForSingleValueEvent(new ValueEventListener() {
+                            @Override
+                            public void onDataChange(@NonNull DataSnapshot orgsSnapshot) {
+                                Map<String, Object> updates = new HashMap<>();
+                                int mismatched = 0;
+                                for (DataSnapshot orgSnapshot : orgsSnapshot.getChildren()) {
+                                    String orgId = orgSnapshot.getKey();
+                                    Integer stored = orgSnapshot.child("followersCount").getValue(Integer.class);
+                                    Integer actual = counts.get(orgId);
+                                    int expected = actual != null ? actual : 0;
+                                    if (stored == null || stored != expected) {
+                                        updates.put(orgId + "/followersCount", expected);
+                                        updates.put(orgId + "/updatedAt", ServerValue.TIMESTAMP);
+                                        mismatched++;
+                                    }
+                                }
+                                
+                                if (updates.isEmpty()) {
+                                    callback.onSuccess(0);
+                                    return;
+                                }
+                                
+                                int corrected = mismatched;
+                                FirebaseManager.getOrganizationsRef().updateChildren(updates)
+                                    .addOnSuccessListener(aVoid -> {
+                                        Log.d(TAG, "✅ Corrected follower count of " + corrected + " organizations");
+                                        EntityCaches.organizations().invalidateAll();
+                                        callback.onSuccess(corrected);
+                                    })
+                                    .addOnFailureListener(e -> {
+                                        Log.e(TAG, "❌ Follower count reconciliation failed", e);
+                                        callback.onError("Failed to reconcile follower counts: " + e.getMessage());
+                                    });
+                            }
+                            
+                            @Override
+                            public void onCancelled(@NonNull DatabaseError error) {
+                                callback.onError(error.getMessage());
+                            }
+                        });
                 }
                 
                 @Override
@@ -201,7 +500,38 @@ public class FollowController {
             });
     }
     
+    private static void addMigrationUpdates(Map<String, Object> updates, String legacyFollowId, Follow follow) {
+        String followId = getFollowId(follow.getVolunteerId(), follow.getOrganizationId());
+        
+        Map<String, Object> followMap = new HashMap<>();
+        followMap.put("id", followId);
+        followMap.put("volunteerId", follow.getVolunteerId());
+        followMap.put("organizationId", follow.getOrganizationId());
+        followMap.put("createdAt", follow.getCreatedAt());
+        
+        updates.put(FirebaseManager.PATH_FOLLOWS + "/" + followId, followMap);
+        updates.put(FirebaseManager.PATH_FOLLOWS + "/" + legacyFollowId, null);
+    }
+    
+    /**
+     * The volunteer's follows; the list is shared with concurrent callers and read-only
+     */
     public static void getFollowedOrganizations(String volunteerId, FollowsCallback callback) {
+        FOLLOWED_FLIGHTS.run(volunteerId, done -> fetchFollowedOrganizations(volunteerId, done),
+            new SingleFlight.Callback<List<Follow>>() {
+                @Override
+                public void onSuccess(List<Follow> follows) {
+                    callback.onSuccess(follows);
+                }
+                
+                @Override
+                public void onError(String message) {
+                    callback.onError(message);
+                }
+            });
+    }
+    
+    private static void fetchFollowedOrganizations(String volunteerId, SingleFlight.Callback<List<Follow>> callback) {
         Query query = FirebaseManager.getFollowsRef()
             .orderByChild("volunteerId")
             .equalTo(volunteerId);
@@ -214,7 +544,7 @@ public class FollowController {
                     Follow follow = snapshotToFollow(followSnapshot);
                     follows.add(follow);
                 }
-                callback.onSuccess(follows);
+                callback.onSuccess(Collections.unmodifiableList(follows));
             }
             
             @Override
@@ -248,20 +578,6 @@ public class FollowController {
     }
     
     private static Follow snapshotToFollow(DataSnapshot snapshot) {
-        Follow follow = new Follow();
-        // Handle both String and Long IDs
-        Object idObj = snapshot.child("id").getValue();
-        follow.setId((idObj instanceof String) ? (String) idObj : String.valueOf(idObj));
-        
-        Object vidObj = snapshot.child("volunteerId").getValue();
-        follow.setVolunteerId((vidObj instanceof String) ? (String) vidObj : String.valueOf(vidObj));
-        
-        Object oidObj = snapshot.child("organizationId").getValue();
-        follow.setOrganizationId((oidObj instanceof String) ? (String) oidObj : String.valueOf(oidObj));
-        
-        Long createdAt = snapshot.child("createdAt").getValue(Long.class);
-        if (createdAt != null) follow.setCreatedAt(createdAt);
-        
-        return follow;
+        return FollowCodec.INSTANCE.decode(snapshot);
     }
 }
@@ -3,19 +3,36 @@ package com.example.tounesna.controller;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import com.example.tounesna.model.Notification;
+import com.example.tounesna.model.codec.NotificationCodec;
 import com.example.tounesna.util.FirebaseManager;
+import com.example.tounesna.util.LocalMirror;
+import com.example.tounesna.util.SingleFlight;
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.MutableData;
 import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
 import com.google.firebase.database.ValueEventListener;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class NotificationController {
     private static final String TAG = "NotificationController";
     
+    // Inboxes up to this many unread flags are marked read in one multi-path update, larger ones in chunks of it
+    public static final int DEFAULT_MARK_READ_BATCH_SIZE = 500;
+    private static final String CURSOR_SEPARATOR = ":";
+    
+    // Identical inbox and counter queries issued while one is in flight share its answer
+    private static final SingleFlight<List<Notification>> INBOX_FLIGHTS = new SingleFlight<>();
+    private static final SingleFlight<Integer> UNREAD_COUNT_FLIGHTS = new SingleFlight<>();
+    
     public interface NotificationCallback {
         void onSuccess(String notificationId);
         void onError(String message);
@@ -26,8 +43,48 @@ public class NotificationController {
         void onError(String message);
     }
     
+    public interface NotificationsPageCallback {
+        void onSuccess(NotificationPage page);
+        void onError(String message);
+    }
+    
+    public interface MigrationCallback {
+        void onSuccess(int migratedCount);
+        void onError(String message);
+    }
+    
+    private interface ReadFlipCallback {
+        void onComplete(boolean flipped);
+        void onError(String message);
+    }
+    
+    /**
+     * One page of an inbox, newest first, plus the cursor of the next (older) page
+     */
+    public static class NotificationPage {
+        private final List<Notification> notifications;
+        private final String nextCursor;
+        
+        public NotificationPage(List<Notification> notifications, String nextCursor) {
+            this.notifications = notifications;
+            this.nextCursor = nextCursor;
+        }
+        
+        public List<Notification> getNotifications() {
+            return notifications;
+        }
+        
+        public String getNextCursor() {
+            return nextCursor;
+        }
+        
+        public boolean hasMore() {
+            return nextCursor != null;
+        }
+    }
+    
     public static void createNotification(Notification notification, NotificationCallback callback) {
-        String notificationId = FirebaseManager.generateId(FirebaseManager.PATH_NOTIFICATIONS);
+        String notificationId = FirebaseManager.generateId(FirebaseManager.PATH_USER_NOTIFICATIONS);
         notification.setId(notificationId);
         notification.setCreatedAt(System.currentTimeMillis());
         notification.setRead(false);
@@ -40,8 +97,14 @@ public class NotificationController {
         notificationMap.put("type", notification.getType());
         notificationMap.put("isRead", notification.isRead());
         notificationMap.put("createdAt", notification.getCreatedAt());
+        notificationMap.put("updatedAt", ServerValue.TIMESTAMP);
         
-        FirebaseManager.getNotificationsRef().child(notificationId).setValue(notificationMap)
+        // The notification and the recipient's unread counter change together
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(getInboxPath(notification.getUserId()) + "/" + notificationId, notificationMap);
+        updates.put(getUnreadCountPath(notification.getUserId()), ServerValue.increment(1));
+        
+        FirebaseManager.getRootRef().updateChildren(updates)
             .addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "✅ Notification created: " + notificationId);
                 callback.onSuccess(notificationId);
@@ -52,11 +115,27 @@ public class NotificationController {
             });
     }
     
+    /**
+     * The user's whole inbox; the list is shared with concurrent callers and read-only
+     */
     public static void getNotificationsForUser(String userId, NotificationsCallback callback) {
-        Query query = FirebaseManager.getNotificationsRef()
-            .orderByChild("userId")
-            .equalTo(userId);
-            
+        INBOX_FLIGHTS.run(userId, done -> fetchNotificationsForUser(userId, done),
+            new SingleFlight.Callback<List<Notification>>() {
+                @Override
+                public void onSuccess(List<Notification> notifications) {
+                    callback.onSuccess(notifications);
+                }
+                
+                @Override
+                public void onError(String message) {
+                    callback.onError(message);
+                }
+            });
+    }
+    
+    private static void fetchNotificationsForUser(String userId, SingleFlight.Callback<List<Notification>> callback) {
+        Query query = FirebaseManager.getUserNotificationsRef(userId).orderByChild("createdAt");
+        
         query.addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
@@ -65,7 +144,7 @@ public class NotificationController {
                     Notification notification = snapshotToNotification(notificationSnapshot);
                     notifications.add(notification);
                 }
-                callback.onSuccess(notifications);
+                callback.onSuccess(Collections.unmodifiableList(notifications));
             }
             
             @Override
@@ -75,22 +154,72 @@ public class NotificationController {
         });
     }
     
+    /**
+     * Load one page of the user's inbox, newest first.
+     * Pass null as cursor for the first page, then the page's nextCursor.
+     */
+    public static void getNotificationsPage(String userId, int pageSize, String cursor, NotificationsPageCallback callback) {
+        Query query = FirebaseManager.getUserNotificationsRef(userId).orderByChild("createdAt");
+        if (cursor != null) {
+            int separator = cursor.indexOf(CURSOR_SEPARATOR);
+            if (separator <= 0) {
+                callback.onError("Invalid page cursor");
+                return;
+            }
+            try {
+                long cursorCreatedAt = Long.parseLong(cursor.substring(0, separator));
+                String cursorKey = cursor.substring(separator + 1);
+                query = query.endBefore(cursorCreatedAt, cursorKey);
+            } catch (NumberFormatException e) {
+                callback.onError("Invalid page cursor");
+                return;
+            }
+        }
+        
+        // Fetch one extra notification to know whether another page exists
+        query.limitToLast(pageSize + 1)
+            .addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    List<Notification> notifications = new ArrayList<>();
+                    for (DataSnapshot notificationSnapshot : snapshot.getChildren()) {
+                        notifications.add(snapshotToNotification(notificationSnapshot));
+                    }
+                    
+                    boolean hasMore = notifications.size() > pageSize;
+                    if (hasMore) {
+                        notifications.remove(0);
+                    }
+                    Collections.reverse(notifications);
+                    
+                    String nextCursor = null;
+                    if (hasMore) {
+                        Notification oldest = notifications.get(notifications.size() - 1);
+                        nextCursor = oldest.getCreatedAt() != null
+                                ? oldest.getCreatedAt() + CURSOR_SEPARATOR + oldest.getId()
+                                : null;
+                    }
+                    callback.onSuccess(new NotificationPage(notifications, nextCursor));
+                }
+                
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    callback.onError(error.getMessage());
+                }
+            });
+    }
+    
     public static void getUnreadNotifications(String userId, NotificationsCallback callback) {
-        FirebaseManager.getNotificationsRef()
+        FirebaseManager.getUserNotificationsRef(userId)
+            .orderByChild("isRead")
+            .equalTo(false)
             .addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
                     List<Notification> notifications = new ArrayList<>();
                     for (DataSnapshot notificationSnapshot : snapshot.getChildren()) {
-                        // Handle both String and Long IDs
-                        Object uidObj = notificationSnapshot.child("userId").getValue();
-                        String uid = (uidObj instanceof String) ? (String) uidObj : String.valueOf(uidObj);
-                        Boolean isRead = notificationSnapshot.child("isRead").getValue(Boolean.class);
-                        
-                        if (userId.equals(uid) && (isRead == null || !isRead)) {
-                            Notification notification = snapshotToNotification(notificationSnapshot);
-                            notifications.add(notification);
-                        }
+                        Notification notification = snapshotToNotification(notificationSnapshot);
+                        notifications.add(notification);
                     }
                     callback.onSuccess(notifications);
                 }
@@ -102,45 +231,214 @@ public class NotificationController {
             });
     }
     
-    public static void markAsRead(String notificationId, NotificationCallback callback) {
+    public static void markAsRead(String userId, String notificationId, NotificationCallback callback) {
+        flipToRead(userId, notificationId, new ReadFlipCallback() {
+            @Override
+            public void onComplete(boolean flipped) {
+                if (!flipped) {
+                    // Missing or already read, the counter must not be decremented twice
+                    callback.onSuccess(notificationId);
+                    return;
+                }
+                recordRead(userId, notificationId)
+                    .addOnSuccessListener(aVoid -> {
+                        Log.d(TAG, "✅ Notification marked as read: " + notificationId);
+                        callback.onSuccess(notificationId);
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "❌ Unread counter update failed", e);
+                        callback.onError("Failed to mark as read: " + e.getMessage());
+                    });
+            }
+            
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "❌ Mark as read failed: " + message);
+                callback.onError("Failed to mark as read: " + message);
+            }
+        });
+    }
+    
+    /**
+     * Flip one isRead flag from false to true in a transaction. flipped is true only for
+     * the call that changed it, so a double tap decrements once.
+     */
+    private static void flipToRead(String userId, String notificationId, ReadFlipCallback callback) {
+        // doTransaction may rerun against fresher data; the last run is the one committed
+        AtomicBoolean flipped = new AtomicBoolean(false);
+        FirebaseManager.getUserNotificationsRef(userId).child(notificationId).child("isRead")
+            .runTransaction(new Transaction.Handler() {
+                @NonNull
+                @Override
+                public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                    boolean unread = Boolean.FALSE.equals(currentData.getValue(Boolean.class));
+                    flipped.set(unread);
+                    if (unread) {
+                        currentData.setValue(true);
+                    }
+                    return Transaction.success(currentData);
+                }
+                
+                @Override
+                public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
+                    if (error != null) {
+                        callback.onError(error.getMessage());
+                    } else {
+                        callback.onComplete(committed && flipped.get());
+                    }
+                }
+            });
+    }
+    
+    /**
+     * Stamp the flipped notification and take it off the unread counter in one update
+     */
+    private static Task<Void> recordRead(String userId, String notificationId) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(getInboxPath(userId) + "/" + notificationId + "/updatedAt", ServerValue.TIMESTAMP);
+        updates.put(getUnreadCountPath(userId), ServerValue.increment(-1));
+        return FirebaseManager.getRootRef().updateChildren(updates);
+    }
+    
+    public static void markAllAsRead(String userId, NotificationCallback callback) {
+        markAllAsRead(userId, DEFAULT_MARK_READ_BATCH_SIZE, callback);
+    }
+    
+    /**
+     * Flip every unread notification of the user and take them off the counter in one
+     * multi-path update. Only an inbox of more than batchSize unread flags is split into
+     * chunks of batchSize, each carrying its own counter decrement; the callback fires
+     * once the last chunk is committed.
+     */
+    public static void markAllAsRead(String userId, int batchSize, NotificationCallback callback) {
+        Query query = FirebaseManager.getUserNotificationsRef(userId)
+            .orderByChild("isRead")
+            .equalTo(false);
+        
+        query.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                List<String> unreadIds = new ArrayList<>();
+                for (DataSnapshot notificationSnapshot : snapshot.getChildren()) {
+                    unreadIds.add(notificationSnapshot.getKey());
+                }
+                
+                if (unreadIds.isEmpty()) {
+                    callback.onSuccess("Marked 0 as read");
+                    return;
+                }
+                // Whole unread set in one atomic write unless it is over the chunk threshold
+                int chunkSize = unreadIds.size() <= batchSize ? unreadIds.size() : Math.max(1, batchSize);
+                writeReadChunks(userId, unreadIds, 0, chunkSize, callback);
+            }
+            
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.getMessage());
+            }
+        });
+    }
+    
+    private static void writeReadChunks(String userId, List<String> notificationIds, int from, int chunkSize,
+                                        NotificationCallback callback) {
+        int to = Math.min(from + chunkSize, notificationIds.size());
+        Map<String, Object> updates = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            updates.put(getInboxPath(userId) + "/" + notificationIds.get(i) + "/isRead", true);
+            updates.put(getInboxPath(userId) + "/" + notificationIds.get(i) + "/updatedAt", ServerValue.TIMESTAMP);
+        }
+        updates.put(getUnreadCountPath(userId), ServerValue.increment(-(to - from)));
+        
+        FirebaseManager.getRootRef().updateChildren(updates)
+            .addOnSuccessListener(aVoid -> {
+                if (to < notificationIds.size()) {
+                    writeReadChunks(userId, notificationIds, to, chunkSize, callback);
+                    return;
+                }
+                int chunks = (notificationIds.size() + chunkSize - 1) / chunkSize;
+                Log.d(TAG, "✅ Marked " + notificationIds.size() + " notifications as read in " + chunks + " updates");
+                callback.onSuccess("Marked " + notificationIds.size() + " as read in " + chunks + " updates");
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "❌ Mark all as read failed, " + from + " of " + notificationIds.size() + " committed", e);
+                callback.onError("Failed to mark as read after " + from + " of " + notificationIds.size()
+                    + ": " + e.getMessage());
+            });
+    }
+    
+    /**
+     * Delete the user's whole inbox and reset their unread counter in one update
+     */
+    public static void clearNotifications(String userId, NotificationCallback callback) {
         Map<String, Object> updates = new HashMap<>();
-        updates.put("isRead", true);
+        updates.put(getInboxPath(userId), null);
+        updates.put(getUnreadCountPath(userId), null);
         
-        FirebaseManager.getNotificationsRef().child(notificationId).updateChildren(updates)
+        FirebaseManager.getRootRef().updateChildren(updates)
             .addOnSuccessListener(aVoid -> {
-                Log.d(TAG, "✅ Notification marked as read: " + notificationId);
-                callback.onSuccess(notificationId);
+                Log.d(TAG, "✅ Cleared notifications of " + userId);
+                // Deletions never show up in a delta, drop the mirrored copy here
+                LocalMirror mirror = LocalMirror.getInstance();
+                if (mirror != null) {
+                    mirror.write(() -> mirror.deleteNotifications(userId));
+                }
+                callback.onSuccess(userId);
             })
             .addOnFailureListener(e -> {
-                Log.e(TAG, "❌ Mark as read failed", e);
-                callback.onError("Failed to mark as read: " + e.getMessage());
+                Log.e(TAG, "❌ Clear notifications failed", e);
+                callback.onError("Failed to clear notifications: " + e.getMessage());
             });
     }
     
-    public static void markAllAsRead(String userId, NotificationCallback callback) {
+    /**
+     * Move every entry of the old flat notifications node into its owner's inbox
+     * and delete the flat copy, in one multi-path update
+     */
+    public static void migrateNotifications(MigrationCallback callback) {
         FirebaseManager.getNotificationsRef()
             .addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    int count = 0;
+                    Map<String, Object> updates = new HashMap<>();
+                    int migrated = 0;
                     for (DataSnapshot notificationSnapshot : snapshot.getChildren()) {
-                        // Handle both String and Long IDs
                         Object uidObj = notificationSnapshot.child("userId").getValue();
+                        if (uidObj == null) {
+                            continue;
+                        }
                         String uid = (uidObj instanceof String) ? (String) uidObj : String.valueOf(uidObj);
+                        String key = notificationSnapshot.getKey();
                         
-                        Boolean isRead = notificationSnapshot.child("isRead").getValue(Boolean.class);
-                        
-                        if (userId.equals(uid) && (isRead == null || !isRead)) {
-                            Object nidObj = notificationSnapshot.child("id").getValue();
-                            String nid = (nidObj instanceof String) ? (String) nidObj : String.valueOf(nidObj);
-                            Map<String, Object> updates = new HashMap<>();
-                            updates.put("isRead", true);
-                            FirebaseManager.getNotificationsRef().child(nid).updateChildren(updates);
-                            count++;
+                        Map<String, Object> notificationMap = new HashMap<>();
+                        for (DataSnapshot field : notificationSnapshot.getChildren()) {
+                            notificationMap.put(field.getKey(), field.getValue());
                         }
+                        notificationMap.put("userId", uid);
+                        // Older rows may lack isRead, the inbox queries filter on it
+                        if (!notificationMap.containsKey("isRead")) {
+                            notificationMap.put("isRead", false);
+                        }
+                        
+                        updates.put(getInboxPath(uid) + "/" + key, notificationMap);
+                        updates.put(FirebaseManager.PATH_NOTIFICATIONS + "/" + key, null);
+                        migrated++;
+                    }
+                    
+                    if (updates.isEmpty()) {
+                        callback.onSuccess(0);
+                        return;
                     }
-                    Log.d(TAG, "✅ Marked " + count + " notifications as read");
-                    callback.onSuccess("Marked " + count + " as read");
+                    
+                    int migratedCount = migrated;
+                    FirebaseManager.getRootRef().updateChildren(updates)
+                        .addOnSuccessListener(aVoid -> {
+                            Log.d(TAG, "✅ Migrated " + migratedCount + " notifications to user inboxes");
+                            callback.onSuccess(migratedCount);
+                        })
+                        .addOnFailureListener(e -> {
+                            Log.e(TAG, "❌ Notification migration failed", e);
+                            callback.onError(e.getMessage());
+                        });
                 }
                 
                 @Override
@@ -151,17 +449,99 @@ public class NotificationController {
     }
     
     public static void getUnreadCount(String userId, UnreadCountCallback callback) {
-        getUnreadNotifications(userId, new NotificationsCallback() {
-            @Override
-            public void onSuccess(List<Notification> notifications) {
-                callback.onSuccess(notifications.size());
-            }
-            
-            @Override
-            public void onError(String message) {
-                callback.onError(message);
-            }
-        });
+        UNREAD_COUNT_FLIGHTS.run(userId, done -> fetchUnreadCount(userId, done),
+            new SingleFlight.Callback<Integer>() {
+                @Override
+                public void onSuccess(Integer unreadCount) {
+                    callback.onSuccess(unreadCount);
+                }
+                
+                @Override
+                public void onError(String message) {
+                    callback.onError(message);
+                }
+            });
+    }
+    
+    private static void fetchUnreadCount(String userId, SingleFlight.Callback<Integer> callback) {
+        FirebaseManager.getUnreadCountsRef().child(userId)
+            .addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    callback.onSuccess(snapshotToUnreadCount(snapshot));
+                }
+                
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    callback.onError(error.getMessage());
+                }
+            });
+    }
+    
+    /**
+     * Subscribe to the user's unread counter. The callback fires with the current
+     * value and again on every change; pass the returned listener to
+     * removeUnreadCountListener when done.
+     */
+    public static ValueEventListener addUnreadCountListener(String userId, UnreadCountCallback callback) {
+        return FirebaseManager.getUnreadCountsRef().child(userId)
+            .addValueEventListener(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    callback.onSuccess(snapshotToUnreadCount(snapshot));
+                }
+                
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    callback.onError(error.getMessage());
+                }
+            });
+    }
+    
+    public static void removeUnreadCountListener(String userId, ValueEventListener listener) {
+        FirebaseManager.getUnreadCountsRef().child(userId).removeEventListener(listener);
+    }
+    
+    /**
+     * Recompute every user's unread counter from the inboxes in one update.
+     * Needed once for notifications created before the counters existed, and to repair drift.
+     */
+    public static void rebuildUnreadCounts(UnreadCountCallback callback) {
+        FirebaseManager.getDatabase().getReference(FirebaseManager.PATH_USER_NOTIFICATIONS)
+            .addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    Map<String, Object> counts = new HashMap<>();
+                    for (DataSnapshot inboxSnapshot : snapshot.getChildren()) {
+                        long unread = 0;
+                        for (DataSnapshot notificationSnapshot : inboxSnapshot.getChildren()) {
+                            Boolean isRead = notificationSnapshot.child("isRead").getValue(Boolean.class);
+                            if (isRead == null || !isRead) {
+                                unread++;
+                            }
+                        }
+                        if (unread > 0) {
+                            counts.put(inboxSnapshot.getKey(), unread);
+                        }
+                    }
+                    
+                    // Replace the whole node so users with nothing unread drop back to zero
+                    FirebaseManager.getUnreadCountsRef().setValue(counts)
+                        .addOnSuccessListener(aVoid -> {
+                            Log.d(TAG, "✅ Rebuilt unread counters for " + counts.size() + " users");
+                            callback.onSuccess(counts.size());
+                        })
+                        .addOnFailureListener(e -> {
+                            Log.e(TAG, "❌ Failed to rebuild unread counters", e);
+                            callback.onError(e.getMessage());
+                        });
+                }
+                
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    callback.onError(error.getMessage());
+                }
+            });
     }
     
     public interface UnreadCountCallback {
@@ -169,24 +549,20 @@ public class NotificationController {
         void onError(String message);
     }
     
+    private static String getInboxPath(String userId) {
+        return FirebaseManager.PATH_USER_NOTIFICATIONS + "/" + userId;
+    }
+    
+    private static String getUnreadCountPath(String userId) {
+        return FirebaseManager.PATH_UNREAD_COUNTS + "/" + userId;
+    }
+    
+    private static int snapshotToUnreadCount(DataSnapshot snapshot) {
+        Long count = snapshot.getValue(Long.class);
+        return count != null ? count.intValue() : 0;
+    }
+    
     private static Notification snapshotToNotification(DataSnapshot snapshot) {
-        Notification notification = new Notification();
-        // Handle both String and Long IDs
-        Object idObj = snapshot.child("id").getValue();
-        notification.setId((idObj instanceof String) ? (String) idObj : String.valueOf(idObj));
-        
-        Object uidObj = snapshot.child("userId").getValue();
-        notification.setUserId((uidObj instanceof String) ? (String) uidObj : String.valueOf(uidObj));
-        notification.setTitle(snapshot.child("title").getValue(String.class));
-        notification.setMessage(snapshot.child("message").getValue(String.class));
-        notification.setType(snapshot.child("type").getValue(String.class));
-        
-        Boolean isRead = snapshot.child("isRead").getValue(Boolean.class);
-        if (isRead != null) notification.setRead(isRead);
-        
-        Long createdAt = snapshot.child("createdAt").getValue(Long.class);
-        if (createdAt != null) notification.setCreatedAt(createdAt);
-        
-        return notification;
+        return NotificationCodec.INSTANCE.decode(snapshot);
     }
 }
@@ -1,22 +1,50 @@
 package com.example.tounesna.controller;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import com.example.tounesna.model.Post;
 import com.example.tounesna.model.Organization;
 import com.example.tounesna.model.Volunteer;
+import com.example.tounesna.model.codec.PostCodec;
+import com.example.tounesna.util.EntityCache;
+import com.example.tounesna.util.EntityCaches;
 import com.example.tounesna.util.FirebaseManager;
+import com.example.tounesna.util.LocalMirror;
+import com.example.tounesna.util.PostSearchIndex;
+import com.example.tounesna.util.SingleFlight;
+import com.example.tounesna.util.SnapshotDecoder;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.ValueEventListener;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class PostController {
     private static final String TAG = "PostController";
+    private static final String CURSOR_SEPARATOR = ":";
+    
+    // Post search index, touched only on SEARCH_EXECUTOR; the listener state below is main-thread only
+    private static final PostSearchIndex SEARCH_INDEX = new PostSearchIndex();
+    private static final int SEARCH_LIMIT = 100;
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static ChildEventListener searchIndexListener;
+    private static boolean searchIndexReady = false;
+    private static final List<PendingSearch> pendingSearches = new ArrayList<>();
+    // Identical page queries issued while one is in flight share its answer
+    private static final SingleFlight<PostPage> PAGE_FLIGHTS = new SingleFlight<>();
     
     public interface PostCallback {
         void onSuccess(String postId);
@@ -33,31 +61,96 @@ public class PostController {
         void onError(String message);
     }
     
+    public interface PostsPageCallback {
+        void onSuccess(PostPage page);
+        void onError(String message);
+    }
+    
+    public interface FanOutCallback {
+        void onSuccess(int updatedPosts);
+        void onError(String message);
+    }
+    
+    private static class PendingSearch {
+        final String keyword;
+        final boolean fuzzy;
+        final PostsCallback callback;
+        
+        PendingSearch(String keyword, boolean fuzzy, PostsCallback callback) {
+            this.keyword = keyword;
+            this.fuzzy = fuzzy;
+            this.callback = callback;
+        }
+    }
+    
+    /**
+     * PostPage - One page of the recent posts feed and the cursor to continue from
+     */
+    public static class PostPage {
+        private final List<Post> posts;
+        private final String nextCursor;
+        
+        public PostPage(List<Post> posts, String nextCursor) {
+            this.posts = posts;
+            this.nextCursor = nextCursor;
+        }
+        
+        public List<Post> getPosts() {
+            return posts;
+        }
+        
+        /**
+         * Continuation token for the next page, or null when this is the last page
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+        
+        public boolean hasMore() {
+            return nextCursor != null;
+        }
+    }
+    
     public static void createPost(Post post, PostCallback callback) {
+        if (post.getOrganization() != null || post.getOrganizationId() == null) {
+            writePost(post, callback);
+            return;
+        }
+        
+        // Load the author once so the post carries its organization summary
+        AuthController.getOrganizationById(post.getOrganizationId(), new AuthController.UserDataCallback() {
+            @Override
+            public void onVolunteerLoaded(Volunteer volunteer) {
+                // Not expected
+            }
+            
+            @Override
+            public void onOrganizationLoaded(Organization org) {
+                post.setOrganization(org);
+                writePost(post, callback);
+            }
+            
+            @Override
+            public void onError(String message) {
+                Log.w(TAG, "⚠️ Creating post without organization summary: " + message);
+                writePost(post, callback);
+            }
+        });
+    }
+    
+    private static void writePost(Post post, PostCallback callback) {
         String postId = FirebaseManager.generateId(FirebaseManager.PATH_POSTS);
         post.setId(postId);
         post.setCreatedAt(System.currentTimeMillis());
         post.setUpdatedAt(System.currentTimeMillis());
         
-        Map<String, Object> postMap = new HashMap<>();
-        postMap.put("id", postId);
-        postMap.put("organizationId", post.getOrganizationId());
-        postMap.put("title", post.getTitle());
-        postMap.put("description", post.getDescription());
-        postMap.put("imageUrl", post.getImageUrl());
-        postMap.put("location", post.getLocation());
-        postMap.put("startDate", post.getStartDate());
-        postMap.put("endDate", post.getEndDate());
-        postMap.put("volunteersNeeded", post.getVolunteersNeeded());
-        postMap.put("category", post.getCategory() != null ? post.getCategory().toString() : null);
-        postMap.put("priority", post.getPriority() != null ? post.getPriority().toString() : "MEDIUM");
-        postMap.put("needs", post.getNeeds());
-        postMap.put("createdAt", post.getCreatedAt());
-        postMap.put("updatedAt", post.getUpdatedAt());
+        // Carries the organization summary when the author is attached
+        Map<String, Object> postMap = PostCodec.INSTANCE.encode(post);
         
         FirebaseManager.getPostsRef().child(postId).setValue(postMap)
             .addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "✅ Post created: " + postId);
+                EntityCaches.posts().put(postId, post);
                 callback.onSuccess(postId);
             })
             .addOnFailureListener(e -> {
@@ -66,26 +159,194 @@ public class PostController {
             });
     }
     
+    /**
+     * Rewrite the organization summary of every post by this organization in one
+     * multi-path update. Call after the organization's profile or rating changes.
+     */
+    public static void refreshOrganizationSummary(String organizationId, FanOutCallback callback) {
+        // The caller just changed the organization, the cached copy is outdated
+        EntityCaches.organizations().invalidate(organizationId);
+        AuthController.getOrganizationById(organizationId, new AuthController.UserDataCallback() {
+            @Override
+            public void onVolunteerLoaded(Volunteer volunteer) {
+                // Not expected
+            }
+            
+            @Override
+            public void onOrganizationLoaded(Organization org) {
+                FirebaseManager.getPostsRef()
+                    .orderByChild("organizationId")
+                    .equalTo(organizationId)
+                    .addListenerForSingleValueEvent(new ValueEventListener() {
+                        @Override
+                        public void onDataChange(@NonNull DataSnapshot snapshot) {
+                            Map<String, Object> summary = PostCodec.encodeOrganizationSummary(org);
+                            Map<String, Object> updates = new HashMap<>();
+                            int postCount = 0;
+                            for (DataSnapshot postSnapshot : snapshot.getChildren()) {
+                                putSummary(updates, postSnapshot.getKey(), summary);
+                                EntityCaches.posts().invalidate(postSnapshot.getKey());
+                                postCount++;
+                            }
+                            writeSummaries(updates, postCount, callback);
+                        }
+                        
+                        @Override
+                        public void onCancelled(@NonNull DatabaseError error) {
+                            callback.onError(error.getMessage());
+                        }
+                    });
+            }
+            
+            @Override
+            public void onError(String message) {
+                callback.onError(message);
+            }
+        });
+    }
+    
+    /**
+     * Embed the current organization summary in every post, for posts created
+     * before summaries existed. Reads organizations and posts once each.
+     */
+    public static void backfillOrganizationSummaries(FanOutCallback callback) {
+        FirebaseManager.getOrganizationsRef().addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot orgsSnapshot) {
+                Map<String, Map<String, Object>> summaries = new HashMap<>();
+                for (DataSnapshot orgSnapshot : orgsSnapshot.getChildren()) {
+                    Organization org = AuthController.snapshotToOrganization(orgSnapshot);
+                    summaries.put(orgSnapshot.getKey(), PostCodec.encodeOrganizationSummary(org));
+                }
+                
+                FirebaseManager.getPostsRef().addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot postsSnapshot) {
+                        Map<String, Object> updates = new HashMap<>();
+                        int postCount = 0;
+                        for (DataSnapshot postSnapshot : postsSnapshot.getChildren()) {
+                            Object orgIdObj = postSnapshot.child("organizationId").getValue();
+                            String orgId = (orgIdObj instanceof String) ? (String) orgIdObj : String.valueOf(orgIdObj);
+                            Map<String, Object> summary = summaries.get(orgId);
+                            if (summary != null) {
+                                putSummary(updates, postSnapshot.getKey(), summary);
+                                postCount++;
+                            }
+                        }
+                        EntityCaches.posts().invalidateAll();
+                        writeSummaries(updates, postCount, callback);
+                    }
+                    
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        callback.onError(error.getMessage());
+                    }
+                });
+            }
+            
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.getMessage());
+            }
+        });
+    }
+    
+    private static void putSummary(Map<String, Object> updates, String postId, Map<String, Object> summary) {
+        updates.put(postId + "/" + PostCodec.ORGANIZATION_SUMMARY, summary);
+        // Lets delta readers of posts see the changed summary
+        updates.put(postId + "/updatedAt", ServerValue.TIMESTAMP);
+    }
+    
+    private static void writeSummaries(Map<String, Object> updates, int postCount, FanOutCallback callback) {
+        if (updates.isEmpty()) {
+            callback.onSuccess(0);
+            return;
+        }
+        FirebaseManager.getPostsRef().updateChildren(updates)
+            .addOnSuccessListener(aVoid -> {
+                Log.d(TAG, "✅ Organization summary written to " + postCount + " posts");
+                callback.onSuccess(postCount);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "❌ Organization summary fan-out failed", e);
+                callback.onError(e.getMessage());
+            });
+    }
+    
     public static void getRecentPosts(int limit, PostsCallback callback) {
-        FirebaseManager.getPostsRef()
+        getRecentPostsPage(limit, null, new PostsPageCallback() {
+            @Override
+            public void onSuccess(PostPage page) {
+                callback.onSuccess(page.getPosts());
+            }
+            
+            @Override
+            public void onError(String message) {
+                callback.onError(message);
+            }
+        });
+    }
+    
+    /**
+     * Load one page of posts, newest first, using a keyset query on createdAt.
+     * Pass null as cursor for the first page, then the page's next cursor to continue.
+     * Only pageSize + 1 posts are downloaded, whatever the size of the posts node.
+     * A request for a page that is already being fetched waits for that fetch.
+     */
+    public static void getRecentPostsPage(int pageSize, String cursor, PostsPageCallback callback) {
+        PAGE_FLIGHTS.run(pageSize + "/" + cursor, done -> fetchRecentPostsPage(pageSize, cursor, done),
+            new SingleFlight.Callback<PostPage>() {
+                @Override
+                public void onSuccess(PostPage page) {
+                    callback.onSuccess(page);
+                }
+                
+                @Override
+                public void onError(String message) {
+                    callback.onError(message);
+                }
+            });
+    }
+    
+    private static void fetchRecentPostsPage(int pageSize, String cursor, SingleFlight.Callback<PostPage> callback) {
+        Query query = FirebaseManager.getPostsRef().orderByChild("createdAt");
+        if (cursor != null) {
+            int separator = cursor.indexOf(CURSOR_SEPARATOR);
+            if (separator <= 0) {
+                callback.onError("Invalid page cursor");
+                return;
+            }
+            try {
+                long cursorCreatedAt = Long.parseLong(cursor.substring(0, separator));
+                String cursorKey = cursor.substring(separator + 1);
+                query = query.endBefore(cursorCreatedAt, cursorKey);
+            } catch (NumberFormatException e) {
+                callback.onError("Invalid page cursor");
+                return;
+            }
+        }
+        
+        // Fetch one extra post to know whether another page exists
+        query.limitToLast(pageSize + 1)
             .addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    List<Post> posts = new ArrayList<>();
-                    for (DataSnapshot postSnapshot : snapshot.getChildren()) {
-                        Post post = snapshotToPost(postSnapshot);
-                        posts.add(post);
-                    }
-                    // Sort by createdAt descending (newest first)
-                    posts.sort((p1, p2) -> Long.compare(p2.getCreatedAt(), p1.getCreatedAt()));
-                    
-                    // Limit to requested number
-                    if (posts.size() > limit) {
-                        posts = posts.subList(0, limit);
-                    }
-                    
-                    Log.d("PostController", "✅ Loaded " + posts.size() + " recent posts sorted by date (newest first)");
-                    callback.onSuccess(posts);
+                    // Keep each key next to its post, the cursor needs the key of the oldest one
+                    SnapshotDecoder.decodeChildren(snapshot,
+                        child -> new AbstractMap.SimpleImmutableEntry<>(child.getKey(), snapshotToPost(child)),
+                        decoded -> toPostPage(decoded, pageSize),
+                        new SnapshotDecoder.Callback<PostPage>() {
+                            @Override
+                            public void onDecoded(PostPage page) {
+                                Log.d(TAG, "✅ Loaded page of " + page.getPosts().size() + " posts (more: " + page.hasMore() + ")");
+                                callback.onSuccess(page);
+                            }
+                            
+                            @Override
+                            public void onError(String message) {
+                                callback.onError(message);
+                            }
+                        });
                 }
                 
                 @Override
@@ -95,48 +356,103 @@ public class PostController {
             });
     }
     
+    /**
+     * Build a page from pageSize + 1 decoded children, oldest first. Runs on a decode worker.
+     */
+    private static PostPage toPostPage(List<? extends Map.Entry<String, Post>> decoded, int pageSize) {
+        List<Post> posts = new ArrayList<>(decoded.size());
+        for (Map.Entry<String, Post> entry : decoded) {
+            // Opening a feed post then needs no extra read
+            EntityCaches.posts().put(entry.getValue().getId(), entry.getValue());
+            posts.add(entry.getValue());
+        }
+        LocalMirror mirror = LocalMirror.getInstance();
+        if (mirror != null) {
+            mirror.upsert(LocalMirror.POSTS, posts);
+        }
+        
+        String nextCursor = null;
+        if (posts.size() > pageSize) {
+            posts.remove(0);
+            // Oldest post of this page, the extra one before it only proved there is more
+            Map.Entry<String, Post> oldest = decoded.get(1);
+            nextCursor = encodeCursor(oldest.getValue().getCreatedAt(), oldest.getKey());
+        }
+        Collections.reverse(posts);
+        return new PostPage(Collections.unmodifiableList(posts), nextCursor);
+    }
+    
+    private static String encodeCursor(Long createdAt, String key) {
+        // Posts without createdAt sort before every timestamp, so nothing can follow them
+        if (createdAt == null || key == null) {
+            return null;
+        }
+        return createdAt + CURSOR_SEPARATOR + key;
+    }
+    
     public static void getPostById(String postId, SinglePostCallback callback) {
+        EntityCache.Lookup<Post> cached = EntityCaches.posts().lookup(postId);
+        if (cached != null) {
+            attachOrganization(cached.getValue(), callback);
+            if (cached.isStale()) {
+                // Served the stale copy, refresh it for the next caller
+                readPost(postId, null);
+            }
+            return;
+        }
+        readPost(postId, callback);
+    }
+    
+    private static void readPost(String postId, SinglePostCallback callback) {
         FirebaseManager.getPostsRef().child(postId)
             .addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
                     if (snapshot.exists()) {
                         Post post = snapshotToPost(snapshot);
-                        // Load organization data
-                        String orgId = post.getOrganizationId();
-                        if (orgId != null) {
-                            AuthController.getOrganizationById(orgId, new AuthController.UserDataCallback() {
-                                @Override
-                                public void onVolunteerLoaded(Volunteer volunteer) {
-                                    // Not expected
-                                }
-                                
-                                @Override
-                                public void onOrganizationLoaded(Organization org) {
-                                    post.setOrganization(org);
-                                    callback.onSuccess(post);
-                                }
-                                
-                                @Override
-                                public void onError(String message) {
-                                    callback.onSuccess(post); // Return post without org data
-                                }
-                            });
-                        } else {
-                            callback.onSuccess(post);
-                        }
+                        EntityCaches.posts().put(postId, post);
+                        if (callback != null) attachOrganization(post, callback);
                     } else {
-                        callback.onError("Post not found");
+                        EntityCaches.posts().invalidate(postId);
+                        if (callback != null) callback.onError("Post not found");
                     }
                 }
                 
                 @Override
                 public void onCancelled(@NonNull DatabaseError error) {
-                    callback.onError(error.getMessage());
+                    if (callback != null) callback.onError(error.getMessage());
                 }
             });
     }
     
+    private static void attachOrganization(Post cachedPost, SinglePostCallback callback) {
+        // The cached instance is shared by every reader, hand out and decorate a copy of it
+        Post post = new Post(cachedPost);
+        // Load organization data, the embedded summary lacks contact details
+        String orgId = post.getOrganizationId();
+        if (orgId != null) {
+            AuthController.getOrganizationById(orgId, new AuthController.UserDataCallback() {
+                @Override
+                public void onVolunteerLoaded(Volunteer volunteer) {
+                    // Not expected
+                }
+                
+                @Override
+                public void onOrganizationLoaded(Organization org) {
+                    post.setOrganization(org);
+                    callback.onSuccess(post);
+                }
+                
+                @Override
+                public void onError(String message) {
+                    callback.onSuccess(post); // Return post without org data
+                }
+            });
+        } else {
+            callback.onSuccess(post);
+        }
+    }
+    
     public static void getPostsByOrganization(String organizationId, PostsCallback callback) {
         Query query = FirebaseManager.getPostsRef()
             .orderByChild("organizationId")
@@ -145,12 +461,7 @@ public class PostController {
         query.addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                List<Post> posts = new ArrayList<>();
-                for (DataSnapshot postSnapshot : snapshot.getChildren()) {
-                    Post post = snapshotToPost(postSnapshot);
-                    posts.add(post);
-                }
-                callback.onSuccess(posts);
+                SnapshotDecoder.decodeChildren(snapshot, PostController::snapshotToPost, deliverPosts(callback));
             }
             
             @Override
@@ -160,82 +471,120 @@ public class PostController {
         });
     }
     
+    /**
+     * Search posts through the live inverted index. Terms are matched inside words,
+     * ignoring case and accents, and all of them must match. The 100 best
+     * matches, ranked by relevance then recency.
+     */
     public static void searchPosts(String keyword, PostsCallback callback) {
-        FirebaseManager.getPostsRef()
-            .addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    List<Post> posts = new ArrayList<>();
-                    for (DataSnapshot postSnapshot : snapshot.getChildren()) {
-                        Post post = snapshotToPost(postSnapshot);
-                        String title = post.getTitle() != null ? post.getTitle().toLowerCase() : "";
-                        String description = post.getDescription() != null ? post.getDescription().toLowerCase() : "";
-                        String location = post.getLocation() != null ? post.getLocation().toLowerCase() : "";
-                        String searchKeyword = keyword.toLowerCase();
-                        
-                        if (title.contains(searchKeyword) || description.contains(searchKeyword) || location.contains(searchKeyword)) {
-                            posts.add(post);
-                        }
-                    }
-                    // Sort by createdAt descending (newest first)
-                    posts.sort((p1, p2) -> Long.compare(p2.getCreatedAt(), p1.getCreatedAt()));
-                    callback.onSuccess(posts);
-                }
-                
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    callback.onError(error.getMessage());
-                }
-            });
+        searchPosts(keyword, false, callback);
     }
     
-    private static Post snapshotToPost(DataSnapshot snapshot) {
-        Post post = new Post();
-        // Handle both String and Long IDs from Firebase
-        Object idObj = snapshot.child("id").getValue();
-        String id = (idObj instanceof String) ? (String) idObj : String.valueOf(idObj);
-        post.setId(id);
-        
-        Object orgIdObj = snapshot.child("organizationId").getValue();
-        String orgId = (orgIdObj instanceof String) ? (String) orgIdObj : String.valueOf(orgIdObj);
-        post.setOrganizationId(orgId);
-        
-        post.setTitle(snapshot.child("title").getValue(String.class));
-        post.setDescription(snapshot.child("description").getValue(String.class));
-        
-        // Load and validate image URL (filter out base64 data URLs)
-        String imageUrl = snapshot.child("imageUrl").getValue(String.class);
-        if (imageUrl != null) {
-            Log.d("PostController", "Loading imageUrl from Firebase: " + imageUrl);
-            if (imageUrl.startsWith("data:")) {
-                Log.w("PostController", "⚠️ Skipping base64 data URL");
-            } else if (imageUrl.contains("google.com/search") || imageUrl.contains("bing.com/images/search")) {
-                Log.e("PostController", "❌ Invalid search URL detected, skipping: " + imageUrl.substring(0, Math.min(100, imageUrl.length())));
-            } else {
-                Log.d("PostController", "✅ Valid image URL, setting to post");
-                post.setImageUrl(imageUrl);
+    /**
+     * Same as above; fuzzy also accepts words a typo or two away from each term
+     */
+    public static void searchPosts(String keyword, boolean fuzzy, PostsCallback callback) {
+        attachSearchIndex();
+        if (!searchIndexReady) {
+            pendingSearches.add(new PendingSearch(keyword, fuzzy, callback));
+            return;
+        }
+        runSearch(keyword, fuzzy, callback);
+    }
+    
+    private static void runSearch(String keyword, boolean fuzzy, PostsCallback callback) {
+        SEARCH_EXECUTOR.execute(() -> {
+            List<Post> posts = SEARCH_INDEX.search(keyword, fuzzy, SEARCH_LIMIT);
+            MAIN_HANDLER.post(() -> callback.onSuccess(posts));
+        });
+    }
+    
+    /**
+     * Start feeding the search index from a child listener on posts. The first load
+     * arrives as child events followed by the value event, so once the value event
+     * is through the index is complete; later changes keep it current.
+     */
+    private static void attachSearchIndex() {
+        if (searchIndexListener != null) {
+            return;
+        }
+        DatabaseReference postsRef = FirebaseManager.getPostsRef();
+        searchIndexListener = postsRef.addChildEventListener(new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                SEARCH_EXECUTOR.execute(() -> SEARCH_INDEX.put(snapshotToPost(snapshot)));
             }
-        } else {
-            Log.d("PostController", "No imageUrl in Firebase for this post");
+            
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+                SEARCH_EXECUTOR.execute(() -> SEARCH_INDEX.put(snapshotToPost(snapshot)));
+            }
+            
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                SEARCH_EXECUTOR.execute(() -> SEARCH_INDEX.remove(snapshot.getKey()));
+            }
+            
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+                // Order is not indexed
+            }
+            
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                detachSearchIndex(error.getMessage());
+            }
+        });
+        postsRef.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                // Queued behind the child events of the same load
+                SEARCH_EXECUTOR.execute(() -> MAIN_HANDLER.post(() -> {
+                    Log.d(TAG, "✅ Search index ready");
+                    searchIndexReady = true;
+                    for (PendingSearch pending : pendingSearches) {
+                        runSearch(pending.keyword, pending.fuzzy, pending.callback);
+                    }
+                    pendingSearches.clear();
+                }));
+            }
+            
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                detachSearchIndex(error.getMessage());
+            }
+        });
+    }
+    
+    private static void detachSearchIndex(String message) {
+        Log.e(TAG, "❌ Search index listener cancelled: " + message);
+        if (searchIndexListener != null) {
+            FirebaseManager.getPostsRef().removeEventListener(searchIndexListener);
+            searchIndexListener = null;
         }
-        
-        post.setLocation(snapshot.child("location").getValue(String.class));
-        
-        Long startDate = snapshot.child("startDate").getValue(Long.class);
-        if (startDate != null) post.setStartDate(startDate);
-        
-        Long endDate = snapshot.child("endDate").getValue(Long.class);
-        if (endDate != null) post.setEndDate(endDate);
-        
-        Integer volunteersNeeded = snapshot.child("volunteersNeeded").getValue(Integer.class);
-        if (volunteersNeeded != null) post.setVolunteersNeeded(volunteersNeeded);
-        
-        Long createdAt = snapshot.child("createdAt").getValue(Long.class);
-        if (createdAt != null) post.setCreatedAt(createdAt);
-        
-        Long updatedAt = snapshot.child("updatedAt").getValue(Long.class);
-        if (updatedAt != null) post.setUpdatedAt(updatedAt);
-        
-        return post;
+        searchIndexReady = false;
+        SEARCH_EXECUTOR.execute(SEARCH_INDEX::clear);
+        for (PendingSearch pending : pendingSearches) {
+            pending.callback.onError(message);
+        }
+        pendingSearches.clear();
+    }
+    
+    private static SnapshotDecoder.Callback<List<Post>> deliverPosts(PostsCallback callback) {
+        return new SnapshotDecoder.Callback<List<Post>>() {
+            @Override
+            public void onDecoded(List<Post> posts) {
+                callback.onSuccess(posts);
+            }
+            
+            @Override
+            public void onError(String message) {
+                callback.onError(message);
+            }
+        };
+    }
+    
+    private static Post snapshotToPost(DataSnapshot snapshot) {
+        return PostCodec.INSTANCE.decode(snapshot);
     }
 }
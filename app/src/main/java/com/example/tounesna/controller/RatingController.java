@@ -4,10 +4,13 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import com.example.tounesna.model.Notification;
 import com.example.tounesna.model.Rating;
+import com.example.tounesna.model.codec.OrganizationCodec;
+import com.example.tounesna.util.EntityCaches;
 import com.example.tounesna.util.FirebaseManager;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.ValueEventListener;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -17,6 +20,13 @@ import java.util.Map;
 public class RatingController {
     private static final String TAG = "RatingController";
     
+    // Per-organization aggregate stored under organizations/{id}/ratingAggregate
+    public static final String AGGREGATE_NODE = OrganizationCodec.RATING_AGGREGATE;
+    private static final String AGGREGATE_SUM = "sum";
+    private static final String AGGREGATE_COUNT = "count";
+    private static final String AGGREGATE_HISTOGRAM = "histogram";
+    private static final int MAX_STARS = 5;
+    
     public interface RatingCallback {
         void onSuccess(String ratingId);
         void onError(String message);
@@ -32,6 +42,16 @@ public class RatingController {
         void onError(String message);
     }
     
+    public interface RatingAggregateCallback {
+        void onSuccess(double averageRating, int totalRatings, long[] histogram);
+        void onError(String message);
+    }
+    
+    public interface RebuildCallback {
+        void onSuccess(int organizationCount);
+        void onError(String message);
+    }
+    
     public static void addRating(Rating rating, RatingCallback callback) {
         String ratingId = FirebaseManager.generateId(FirebaseManager.PATH_RATINGS);
         rating.setId(ratingId);
@@ -45,29 +65,27 @@ public class RatingController {
         ratingMap.put("comment", rating.getComment());
         ratingMap.put("createdAt", rating.getCreatedAt());
         
-        FirebaseManager.getRatingsRef().child(ratingId).setValue(ratingMap)
+        // The rating and the organization's aggregate are written together, so the
+        // cost of a new rating does not depend on how many ratings already exist
+        String aggregatePath = getAggregatePath(rating.getOrganizationId());
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(FirebaseManager.PATH_RATINGS + "/" + ratingId, ratingMap);
+        updates.put(aggregatePath + "/" + AGGREGATE_SUM, ServerValue.increment((double) rating.getScore()));
+        updates.put(aggregatePath + "/" + AGGREGATE_COUNT, ServerValue.increment(1));
+        updates.put(aggregatePath + "/" + AGGREGATE_HISTOGRAM + "/" + getStarBucket(rating.getScore()),
+                ServerValue.increment(1));
+        updates.put(FirebaseManager.PATH_ORGANIZATIONS + "/" + rating.getOrganizationId() + "/updatedAt",
+                ServerValue.TIMESTAMP);
+        
+        FirebaseManager.getRootRef().updateChildren(updates)
             .addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "✅ Rating added: " + ratingId);
                 
-                // Update organization's average rating
-                updateOrganizationRating(rating.getOrganizationId(), new RatingCallback() {
-                    @Override
-                    public void onSuccess(String s) {
-                        Log.d(TAG, "✅ Organization rating updated");
-                        
-                        // Send notification to organization
-                        sendRatingNotification(rating);
-                        
-                        callback.onSuccess(ratingId);
-                    }
-                    
-                    @Override
-                    public void onError(String message) {
-                        Log.e(TAG, "⚠️ Rating added but failed to update organization average: " + message);
-                        // Still report success since rating was saved
-                        callback.onSuccess(ratingId);
-                    }
-                });
+                // Send notification to organization
+                sendRatingNotification(rating);
+                refreshPostSummaries(rating.getOrganizationId());
+                
+                callback.onSuccess(ratingId);
             })
             .addOnFailureListener(e -> {
                 Log.e(TAG, "❌ Add rating failed", e);
@@ -75,28 +93,74 @@ public class RatingController {
             });
     }
     
-    private static void updateOrganizationRating(String organizationId, RatingCallback callback) {
-        getAverageRating(organizationId, new AverageRatingCallback() {
+    /**
+     * Rebuild every organization's aggregate from the ratings node in one multi-path update.
+     * Needed once for ratings written before the aggregate existed.
+     */
+    public static void rebuildRatingAggregates(RebuildCallback callback) {
+        FirebaseManager.getRatingsRef().addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
-            public void onSuccess(double averageRating, int totalRatings) {
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Map<String, double[]> sums = new HashMap<>();
+                Map<String, long[]> histograms = new HashMap<>();
+                for (DataSnapshot ratingSnapshot : snapshot.getChildren()) {
+                    Object oidObj = ratingSnapshot.child("organizationId").getValue();
+                    Float score = ratingSnapshot.child("score").getValue(Float.class);
+                    if (oidObj == null || score == null) {
+                        continue;
+                    }
+                    String oid = (oidObj instanceof String) ? (String) oidObj : String.valueOf(oidObj);
+                    
+                    double[] sum = sums.get(oid);
+                    if (sum == null) {
+                        sum = new double[1];
+                        sums.put(oid, sum);
+                        histograms.put(oid, new long[MAX_STARS + 1]);
+                    }
+                    sum[0] += score;
+                    histograms.get(oid)[getStarBucket(score)]++;
+                }
+                
+                if (sums.isEmpty()) {
+                    callback.onSuccess(0);
+                    return;
+                }
+                
                 Map<String, Object> updates = new HashMap<>();
-                updates.put("rating", (float) averageRating);
-                updates.put("totalRatings", totalRatings);
+                for (Map.Entry<String, double[]> entry : sums.entrySet()) {
+                    long[] histogram = histograms.get(entry.getKey());
+                    long count = 0;
+                    Map<String, Object> histogramMap = new HashMap<>();
+                    for (int star = 1; star <= MAX_STARS; star++) {
+                        count += histogram[star];
+                        if (histogram[star] > 0) {
+                            histogramMap.put(String.valueOf(star), histogram[star]);
+                        }
+                    }
+                    
+                    Map<String, Object> aggregate = new HashMap<>();
+                    aggregate.put(AGGREGATE_SUM, entry.getValue()[0]);
+                    aggregate.put(AGGREGATE_COUNT, count);
+                    aggregate.put(AGGREGATE_HISTOGRAM, histogramMap);
+                    updates.put(entry.getKey() + "/" + AGGREGATE_NODE, aggregate);
+                    updates.put(entry.getKey() + "/updatedAt", ServerValue.TIMESTAMP);
+                }
                 
-                FirebaseManager.getOrganizationsRef().child(organizationId).updateChildren(updates)
+                FirebaseManager.getOrganizationsRef().updateChildren(updates)
                     .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "✅ Updated org " + organizationId + " rating to " + averageRating + " (" + totalRatings + " ratings)");
-                        callback.onSuccess(organizationId);
+                        Log.d(TAG, "✅ Rebuilt rating aggregates for " + sums.size() + " organizations");
+                        EntityCaches.organizations().invalidateAll();
+                        callback.onSuccess(sums.size());
                     })
                     .addOnFailureListener(e -> {
-                        Log.e(TAG, "❌ Failed to update organization rating", e);
+                        Log.e(TAG, "❌ Failed to rebuild rating aggregates", e);
                         callback.onError(e.getMessage());
                     });
             }
             
             @Override
-            public void onError(String message) {
-                callback.onError(message);
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.getMessage());
             }
         });
     }
@@ -125,40 +189,50 @@ public class RatingController {
     }
     
     public static void getAverageRating(String organizationId, AverageRatingCallback callback) {
-        Query query = FirebaseManager.getRatingsRef()
-            .orderByChild("organizationId")
-            .equalTo(organizationId);
-            
-        query.addListenerForSingleValueEvent(new ValueEventListener() {
+        getRatingAggregate(organizationId, new RatingAggregateCallback() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (!snapshot.exists()) {
-                    callback.onSuccess(0.0, 0);
-                    return;
-                }
-                
-                double totalScore = 0.0;
-                int count = 0;
-                
-                for (DataSnapshot ratingSnapshot : snapshot.getChildren()) {
-                    Float score = ratingSnapshot.child("score").getValue(Float.class);
-                    if (score != null) {
-                        totalScore += score;
-                        count++;
-                    }
-                }
-                
-                double average = count > 0 ? totalScore / count : 0.0;
-                callback.onSuccess(average, count);
+            public void onSuccess(double averageRating, int totalRatings, long[] histogram) {
+                callback.onSuccess(averageRating, totalRatings);
             }
             
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                callback.onError(error.getMessage());
+            public void onError(String message) {
+                callback.onError(message);
             }
         });
     }
     
+    /**
+     * Read an organization's aggregate: average, count and the number of ratings per star
+     * (histogram[1] to histogram[5])
+     */
+    public static void getRatingAggregate(String organizationId, RatingAggregateCallback callback) {
+        FirebaseManager.getOrganizationsRef().child(organizationId).child(AGGREGATE_NODE)
+            .addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    long[] histogram = new long[MAX_STARS + 1];
+                    Long count = snapshot.child(AGGREGATE_COUNT).getValue(Long.class);
+                    if (count == null || count <= 0) {
+                        callback.onSuccess(0.0, 0, histogram);
+                        return;
+                    }
+                    
+                    Double sum = snapshot.child(AGGREGATE_SUM).getValue(Double.class);
+                    for (int star = 1; star <= MAX_STARS; star++) {
+                        Long starCount = snapshot.child(AGGREGATE_HISTOGRAM).child(String.valueOf(star)).getValue(Long.class);
+                        if (starCount != null) histogram[star] = starCount;
+                    }
+                    callback.onSuccess(sum != null ? sum / count : 0.0, count.intValue(), histogram);
+                }
+                
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    callback.onError(error.getMessage());
+                }
+            });
+    }
+    
     public static void checkIfUserRated(String volunteerId, String organizationId, RatingsCallback callback) {
         FirebaseManager.getRatingsRef()
             .addListenerForSingleValueEvent(new ValueEventListener() {
@@ -210,6 +284,28 @@ public class RatingController {
         });
     }
     
+    private static void refreshPostSummaries(String organizationId) {
+        PostController.refreshOrganizationSummary(organizationId, new PostController.FanOutCallback() {
+            @Override
+            public void onSuccess(int updatedPosts) {
+                Log.d(TAG, "✅ Refreshed rating on " + updatedPosts + " posts");
+            }
+            
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "⚠️ Failed to refresh post summaries: " + message);
+            }
+        });
+    }
+    
+    private static String getAggregatePath(String organizationId) {
+        return FirebaseManager.PATH_ORGANIZATIONS + "/" + organizationId + "/" + AGGREGATE_NODE;
+    }
+    
+    private static int getStarBucket(float score) {
+        return Math.max(1, Math.min(MAX_STARS, Math.round(score)));
+    }
+    
     private static Rating snapshotToRating(DataSnapshot snapshot) {
         Rating rating = new Rating();
         // Handle both String and Long IDs
@@ -1,20 +1,42 @@
 package com.example.tounesna.controller;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import com.example.tounesna.model.Organization;
-import com.example.tounesna.model.Post;
 import com.example.tounesna.model.Volunteer;
 import com.example.tounesna.util.FirebaseManager;
+import com.example.tounesna.util.OrganizationSearchIndex;
+import com.example.tounesna.util.OrganizationTrie;
+import com.example.tounesna.util.SnapshotDecoder;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.ValueEventListener;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SearchController {
     private static final String TAG = "SearchController";
     
+    public static final int AUTOCOMPLETE_SIZE = 8;
+    private static final int SEARCH_LIMIT = 100;
+    
+    // Live organization index for autocomplete and listing, main-thread only like the child events that feed it
+    private static final OrganizationTrie ORGANIZATION_INDEX = new OrganizationTrie(AUTOCOMPLETE_SIZE);
+    // Inverted index behind searchOrganizations, touched only on SEARCH_EXECUTOR
+    private static final OrganizationSearchIndex SEARCH_INDEX = new OrganizationSearchIndex();
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static ChildEventListener organizationIndexListener;
+    private static boolean organizationIndexReady = false;
+    private static final List<PendingRequest> pendingRequests = new ArrayList<>();
+    
     public interface OrganizationsCallback {
         void onSuccess(List<Organization> organizations);
         void onError(String message);
@@ -25,34 +47,53 @@ public class SearchController {
         void onError(String message);
     }
     
+    private static class PendingRequest {
+        final Runnable request;
+        final OrganizationsCallback callback;
+        
+        PendingRequest(Runnable request, OrganizationsCallback callback) {
+            this.request = request;
+            this.callback = callback;
+        }
+    }
+    
+    /**
+     * Search organizations held by the live index: every term of the keyword inside a
+     * word of name, description, location or tags, ignoring case and accents. The 100
+     * best matches by BM25, name and tags weighing most.
+     */
     public static void searchOrganizations(String keyword, OrganizationsCallback callback) {
-        FirebaseManager.getOrganizationsRef()
-            .addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    List<Organization> organizations = new ArrayList<>();
-                    for (DataSnapshot orgSnapshot : snapshot.getChildren()) {
-                        Organization org = AuthController.snapshotToOrganization(orgSnapshot);
-                        
-                        String name = org.getName() != null ? org.getName().toLowerCase() : "";
-                        String description = org.getDescription() != null ? org.getDescription().toLowerCase() : "";
-                        String location = org.getLocation() != null ? org.getLocation().toLowerCase() : "";
-                        String tags = org.getTags() != null ? String.join(" ", org.getTags()).toLowerCase() : "";
-                        String searchKeyword = keyword.toLowerCase();
-                        
-                        if (name.contains(searchKeyword) || description.contains(searchKeyword) || 
-                            location.contains(searchKeyword) || tags.contains(searchKeyword)) {
-                            organizations.add(org);
-                        }
-                    }
-                    callback.onSuccess(organizations);
-                }
-                
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    callback.onError(error.getMessage());
-                }
-            });
+        searchOrganizations(keyword, false, callback);
+    }
+    
+    /**
+     * Same as above; fuzzy also accepts organizations whose name, tags or location
+     * have a word a typo or two away from each query word ("Sfx", "educaton")
+     */
+    public static void searchOrganizations(String keyword, boolean fuzzy, OrganizationsCallback callback) {
+        // Only the organizations in the postings of every term are scored, on the index's thread
+        whenIndexed(() -> SEARCH_EXECUTOR.execute(() -> {
+            List<Organization> results = SEARCH_INDEX.search(keyword, fuzzy, SEARCH_LIMIT);
+            MAIN_HANDLER.post(() -> callback.onSuccess(results));
+        }), callback);
+    }
+    
+    /**
+     * Autocomplete: fill out with the best-rated, most-followed organizations whose
+     * name, a word of it or a tag starts with the prefix. Returns how many were written,
+     * none until the index has loaded. Allocates nothing, so it can run on every keystroke.
+     */
+    public static int completeOrganizations(CharSequence prefix, Organization[] out) {
+        attachOrganizationIndex();
+        return organizationIndexReady ? ORGANIZATION_INDEX.complete(prefix, out) : 0;
+    }
+    
+    /**
+     * The searchOrganizations filter: every term of the keyword inside a word of the
+     * name, description, location or tags, ignoring case and accents
+     */
+    public static boolean matchesOrganization(Organization org, String keyword) {
+        return OrganizationSearchIndex.matches(org, keyword);
     }
     
     public static void searchVolunteers(String keyword, VolunteersCallback callback) {
@@ -60,19 +101,25 @@ public class SearchController {
             .addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    List<Volunteer> volunteers = new ArrayList<>();
-                    for (DataSnapshot volSnapshot : snapshot.getChildren()) {
+                    String searchKeyword = keyword.toLowerCase();
+                    SnapshotDecoder.decodeChildren(snapshot, volSnapshot -> {
                         Volunteer volunteer = AuthController.snapshotToVolunteer(volSnapshot);
                         
                         String name = volunteer.getName() != null ? volunteer.getName().toLowerCase() : "";
                         String skills = volunteer.getSkills() != null ? String.join(" ", volunteer.getSkills()).toLowerCase() : "";
-                        String searchKeyword = keyword.toLowerCase();
                         
-                        if (name.contains(searchKeyword) || skills.contains(searchKeyword)) {
-                            volunteers.add(volunteer);
+                        return name.contains(searchKeyword) || skills.contains(searchKeyword) ? volunteer : null;
+                    }, new SnapshotDecoder.Callback<List<Volunteer>>() {
+                        @Override
+                        public void onDecoded(List<Volunteer> volunteers) {
+                            callback.onSuccess(volunteers);
                         }
-                    }
-                    callback.onSuccess(volunteers);
+                        
+                        @Override
+                        public void onError(String message) {
+                            callback.onError(message);
+                        }
+                    });
                 }
                 
                 @Override
@@ -82,26 +129,122 @@ public class SearchController {
             });
     }
     
+    /**
+     * Approved organizations from the live index, sorted by name
+     */
     public static void getAllOrganizations(OrganizationsCallback callback) {
-        FirebaseManager.getOrganizationsRef()
-            .addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    List<Organization> organizations = new ArrayList<>();
-                    for (DataSnapshot orgSnapshot : snapshot.getChildren()) {
-                        Organization org = AuthController.snapshotToOrganization(orgSnapshot);
-                        // Only return approved organizations
-                        if (org.isApproved()) {
-                            organizations.add(org);
-                        }
-                    }
-                    callback.onSuccess(organizations);
+        whenIndexed(() -> {
+            List<Organization> results = new ArrayList<>();
+            for (Organization org : ORGANIZATION_INDEX.getAll()) {
+                // Only return approved organizations
+                if (org.isApproved()) {
+                    results.add(org);
                 }
-                
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    callback.onError(error.getMessage());
-                }
-            });
+            }
+            callback.onSuccess(sortedByName(results));
+        }, callback);
+    }
+    
+    private static void whenIndexed(Runnable request, OrganizationsCallback callback) {
+        attachOrganizationIndex();
+        if (!organizationIndexReady) {
+            pendingRequests.add(new PendingRequest(request, callback));
+            return;
+        }
+        request.run();
+    }
+    
+    private static List<Organization> sortedByName(List<Organization> organizations) {
+        Collections.sort(organizations, (o1, o2) -> {
+            String name1 = o1.getName() != null ? o1.getName() : "";
+            String name2 = o2.getName() != null ? o2.getName() : "";
+            return name1.compareToIgnoreCase(name2);
+        });
+        return Collections.unmodifiableList(organizations);
+    }
+    
+    /**
+     * Keep the organization index current from a child listener. As with the post
+     * search index, the value event of the first load follows its child events, so
+     * requests waiting on the index are answered once it arrives.
+     */
+    public static void attachOrganizationIndex() {
+        if (organizationIndexListener != null) {
+            return;
+        }
+        DatabaseReference organizationsRef = FirebaseManager.getOrganizationsRef();
+        organizationIndexListener = organizationsRef.addChildEventListener(new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                indexOrganization(AuthController.snapshotToOrganization(snapshot));
+            }
+            
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+                indexOrganization(AuthController.snapshotToOrganization(snapshot));
+            }
+            
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                String organizationId = snapshot.getKey();
+                ORGANIZATION_INDEX.remove(organizationId);
+                SEARCH_EXECUTOR.execute(() -> SEARCH_INDEX.remove(organizationId));
+            }
+            
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+                // Order is not indexed
+            }
+            
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                detachOrganizationIndex(error.getMessage());
+            }
+        });
+        organizationsRef.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                // Queued behind the search index updates of the same load
+                SEARCH_EXECUTOR.execute(() -> MAIN_HANDLER.post(() -> {
+                    if (organizationIndexListener == null) {
+                        return;
+                    }
+                    Log.d(TAG, "✅ Organization index ready: " + ORGANIZATION_INDEX.size() + " organizations");
+                    organizationIndexReady = true;
+                    for (PendingRequest pending : pendingRequests) {
+                        pending.request.run();
+                    }
+                    pendingRequests.clear();
+                }));
+            }
+            
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                detachOrganizationIndex(error.getMessage());
+            }
+        });
+    }
+    
+    private static void indexOrganization(Organization org) {
+        if (org.getId() == null) {
+            return;
+        }
+        ORGANIZATION_INDEX.put(org);
+        SEARCH_EXECUTOR.execute(() -> SEARCH_INDEX.put(org));
+    }
+    
+    private static void detachOrganizationIndex(String message) {
+        Log.e(TAG, "❌ Organization index listener cancelled: " + message);
+        if (organizationIndexListener != null) {
+            FirebaseManager.getOrganizationsRef().removeEventListener(organizationIndexListener);
+            organizationIndexListener = null;
+        }
+        organizationIndexReady = false;
+        ORGANIZATION_INDEX.clear();
+        SEARCH_EXECUTOR.execute(SEARCH_INDEX::clear);
+        for (PendingRequest pending : pendingRequests) {
+            pending.callback.onError(message);
+        }
+        pendingRequests.clear();
     }
 }
@@ -4,7 +4,9 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import com.example.tounesna.model.Notification;
 import com.example.tounesna.model.VolunteerRequest;
+import com.example.tounesna.model.codec.VolunteerRequestCodec;
 import com.example.tounesna.util.FirebaseManager;
+import com.example.tounesna.util.SnapshotDecoder;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.Query;
@@ -96,29 +98,62 @@ public class VolunteerRequestController {
     public static void getRequestsForOrganization(String organizationId, RequestsCallback callback) {
         Log.d(TAG, "📥 Fetching requests for organization: " + organizationId);
         
-        // TEMPORARY: Using manual filter until Firebase indexing is complete
-        // This fetches all requests and filters client-side to work around indexing delays
-        Log.d(TAG, "⚠️ Using manual filter (fallback) due to Firebase indexing delay");
-        fetchAllAndFilter(organizationId, callback);
+        // Indexed query: cost depends on this organization's requests only
+        // (needs ".indexOn": "organizationId" on volunteer_requests, see database.rules.json)
+        Query query = FirebaseManager.getVolunteerRequestsRef()
+            .orderByChild("organizationId")
+            .equalTo(organizationId);
+        
+        query.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                SnapshotDecoder.decodeChildren(snapshot, VolunteerRequestController::snapshotToRequest,
+                    new SnapshotDecoder.Callback<List<VolunteerRequest>>() {
+                        @Override
+                        public void onDecoded(List<VolunteerRequest> requests) {
+                            Log.d(TAG, "✅ Loaded " + requests.size() + " requests for organization " + organizationId);
+                            callback.onSuccess(requests);
+                        }
+                        
+                        @Override
+                        public void onError(String message) {
+                            callback.onError(message);
+                        }
+                    });
+            }
+            
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.w(TAG, "⚠️ Indexed request query failed, using full scan: " + error.getMessage());
+                fetchAllAndFilter(organizationId, callback);
+            }
+        });
     }
     
+    /**
+     * Fallback full scan of volunteer_requests, only used when the indexed query is rejected
+     */
     private static void fetchAllAndFilter(String organizationId, RequestsCallback callback) {
         FirebaseManager.getVolunteerRequestsRef().addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                List<VolunteerRequest> requests = new ArrayList<>();
                 Log.d(TAG, "Fetching all " + snapshot.getChildrenCount() + " requests for manual filtering");
-                
-                for (DataSnapshot requestSnapshot : snapshot.getChildren()) {
-                    VolunteerRequest request = snapshotToRequest(requestSnapshot);
-                    if (organizationId.equals(request.getOrganizationId())) {
-                        requests.add(request);
-                        Log.d(TAG, "  ✓ Matched: " + request.getId() + " - " + request.getTitle());
+                SnapshotDecoder.decodeChildren(snapshot, requestSnapshot -> {
+                    // Compare the raw ID first so non-matching requests are never decoded
+                    Object oidObj = requestSnapshot.child("organizationId").getValue();
+                    return organizationId.equals(organizationKey(oidObj)) ? snapshotToRequest(requestSnapshot) : null;
+                }, new SnapshotDecoder.Callback<List<VolunteerRequest>>() {
+                    @Override
+                    public void onDecoded(List<VolunteerRequest> requests) {
+                        Log.d(TAG, "✅ Manually filtered " + requests.size() + " requests");
+                        callback.onSuccess(requests);
                     }
-                }
-                
-                Log.d(TAG, "✅ Manually filtered " + requests.size() + " requests");
-                callback.onSuccess(requests);
+                    
+                    @Override
+                    public void onError(String message) {
+                        callback.onError(message);
+                    }
+                });
             }
             
             @Override
@@ -129,6 +164,13 @@ public class VolunteerRequestController {
         });
     }
     
+    /**
+     * Stored organizationId as a String; legacy rows hold numeric IDs
+     */
+    static String organizationKey(Object oidObj) {
+        return (oidObj instanceof String) ? (String) oidObj : String.valueOf(oidObj);
+    }
+    
     public static void getRequestsByVolunteer(String volunteerId, RequestsCallback callback) {
         Query query = FirebaseManager.getVolunteerRequestsRef()
             .orderByChild("volunteerId")
@@ -137,12 +179,18 @@ public class VolunteerRequestController {
         query.addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                List<VolunteerRequest> requests = new ArrayList<>();
-                for (DataSnapshot requestSnapshot : snapshot.getChildren()) {
-                    VolunteerRequest request = snapshotToRequest(requestSnapshot);
-                    requests.add(request);
-                }
-                callback.onSuccess(requests);
+                SnapshotDecoder.decodeChildren(snapshot, VolunteerRequestController::snapshotToRequest,
+                    new SnapshotDecoder.Callback<List<VolunteerRequest>>() {
+                        @Override
+                        public void onDecoded(List<VolunteerRequest> requests) {
+                            callback.onSuccess(requests);
+                        }
+                        
+                        @Override
+                        public void onError(String message) {
+                            callback.onError(message);
+                        }
+                    });
             }
             
             @Override
@@ -307,53 +355,6 @@ public class VolunteerRequestController {
     }
     
     private static VolunteerRequest snapshotToRequest(DataSnapshot snapshot) {
-        VolunteerRequest request = new VolunteerRequest();
-        // Handle both String and Long IDs
-        Object idObj = snapshot.child("id").getValue();
-        request.setId((idObj instanceof String) ? (String) idObj : String.valueOf(idObj));
-        
-        Object vidObj = snapshot.child("volunteerId").getValue();
-        request.setVolunteerId((vidObj instanceof String) ? (String) vidObj : String.valueOf(vidObj));
-        
-        Object oidObj = snapshot.child("organizationId").getValue();
-        request.setOrganizationId((oidObj instanceof String) ? (String) oidObj : String.valueOf(oidObj));
-        
-        Object pidObj = snapshot.child("postId").getValue();
-        request.setPostId((pidObj instanceof String) ? (String) pidObj : String.valueOf(pidObj));
-        
-        // Read title, description, location
-        request.setTitle(snapshot.child("title").getValue(String.class));
-        request.setDescription(snapshot.child("description").getValue(String.class));
-        request.setLocation(snapshot.child("location").getValue(String.class));
-        request.setMessage(snapshot.child("message").getValue(String.class));
-        request.setImageUrl(snapshot.child("imageUrl").getValue(String.class));
-        request.setStatus(snapshot.child("status").getValue(String.class));
-        
-        // Read priority
-        String priorityStr = snapshot.child("priority").getValue(String.class);
-        if (priorityStr != null) {
-            try {
-                request.setPriority(com.example.tounesna.model.Priority.valueOf(priorityStr));
-            } catch (IllegalArgumentException e) {
-                request.setPriority(com.example.tounesna.model.Priority.MEDIUM);
-            }
-        }
-        
-        // Read needs list
-        if (snapshot.child("needs").exists()) {
-            List<String> needs = new ArrayList<>();
-            for (DataSnapshot needSnapshot : snapshot.child("needs").getChildren()) {
-                String need = needSnapshot.getValue(String.class);
-                if (need != null) {
-                    needs.add(need);
-                }
-            }
-            request.setNeeds(needs);
-        }
-        
-        Long createdAt = snapshot.child("createdAt").getValue(Long.class);
-        if (createdAt != null) request.setCreatedAt(createdAt);
-        
-        return request;
+        return VolunteerRequestCodec.INSTANCE.decode(snapshot);
     }
 }
@@ -45,6 +45,29 @@ public class Post extends BaseEntity {
         this.organization = organization;
     }
     
+    /**
+     * Copy of another post, so a cached instance can be handed out and decorated without being changed
+     */
+    public Post(Post other) {
+        setId(other.getId());
+        setCreatedAt(other.getCreatedAt());
+        setUpdatedAt(other.getUpdatedAt());
+        setDeleted(other.isDeleted());
+        this.title = other.title;
+        this.description = other.description;
+        this.imageUrl = other.imageUrl;
+        this.location = other.location;
+        this.startDate = other.startDate;
+        this.endDate = other.endDate;
+        this.volunteersNeeded = other.volunteersNeeded;
+        this.category = other.category;
+        this.priority = other.priority;
+        this.needs = other.needs != null ? new ArrayList<>(other.needs) : null;
+        this.organization = other.organization;
+        this.organizationId = other.organizationId;
+        this.organizationName = other.organizationName;
+    }
+    
     // Getters and Setters
     public String getTitle() {
         return title;
@@ -0,0 +1,151 @@
+package com.example.tounesna.model.codec;
+
+import com.example.tounesna.model.BaseEntity;
+import com.google.firebase.database.DataSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EntityCodec - Single-pass conversion between an entity and its Firebase fields
+ * Decoding walks the stored children once and routes each key through one switch,
+ * shared by the DataSnapshot and Map inputs, so the two paths cannot drift apart.
+ * Encoding produces the Map written with setValue/updateChildren.
+ */
+public abstract class EntityCodec<T extends BaseEntity> {
+    
+    protected abstract T newInstance();
+    
+    /**
+     * Apply one stored field to the entity; keys the entity does not know are ignored
+     */
+    protected abstract void decodeField(T entity, String key, Object value);
+    
+    protected abstract void encodeFields(T entity, Map<String, Object> map);
+    
+    /**
+     * Called once every field is applied, for values that depend on several fields
+     */
+    protected void afterDecode(T entity) {
+    }
+    
+    public T decode(DataSnapshot snapshot) {
+        T entity = newInstance();
+        for (DataSnapshot child : snapshot.getChildren()) {
+            decodeBaseOrField(entity, child.getKey(), child.getValue());
+        }
+        if (entity.getId() == null) {
+            entity.setId(snapshot.getKey());
+        }
+        afterDecode(entity);
+        return entity;
+    }
+    
+    public T decode(Map<String, Object> map) {
+        T entity = newInstance();
+        for (Map.Entry<String, Object> field : map.entrySet()) {
+            decodeBaseOrField(entity, field.getKey(), field.getValue());
+        }
+        afterDecode(entity);
+        return entity;
+    }
+    
+    public Map<String, Object> encode(T entity) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", entity.getId());
+        map.put("createdAt", entity.getCreatedAt());
+        map.put("updatedAt", entity.getUpdatedAt());
+        if (entity.isDeleted()) {
+            map.put("deleted", true);
+        }
+        encodeFields(entity, map);
+        return map;
+    }
+    
+    private void decodeBaseOrField(T entity, String key, Object value) {
+        switch (key) {
+            case "id":
+                entity.setId(asString(value));
+                break;
+            case "createdAt":
+                entity.setCreatedAt(asLong(value));
+                break;
+            case "updatedAt":
+                entity.setUpdatedAt(asLong(value));
+                break;
+            case "deleted":
+            case "isDeleted":
+                entity.setDeleted(asBoolean(value, false));
+                break;
+            default:
+                decodeField(entity, key, value);
+        }
+    }
+    
+    // Coercions for values as Firebase returns them: String, Long, Double, Boolean, List or Map
+    
+    /**
+     * IDs were stored as numbers by older builds, accept both
+     */
+    protected static String asString(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        return String.valueOf(value);
+    }
+    
+    protected static Long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+    
+    protected static int asInt(Object value, int fallback) {
+        return value instanceof Number ? ((Number) value).intValue() : fallback;
+    }
+    
+    protected static Double asDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+    }
+    
+    protected static boolean asBoolean(Object value, boolean fallback) {
+        return value instanceof Boolean ? (Boolean) value : fallback;
+    }
+    
+    /**
+     * Lists come back as a List, or as a Map keyed by index when the array is sparse
+     */
+    protected static List<String> asStringList(Object value) {
+        List<String> list = new ArrayList<>();
+        Collection<?> items = null;
+        if (value instanceof List) {
+            items = (List<?>) value;
+        } else if (value instanceof Map) {
+            items = ((Map<?, ?>) value).values();
+        }
+        if (items != null) {
+            for (Object item : items) {
+                if (item instanceof String) {
+                    list.add((String) item);
+                }
+            }
+        }
+        return list;
+    }
+    
+    protected static <E extends Enum<E>> E asEnum(Class<E> type, Object value, E fallback) {
+        if (!(value instanceof String)) {
+            return fallback;
+        }
+        try {
+            return Enum.valueOf(type, (String) value);
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+    
+    protected static String enumName(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+}
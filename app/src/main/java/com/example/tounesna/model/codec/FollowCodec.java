@@ -0,0 +1,36 @@
+package com.example.tounesna.model.codec;
+
+import com.example.tounesna.model.Follow;
+
+import java.util.Map;
+
+/**
+ * FollowCodec - Fields of follows/{volunteerId_organizationId}
+ */
+public class FollowCodec extends EntityCodec<Follow> {
+    
+    public static final FollowCodec INSTANCE = new FollowCodec();
+    
+    @Override
+    protected Follow newInstance() {
+        return new Follow();
+    }
+    
+    @Override
+    protected void decodeField(Follow follow, String key, Object value) {
+        switch (key) {
+            case "volunteerId":
+                follow.setVolunteerId(asString(value));
+                break;
+            case "organizationId":
+                follow.setOrganizationId(asString(value));
+                break;
+        }
+    }
+    
+    @Override
+    protected void encodeFields(Follow follow, Map<String, Object> map) {
+        map.put("volunteerId", follow.getVolunteerId());
+        map.put("organizationId", follow.getOrganizationId());
+    }
+}
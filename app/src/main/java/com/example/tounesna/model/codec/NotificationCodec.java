@@ -0,0 +1,68 @@
+package com.example.tounesna.model.codec;
+
+import com.example.tounesna.model.Notification;
+
+import java.util.Map;
+
+/**
+ * NotificationCodec - Fields of user_notifications/{userId}/{id}
+ */
+public class NotificationCodec extends EntityCodec<Notification> {
+    
+    public static final NotificationCodec INSTANCE = new NotificationCodec();
+    
+    @Override
+    protected Notification newInstance() {
+        return new Notification();
+    }
+    
+    @Override
+    protected void decodeField(Notification notification, String key, Object value) {
+        switch (key) {
+            case "userId":
+                notification.setUserId(asString(value));
+                break;
+            case "userType":
+                notification.setUserType(asString(value));
+                break;
+            case "type":
+                notification.setType(asString(value));
+                break;
+            case "title":
+                notification.setTitle(asString(value));
+                break;
+            case "message":
+                notification.setMessage(asString(value));
+                break;
+            case "isRead":
+                notification.setRead(asBoolean(value, false));
+                break;
+            case "relatedPostId":
+                notification.setRelatedPostId(asString(value));
+                break;
+            case "relatedRequestId":
+                notification.setRelatedRequestId(asString(value));
+                break;
+            case "relatedOrganizationId":
+                notification.setRelatedOrganizationId(asString(value));
+                break;
+            case "relatedVolunteerId":
+                notification.setRelatedVolunteerId(asString(value));
+                break;
+        }
+    }
+    
+    @Override
+    protected void encodeFields(Notification notification, Map<String, Object> map) {
+        map.put("userId", notification.getUserId());
+        map.put("userType", notification.getUserType());
+        map.put("type", notification.getType());
+        map.put("title", notification.getTitle());
+        map.put("message", notification.getMessage());
+        map.put("isRead", notification.isRead());
+        map.put("relatedPostId", notification.getRelatedPostId());
+        map.put("relatedRequestId", notification.getRelatedRequestId());
+        map.put("relatedOrganizationId", notification.getRelatedOrganizationId());
+        map.put("relatedVolunteerId", notification.getRelatedVolunteerId());
+    }
+}
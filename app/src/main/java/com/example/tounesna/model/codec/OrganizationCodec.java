@@ -0,0 +1,136 @@
+package com.example.tounesna.model.codec;
+
+import com.example.tounesna.model.Organization;
+import com.google.firebase.database.DataSnapshot;
+
+import java.util.Map;
+
+/**
+ * OrganizationCodec - Fields of organizations/{id}
+ * The rating shown to users is derived from the ratingAggregate child maintained by
+ * RatingController; the flat rating/ratingCount fields are only a fallback for
+ * organizations that have no aggregate yet.
+ */
+public class OrganizationCodec extends EntityCodec<Organization> {
+    
+    public static final OrganizationCodec INSTANCE = new OrganizationCodec();
+    
+    public static final String RATING_AGGREGATE = "ratingAggregate";
+    
+    @Override
+    protected Organization newInstance() {
+        return new Organization();
+    }
+    
+    @Override
+    public Organization decode(DataSnapshot snapshot) {
+        Organization org = super.decode(snapshot);
+        applyRatingAggregate(org, snapshot.child(RATING_AGGREGATE).getValue());
+        return org;
+    }
+    
+    @Override
+    public Organization decode(Map<String, Object> map) {
+        Organization org = super.decode(map);
+        applyRatingAggregate(org, map.get(RATING_AGGREGATE));
+        return org;
+    }
+    
+    @Override
+    protected void decodeField(Organization org, String key, Object value) {
+        switch (key) {
+            case "name":
+                org.setName(asString(value));
+                break;
+            case "domain":
+                org.setDomain(asString(value));
+                break;
+            case "location":
+                org.setLocation(asString(value));
+                break;
+            case "website":
+                org.setWebsite(asString(value));
+                break;
+            case "email":
+                org.setEmail(asString(value));
+                break;
+            case "phone":
+                org.setPhone(asString(value));
+                break;
+            case "password":
+                org.setPassword(asString(value));
+                break;
+            case "profilePictureUrl":
+                org.setProfilePictureUrl(asString(value));
+                break;
+            case "description":
+                org.setDescription(asString(value));
+                break;
+            case "registrationNumber":
+                org.setRegistrationNumber(asString(value));
+                break;
+            case "memberCount":
+                org.setMemberCount(asInt(value, 0));
+                break;
+            case "foundedYear":
+                org.setFoundedYear(asInt(value, 0));
+                break;
+            case "isApproved":
+                org.setApproved(asBoolean(value, false));
+                break;
+            case "followersCount":
+                org.setFollowersCount(asInt(value, 0));
+                break;
+            case "tags":
+                org.setTags(asStringList(value));
+                break;
+            case "rating":
+                Double rating = asDouble(value);
+                if (rating != null) org.setRating(rating);
+                break;
+            case "ratingCount":
+            case "totalRatings":
+                // Older builds wrote the count under totalRatings and left ratingCount at 0
+                org.setRatingCount(Math.max(org.getRatingCount(), asInt(value, 0)));
+                break;
+        }
+    }
+    
+    @Override
+    protected void encodeFields(Organization org, Map<String, Object> map) {
+        map.put("name", org.getName());
+        map.put("domain", org.getDomain());
+        map.put("location", org.getLocation());
+        map.put("website", org.getWebsite());
+        map.put("email", org.getEmail());
+        map.put("phone", org.getPhone());
+        map.put("password", org.getPassword());
+        map.put("profilePictureUrl", org.getProfilePictureUrl());
+        map.put("description", org.getDescription());
+        map.put("registrationNumber", org.getRegistrationNumber());
+        map.put("memberCount", org.getMemberCount());
+        map.put("foundedYear", org.getFoundedYear());
+        map.put("isApproved", org.isApproved());
+        map.put("rating", org.getRating());
+        map.put("ratingCount", org.getRatingCount());
+        map.put("followersCount", org.getFollowersCount());
+        map.put("tags", org.getTags());
+    }
+    
+    /**
+     * Derive rating and ratingCount from a ratingAggregate value ({sum, count, histogram})
+     */
+    public static void applyRatingAggregate(Organization org, Object aggregate) {
+        if (!(aggregate instanceof Map)) {
+            return;
+        }
+        Map<?, ?> fields = (Map<?, ?>) aggregate;
+        Long count = asLong(fields.get("count"));
+        if (count == null || count <= 0) {
+            return;
+        }
+        Double sum = asDouble(fields.get("sum"));
+        org.setRatingCount(count.intValue());
+        org.setRating(sum != null ? sum / count : 0.0);
+    }
+}
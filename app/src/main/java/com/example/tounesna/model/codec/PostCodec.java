@@ -0,0 +1,130 @@
+package com.example.tounesna.model.codec;
+
+import com.example.tounesna.model.Organization;
+import com.example.tounesna.model.Post;
+import com.example.tounesna.model.PostCategory;
+import com.example.tounesna.model.Priority;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * PostCodec - Fields of posts/{id}, including the embedded organization summary
+ */
+public class PostCodec extends EntityCodec<Post> {
+    
+    public static final PostCodec INSTANCE = new PostCodec();
+    
+    public static final String ORGANIZATION_SUMMARY = "organizationSummary";
+    
+    @Override
+    protected Post newInstance() {
+        return new Post();
+    }
+    
+    @Override
+    protected void decodeField(Post post, String key, Object value) {
+        switch (key) {
+            case "organizationId":
+                post.setOrganizationId(asString(value));
+                break;
+            case "title":
+                post.setTitle(asString(value));
+                break;
+            case "description":
+                post.setDescription(asString(value));
+                break;
+            case "imageUrl":
+                post.setImageUrl(validImageUrl(asString(value)));
+                break;
+            case "location":
+                post.setLocation(asString(value));
+                break;
+            case "startDate":
+                post.setStartDate(asLong(value));
+                break;
+            case "endDate":
+                post.setEndDate(asLong(value));
+                break;
+            case "volunteersNeeded":
+                post.setVolunteersNeeded(asInt(value, 0));
+                break;
+            case "category":
+                post.setCategory(asEnum(PostCategory.class, value, null));
+                break;
+            case "priority":
+                post.setPriority(asEnum(Priority.class, value, Priority.MEDIUM));
+                break;
+            case "needs":
+                post.setNeeds(asStringList(value));
+                break;
+            case ORGANIZATION_SUMMARY:
+                decodeOrganizationSummary(post, value);
+                break;
+        }
+    }
+    
+    @Override
+    protected void afterDecode(Post post) {
+        // Map input has no key order, so the summary may be decoded before organizationId
+        if (post.getOrganization() != null) {
+            post.getOrganization().setId(post.getOrganizationId());
+        }
+    }
+    
+    @Override
+    protected void encodeFields(Post post, Map<String, Object> map) {
+        map.put("organizationId", post.getOrganizationId());
+        map.put("title", post.getTitle());
+        map.put("description", post.getDescription());
+        map.put("imageUrl", post.getImageUrl());
+        map.put("location", post.getLocation());
+        map.put("startDate", post.getStartDate());
+        map.put("endDate", post.getEndDate());
+        map.put("volunteersNeeded", post.getVolunteersNeeded());
+        map.put("category", enumName(post.getCategory()));
+        map.put("priority", post.getPriority() != null ? post.getPriority().name() : Priority.MEDIUM.name());
+        map.put("needs", post.getNeeds());
+        if (post.getOrganization() != null) {
+            map.put(ORGANIZATION_SUMMARY, encodeOrganizationSummary(post.getOrganization()));
+        }
+    }
+    
+    /**
+     * Compact copy of the author organization, enough to render a feed row
+     */
+    public static Map<String, Object> encodeOrganizationSummary(Organization org) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("name", org.getName());
+        summary.put("profilePictureUrl", org.getProfilePictureUrl());
+        summary.put("rating", org.getRating());
+        summary.put("ratingCount", org.getRatingCount());
+        return summary;
+    }
+    
+    private static void decodeOrganizationSummary(Post post, Object value) {
+        if (!(value instanceof Map)) {
+            return;
+        }
+        Map<?, ?> summary = (Map<?, ?>) value;
+        Organization org = new Organization();
+        org.setName(asString(summary.get("name")));
+        org.setProfilePictureUrl(asString(summary.get("profilePictureUrl")));
+        Double rating = asDouble(summary.get("rating"));
+        if (rating != null) org.setRating(rating);
+        org.setRatingCount(asInt(summary.get("ratingCount"), 0));
+        post.setOrganization(org);
+        post.setOrganizationName(org.getName());
+    }
+    
+    /**
+     * Base64 data URLs and search-result pages were saved by older builds and cannot be loaded
+     */
+    private static String validImageUrl(String imageUrl) {
+        if (imageUrl == null || imageUrl.startsWith("data:")
+                || imageUrl.contains("google.com/search") || imageUrl.contains("bing.com/images/search")) {
+            return null;
+        }
+        return imageUrl;
+    }
+}
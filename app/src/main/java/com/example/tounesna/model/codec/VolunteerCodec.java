@@ -0,0 +1,81 @@
+package com.example.tounesna.model.codec;
+
+import com.example.tounesna.model.Volunteer;
+
+import java.util.Map;
+
+/**
+ * VolunteerCodec - Fields of volunteers/{id}
+ */
+public class VolunteerCodec extends EntityCodec<Volunteer> {
+    
+    public static final VolunteerCodec INSTANCE = new VolunteerCodec();
+    
+    @Override
+    protected Volunteer newInstance() {
+        return new Volunteer();
+    }
+    
+    @Override
+    protected void decodeField(Volunteer volunteer, String key, Object value) {
+        switch (key) {
+            case "name":
+                volunteer.setName(asString(value));
+                break;
+            case "surname":
+                volunteer.setSurname(asString(value));
+                break;
+            case "email":
+                volunteer.setEmail(asString(value));
+                break;
+            case "phone":
+                volunteer.setPhone(asString(value));
+                break;
+            case "password":
+                volunteer.setPassword(asString(value));
+                break;
+            case "profilePictureUrl":
+                volunteer.setProfilePictureUrl(asString(value));
+                break;
+            case "location":
+                volunteer.setLocation(asString(value));
+                break;
+            case "dateOfBirth":
+                volunteer.setDateOfBirth(asString(value));
+                break;
+            case "rating":
+                Double rating = asDouble(value);
+                if (rating != null) volunteer.setRating(rating);
+                break;
+            case "ratingCount":
+                volunteer.setRatingCount(asInt(value, 0));
+                break;
+            case "interests":
+                volunteer.setInterests(asStringList(value));
+                break;
+            case "skills":
+                volunteer.setSkills(asStringList(value));
+                break;
+            case "availability":
+                volunteer.setAvailability(asStringList(value));
+                break;
+        }
+    }
+    
+    @Override
+    protected void encodeFields(Volunteer volunteer, Map<String, Object> map) {
+        map.put("name", volunteer.getName());
+        map.put("surname", volunteer.getSurname());
+        map.put("email", volunteer.getEmail());
+        map.put("phone", volunteer.getPhone());
+        map.put("password", volunteer.getPassword());
+        map.put("profilePictureUrl", volunteer.getProfilePictureUrl());
+        map.put("location", volunteer.getLocation());
+        map.put("dateOfBirth", volunteer.getDateOfBirth());
+        map.put("rating", volunteer.getRating());
+        map.put("ratingCount", volunteer.getRatingCount());
+        map.put("interests", volunteer.getInterests());
+        map.put("skills", volunteer.getSkills());
+        map.put("availability", volunteer.getAvailability());
+    }
+}
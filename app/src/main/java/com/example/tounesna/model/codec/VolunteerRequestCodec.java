@@ -0,0 +1,93 @@
+package com.example.tounesna.model.codec;
+
+import com.example.tounesna.model.Priority;
+import com.example.tounesna.model.VolunteerRequest;
+
+import java.util.Map;
+
+/**
+ * VolunteerRequestCodec - Fields of volunteer_requests/{id}
+ */
+public class VolunteerRequestCodec extends EntityCodec<VolunteerRequest> {
+    
+    public static final VolunteerRequestCodec INSTANCE = new VolunteerRequestCodec();
+    
+    @Override
+    protected VolunteerRequest newInstance() {
+        return new VolunteerRequest();
+    }
+    
+    @Override
+    protected void decodeField(VolunteerRequest request, String key, Object value) {
+        switch (key) {
+            case "volunteerId":
+                request.setVolunteerId(asString(value));
+                break;
+            case "organizationId":
+                request.setOrganizationId(asString(value));
+                break;
+            case "postId":
+                request.setPostId(asString(value));
+                break;
+            case "title":
+                request.setTitle(asString(value));
+                break;
+            case "description":
+                request.setDescription(asString(value));
+                break;
+            case "location":
+                request.setLocation(asString(value));
+                break;
+            case "message":
+                request.setMessage(asString(value));
+                break;
+            case "imageUrl":
+                request.setImageUrl(asString(value));
+                break;
+            case "status":
+                request.setStatus(asString(value));
+                break;
+            case "priority":
+                request.setPriority(asEnum(Priority.class, value, Priority.MEDIUM));
+                break;
+            case "needs":
+                request.setNeeds(asStringList(value));
+                break;
+            case "organizationIds":
+                request.setOrganizationIds(asStringList(value));
+                break;
+            case "sentToOrgIds":
+                request.setSentToOrgIds(asStringList(value));
+                break;
+            case "approvedByOrgId":
+                request.setApprovedByOrgId(asString(value));
+                break;
+            case "createdPostId":
+                request.setCreatedPostId(asString(value));
+                break;
+            case "volunteerName":
+                request.setVolunteerName(asString(value));
+                break;
+        }
+    }
+    
+    @Override
+    protected void encodeFields(VolunteerRequest request, Map<String, Object> map) {
+        map.put("volunteerId", request.getVolunteerId());
+        map.put("organizationId", request.getOrganizationId());
+        map.put("postId", request.getPostId());
+        map.put("title", request.getTitle());
+        map.put("description", request.getDescription());
+        map.put("location", request.getLocation());
+        map.put("message", request.getMessage());
+        map.put("imageUrl", request.getImageUrl());
+        map.put("status", request.getStatus());
+        map.put("priority", request.getPriority() != null ? request.getPriority().name() : Priority.MEDIUM.name());
+        map.put("needs", request.getNeeds());
+        map.put("organizationIds", request.getOrganizationIds());
+        map.put("sentToOrgIds", request.getSentToOrgIds());
+        map.put("approvedByOrgId", request.getApprovedByOrgId());
+        map.put("createdPostId", request.getCreatedPostId());
+        map.put("volunteerName", request.getVolunteerName());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.tounesna.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BatchLoader - Coalesces lookups by ID, DataLoader style
+ * Keys requested during the same main-loop pass are handed to the batch function
+ * together on the next pass, and a key that is already queued or in flight is
+ * not requested again: every caller waiting on it gets the same value instance.
+ */
+public class BatchLoader<V> {
+    
+    public interface Callback<V> {
+        void onLoaded(V value);
+        void onError(String message);
+    }
+    
+    /**
+     * Loads a set of keys and reports each one through the result exactly once
+     */
+    public interface BatchFunction<V> {
+        void load(Set<String> keys, BatchResult<V> result);
+    }
+    
+    public interface BatchResult<V> {
+        void resolve(String key, V value);
+        void reject(String key, String message);
+    }
+    
+    private final BatchFunction<V> batchFunction;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    
+    // Callers waiting per key, for keys that are queued or in flight
+    private final Map<String, List<Callback<V>>> waiting = new HashMap<>();
+    private final Set<String> queued = new LinkedHashSet<>();
+    private boolean dispatchScheduled = false;
+    
+    private final BatchResult<V> result = new BatchResult<V>() {
+        @Override
+        public void resolve(String key, V value) {
+            for (Callback<V> callback : takeWaiting(key)) {
+                callback.onLoaded(value);
+            }
+        }
+        
+        @Override
+        public void reject(String key, String message) {
+            for (Callback<V> callback : takeWaiting(key)) {
+                callback.onError(message);
+            }
+        }
+    };
+    
+    public BatchLoader(BatchFunction<V> batchFunction) {
+        this.batchFunction = batchFunction;
+    }
+    
+    public void load(String key, Callback<V> callback) {
+        synchronized (this) {
+            List<Callback<V>> callbacks = waiting.get(key);
+            if (callbacks != null) {
+                // Already queued or in flight, just wait for that lookup
+                callbacks.add(callback);
+                return;
+            }
+            callbacks = new ArrayList<>();
+            callbacks.add(callback);
+            waiting.put(key, callbacks);
+            queued.add(key);
+            
+            if (dispatchScheduled) {
+                return;
+            }
+            dispatchScheduled = true;
+        }
+        handler.post(this::dispatch);
+    }
+    
+    private void dispatch() {
+        Set<String> keys;
+        synchronized (this) {
+            keys = new LinkedHashSet<>(queued);
+            queued.clear();
+            dispatchScheduled = false;
+        }
+        if (!keys.isEmpty()) {
+            batchFunction.load(keys, result);
+        }
+    }
+    
+    private synchronized List<Callback<V>> takeWaiting(String key) {
+        List<Callback<V>> callbacks = waiting.remove(key);
+        return callbacks != null ? callbacks : new ArrayList<>();
+    }
+}
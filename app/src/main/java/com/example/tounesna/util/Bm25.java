@@ -0,0 +1,92 @@
+package com.example.tounesna.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bm25 - Collection statistics and BM25 term scores with per-field boosts
+ * A document's fields are folded into one weighted term frequency and one weighted
+ * length (the BM25F simplification), so a word in a title counts as several words
+ * of description. Statistics are kept current as documents come and go.
+ * Not thread-safe: callers keep all access on one thread.
+ */
+public class Bm25 {
+    
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    
+    /**
+     * Weighted term frequencies and length of one document
+     */
+    public static final class Document {
+        private final Map<String, Float> weights = new HashMap<>();
+        private float length;
+        
+        public Document field(List<String> tokens, float boost) {
+            for (String token : tokens) {
+                Float weight = weights.get(token);
+                weights.put(token, weight == null ? boost : weight + boost);
+            }
+            length += boost * tokens.size();
+            return this;
+        }
+        
+        public Set<String> terms() {
+            return weights.keySet();
+        }
+        
+        public float weight(String term) {
+            Float weight = weights.get(term);
+            return weight != null ? weight : 0f;
+        }
+    }
+    
+    private final Map<String, Integer> documentFrequency = new HashMap<>();
+    private int documents;
+    private double totalLength;
+    
+    public void add(Document document) {
+        documents++;
+        totalLength += document.length;
+        for (String term : document.terms()) {
+            Integer count = documentFrequency.get(term);
+            documentFrequency.put(term, count == null ? 1 : count + 1);
+        }
+    }
+    
+    public void remove(Document document) {
+        documents--;
+        totalLength -= document.length;
+        for (String term : document.terms()) {
+            Integer count = documentFrequency.get(term);
+            if (count == null || count <= 1) {
+                documentFrequency.remove(term);
+            } else {
+                documentFrequency.put(term, count - 1);
+            }
+        }
+    }
+    
+    public void clear() {
+        documentFrequency.clear();
+        documents = 0;
+        totalLength = 0;
+    }
+    
+    /**
+     * Score of one term of the document; zero when the document lacks it
+     */
+    public double score(String term, Document document) {
+        float frequency = document.weight(term);
+        Integer df = documentFrequency.get(term);
+        if (frequency == 0f || df == null || documents == 0) {
+            return 0;
+        }
+        double idf = Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+        double averageLength = totalLength / documents;
+        double norm = K1 * (1 - B + B * (averageLength > 0 ? document.length / averageLength : 1));
+        return idf * frequency * (K1 + 1) / (frequency + norm);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.tounesna.util;
+
+import android.os.SystemClock;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * EntityCache - Size-bounded LRU cache of loaded entities keyed by ID
+ * Entries younger than the TTL are fresh. Older entries are still served for
+ * the stale window so the caller can show them while it revalidates, and are
+ * dropped after that. Hit, stale hit, miss and eviction counts are kept for tuning.
+ */
+public class EntityCache<V> {
+    
+    /**
+     * Result of a cache lookup: the cached value and whether it needs revalidating
+     */
+    public static class Lookup<V> {
+        private final V value;
+        private final boolean stale;
+        
+        Lookup(V value, boolean stale) {
+            this.value = value;
+            this.stale = stale;
+        }
+        
+        public V getValue() {
+            return value;
+        }
+        
+        public boolean isStale() {
+            return stale;
+        }
+    }
+    
+    private static class Entry<V> {
+        final V value;
+        final long storedAt;
+        
+        Entry(V value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+    
+    private final String name;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final LinkedHashMap<String, Entry<V>> entries;
+    
+    private long hits = 0;
+    private long staleHits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    
+    public EntityCache(String name, int maxEntries, long ttlMillis, long staleMillis) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.staleMillis = staleMillis;
+        // Access order, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() > EntityCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Look up an entity; returns null on a miss or when the entry is past its stale window
+     */
+    public synchronized Lookup<V> lookup(String key) {
+        if (key == null) {
+            return null;
+        }
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        
+        long age = SystemClock.elapsedRealtime() - entry.storedAt;
+        if (age <= ttlMillis) {
+            hits++;
+            return new Lookup<>(entry.value, false);
+        }
+        if (age <= ttlMillis + staleMillis) {
+            staleHits++;
+            return new Lookup<>(entry.value, true);
+        }
+        entries.remove(key);
+        misses++;
+        return null;
+    }
+    
+    public synchronized void put(String key, V value) {
+        if (key == null || value == null) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, SystemClock.elapsedRealtime()));
+    }
+    
+    public synchronized void invalidate(String key) {
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+    
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long getHitCount() {
+        return hits;
+    }
+    
+    public synchronized long getStaleHitCount() {
+        return staleHits;
+    }
+    
+    public synchronized long getMissCount() {
+        return misses;
+    }
+    
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+    
+    public synchronized String getStats() {
+        return name + ": " + entries.size() + "/" + maxEntries + " entries, "
+                + hits + " hits, " + staleHits + " stale hits, "
+                + misses + " misses, " + evictions + " evictions";
+    }
+}
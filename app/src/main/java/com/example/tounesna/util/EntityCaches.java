@@ -0,0 +1,41 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Organization;
+import com.example.tounesna.model.Post;
+import com.example.tounesna.model.Volunteer;
+
+/**
+ * EntityCaches - Process-wide entity caches shared by the controllers
+ */
+public final class EntityCaches {
+    
+    private static final long MINUTE = 60 * 1000L;
+    
+    // Posts change rarely once published; the feed keeps a page or two around
+    private static final EntityCache<Post> POSTS =
+            new EntityCache<>("posts", 300, 2 * MINUTE, 10 * MINUTE);
+    // Ratings and follower counts move, keep organizations fresh for less time
+    private static final EntityCache<Organization> ORGANIZATIONS =
+            new EntityCache<>("organizations", 100, MINUTE, 10 * MINUTE);
+    private static final EntityCache<Volunteer> VOLUNTEERS =
+            new EntityCache<>("volunteers", 50, 5 * MINUTE, 30 * MINUTE);
+    
+    private EntityCaches() {
+    }
+    
+    public static EntityCache<Post> posts() {
+        return POSTS;
+    }
+    
+    public static EntityCache<Organization> organizations() {
+        return ORGANIZATIONS;
+    }
+    
+    public static EntityCache<Volunteer> volunteers() {
+        return VOLUNTEERS;
+    }
+    
+    public static String getStats() {
+        return POSTS.getStats() + "\n" + ORGANIZATIONS.getStats() + "\n" + VOLUNTEERS.getStats();
+    }
+}
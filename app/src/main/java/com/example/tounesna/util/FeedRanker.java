@@ -0,0 +1,165 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Post;
+import com.example.tounesna.model.Priority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * FeedRanker - Orders feed posts for one volunteer
+ * A post scores for coming from a followed organization, for its priority, for
+ * being recent (the bonus halves every RECENCY_HALF_LIFE_MS), for taking place in
+ * the volunteer's city and for each need or category matching the volunteer's
+ * interests and skills. rank() keeps only the best k in a bounded heap.
+ * Not thread-safe: callers keep all access on one thread.
+ */
+public class FeedRanker {
+    
+    private static final double FOLLOW_WEIGHT = 3.0;
+    // Per priority step above LOW
+    private static final double PRIORITY_WEIGHT = 0.5;
+    private static final double RECENCY_WEIGHT = 2.0;
+    private static final long RECENCY_HALF_LIFE_MS = 3L * 24 * 60 * 60 * 1000;
+    private static final double LOCATION_WEIGHT = 1.5;
+    // Per matching need or category, up to MAX_OVERLAPS of them
+    private static final double OVERLAP_WEIGHT = 1.0;
+    private static final int MAX_OVERLAPS = 3;
+    
+    private static final class ScoredPost {
+        final Post post;
+        final double score;
+        
+        ScoredPost(Post post, double score) {
+            this.post = post;
+            this.score = score;
+        }
+    }
+    
+    // Best score first, then newest, then by id so the order is total
+    private static final Comparator<ScoredPost> BEST_FIRST = (a, b) -> {
+        int byScore = Double.compare(b.score, a.score);
+        if (byScore != 0) {
+            return byScore;
+        }
+        int byDate = Long.compare(createdAt(b.post), createdAt(a.post));
+        if (byDate != 0) {
+            return byDate;
+        }
+        return String.valueOf(a.post.getId()).compareTo(String.valueOf(b.post.getId()));
+    };
+    
+    private final Set<String> followedOrgIds;
+    private final String location;
+    // Folded terms of the volunteer's interests and skills
+    private final Set<String> interests = new HashSet<>();
+    // Locations and needs come from small vocabularies, so folding is cached
+    private final Map<String, String> folded = new HashMap<>();
+    
+    public FeedRanker(Collection<String> followedOrgIds, String location,
+                      Collection<String> interests, Collection<String> skills) {
+        this.followedOrgIds = followedOrgIds != null ? new HashSet<>(followedOrgIds) : new HashSet<>();
+        this.location = location != null && !location.trim().isEmpty() ? term(location) : null;
+        addTerms(interests);
+        addTerms(skills);
+    }
+    
+    public double score(Post post, long now) {
+        double score = 0;
+        if (followedOrgIds.contains(organizationId(post))) {
+            score += FOLLOW_WEIGHT;
+        }
+        Priority priority = post.getPriority();
+        if (priority != null) {
+            score += PRIORITY_WEIGHT * priority.ordinal();
+        }
+        if (post.getCreatedAt() != null) {
+            long age = Math.max(0, now - post.getCreatedAt());
+            score += RECENCY_WEIGHT * Math.pow(0.5, (double) age / RECENCY_HALF_LIFE_MS);
+        }
+        if (location != null && post.getLocation() != null && location.equals(cachedTerm(post.getLocation()))) {
+            score += LOCATION_WEIGHT;
+        }
+        if (!interests.isEmpty()) {
+            int overlaps = 0;
+            if (post.getCategory() != null && interests.contains(cachedTerm(post.getCategory().name()))) {
+                overlaps++;
+            }
+            if (post.getNeeds() != null) {
+                for (String need : post.getNeeds()) {
+                    if (overlaps >= MAX_OVERLAPS) {
+                        break;
+                    }
+                    if (need != null && interests.contains(cachedTerm(need))) {
+                        overlaps++;
+                    }
+                }
+            }
+            score += OVERLAP_WEIGHT * Math.min(overlaps, MAX_OVERLAPS);
+        }
+        return score;
+    }
+    
+    /**
+     * The k best candidates, best first
+     */
+    public List<Post> rank(Collection<Post> candidates, int k, long now) {
+        List<ScoredPost> scored = new ArrayList<>(candidates.size());
+        for (Post post : candidates) {
+            scored.add(new ScoredPost(post, score(post, now)));
+        }
+        List<Post> ranked = new ArrayList<>(Math.min(k, scored.size()));
+        for (ScoredPost best : TopK.select(scored, BEST_FIRST, k)) {
+            ranked.add(best.post);
+        }
+        return ranked;
+    }
+    
+    private void addTerms(Collection<String> texts) {
+        if (texts == null) {
+            return;
+        }
+        for (String text : texts) {
+            if (text != null && !text.trim().isEmpty()) {
+                interests.add(term(text));
+            }
+        }
+    }
+    
+    private String cachedTerm(String text) {
+        String term = folded.get(text);
+        if (term == null) {
+            term = term(text);
+            folded.put(text, term);
+        }
+        return term;
+    }
+    
+    /**
+     * Folded and trimmed, with a plural s dropped so "Events" meets EVENT
+     */
+    static String term(String text) {
+        String term = PostSearchIndex.fold(text.trim());
+        if (term.length() > 3 && term.endsWith("s")) {
+            term = term.substring(0, term.length() - 1);
+        }
+        return term;
+    }
+    
+    private static String organizationId(Post post) {
+        if (post.getOrganizationId() != null) {
+            return post.getOrganizationId();
+        }
+        return post.getOrganization() != null ? post.getOrganization().getId() : null;
+    }
+    
+    private static long createdAt(Post post) {
+        return post.getCreatedAt() != null ? post.getCreatedAt() : 0L;
+    }
+}
@@ -23,7 +23,10 @@ public class FirebaseManager {
     public static final String PATH_VOLUNTEER_REQUESTS = "volunteer_requests";
     public static final String PATH_FOLLOWS = "follows";
     public static final String PATH_NOTIFICATIONS = "notifications";
+    public static final String PATH_USER_NOTIFICATIONS = "user_notifications";
     public static final String PATH_POST_VIEWS = "post_views";
+    public static final String PATH_UNREAD_COUNTS = "unread_counts";
+    public static final String PATH_MIGRATIONS = "migrations";
     
     /**
      * Initialize Firebase Database
@@ -65,6 +68,13 @@ public class FirebaseManager {
         return database;
     }
     
+    /**
+     * Get reference to the database root, for multi-path updates
+     */
+    public static DatabaseReference getRootRef() {
+        return getDatabase().getReference();
+    }
+    
     /**
      * Get reference to volunteers path
      */
@@ -114,6 +124,13 @@ public class FirebaseManager {
         return getDatabase().getReference(PATH_NOTIFICATIONS);
     }
     
+    /**
+     * Get reference to one user's notification inbox
+     */
+    public static DatabaseReference getUserNotificationsRef(String userId) {
+        return getDatabase().getReference(PATH_USER_NOTIFICATIONS).child(userId);
+    }
+    
     /**
      * Get reference to post views path
      */
@@ -121,6 +138,20 @@ public class FirebaseManager {
         return getDatabase().getReference(PATH_POST_VIEWS);
     }
     
+    /**
+     * Get reference to per-user unread notification counters
+     */
+    public static DatabaseReference getUnreadCountsRef() {
+        return getDatabase().getReference(PATH_UNREAD_COUNTS);
+    }
+    
+    /**
+     * Get reference to the flags recording which data migrations have run
+     */
+    public static DatabaseReference getMigrationsRef() {
+        return getDatabase().getReference(PATH_MIGRATIONS);
+    }
+    
     /**
      * Generate unique ID
      */
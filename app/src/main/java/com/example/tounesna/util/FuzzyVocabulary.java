@@ -0,0 +1,175 @@
+package com.example.tounesna.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FuzzyVocabulary - Folded terms searchable by edit distance through a BK-tree
+ * A lookup only descends into subtrees whose distance band can hold a match, so
+ * it visits a small part of the vocabulary however large it grows. Terms are
+ * reference counted; a term whose count drops to zero stays in the tree but is
+ * skipped, and the tree is rebuilt once such terms outnumber the live ones.
+ * Not thread-safe: callers keep all access on one thread.
+ */
+public class FuzzyVocabulary {
+    
+    private static final class Node {
+        final String term;
+        // Child at index d lies at edit distance d from this term
+        Node[] children;
+        
+        Node(String term) {
+            this.term = term;
+        }
+    }
+    
+    private Node root;
+    private final Map<String, Integer> counts = new HashMap<>();
+    private int deadTerms;
+    
+    /**
+     * Edits tolerated for a query term: none for one or two letters,
+     * one up to six letters, two beyond
+     */
+    public static int maxDistance(String term) {
+        if (term.length() <= 2) {
+            return 0;
+        }
+        return term.length() <= 6 ? 1 : 2;
+    }
+    
+    public void add(String term) {
+        Integer count = counts.get(term);
+        counts.put(term, count == null ? 1 : count + 1);
+        if (count == null && !insert(term)) {
+            // Back from the dead: already in the tree
+            deadTerms--;
+        }
+    }
+    
+    public void remove(String term) {
+        Integer count = counts.get(term);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            counts.put(term, count - 1);
+            return;
+        }
+        counts.remove(term);
+        deadTerms++;
+        if (deadTerms > counts.size()) {
+            rebuild();
+        }
+    }
+    
+    public void clear() {
+        root = null;
+        counts.clear();
+        deadTerms = 0;
+    }
+    
+    public int size() {
+        return counts.size();
+    }
+    
+    /**
+     * Live terms within maxDistance(term) edits of the folded term, the term itself included
+     */
+    public List<String> near(String term) {
+        List<String> matches = new ArrayList<>();
+        int limit = maxDistance(term);
+        if (root == null) {
+            return matches;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(term, node.term);
+            if (distance <= limit && counts.containsKey(node.term)) {
+                matches.add(node.term);
+            }
+            if (node.children == null) {
+                continue;
+            }
+            // Triangle inequality: a match can only sit in children at distance - limit .. distance + limit
+            int from = Math.max(1, distance - limit);
+            int to = Math.min(node.children.length - 1, distance + limit);
+            for (int d = from; d <= to; d++) {
+                if (node.children[d] != null) {
+                    pending.push(node.children[d]);
+                }
+            }
+        }
+        return matches;
+    }
+    
+    /**
+     * Returns false when the term was already in the tree
+     */
+    private boolean insert(String term) {
+        if (root == null) {
+            root = new Node(term);
+            return true;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(term, node.term);
+            if (distance == 0) {
+                return false;
+            }
+            if (node.children == null || node.children.length <= distance) {
+                node.children = node.children == null
+                        ? new Node[distance + 1]
+                        : Arrays.copyOf(node.children, distance + 1);
+            }
+            if (node.children[distance] == null) {
+                node.children[distance] = new Node(term);
+                return true;
+            }
+            node = node.children[distance];
+        }
+    }
+    
+    private void rebuild() {
+        root = null;
+        deadTerms = 0;
+        for (String term : counts.keySet()) {
+            insert(term);
+        }
+    }
+    
+    /**
+     * Levenshtein distance over two rows
+     */
+    static int distance(String a, String b) {
+        if (a.length() < b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
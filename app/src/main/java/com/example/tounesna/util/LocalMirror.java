@@ -0,0 +1,418 @@
+package com.example.tounesna.util;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.tounesna.controller.FollowController;
+import com.example.tounesna.model.BaseEntity;
+import com.example.tounesna.model.Follow;
+import com.example.tounesna.model.Notification;
+import com.example.tounesna.model.Organization;
+import com.example.tounesna.model.Post;
+import com.example.tounesna.model.VolunteerRequest;
+import com.example.tounesna.model.codec.EntityCodec;
+import com.example.tounesna.model.codec.FollowCodec;
+import com.example.tounesna.model.codec.NotificationCodec;
+import com.example.tounesna.model.codec.OrganizationCodec;
+import com.example.tounesna.model.codec.PostCodec;
+import com.example.tounesna.model.codec.VolunteerRequestCodec;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * LocalMirror - SQLite copy of the nodes the screens open with
+ * Holds posts, organizations, and the signed-in user's follows, notifications and
+ * volunteer requests. Each row keeps the entity's encoded fields as JSON next to
+ * indexed columns for the filters and sort orders the activities use, so a cold
+ * start can render from disk before the network answers. Organizations are stored
+ * as their public projection only: password, email and phone never reach the disk.
+ * MirrorSync keeps it current.
+ */
+public class LocalMirror extends SQLiteOpenHelper {
+    
+    private static final String TAG = "LocalMirror";
+    private static final String DATABASE_NAME = "tounesna_mirror.db";
+    // 2: organizations and follows tables dropped, 3: both back, organizations without credentials
+    private static final int DATABASE_VERSION = 3;
+    
+    private static final String COLUMN_ID = "id";
+    private static final String COLUMN_DATA = "data";
+    public static final String COLUMN_VOLUNTEER_ID = "volunteer_id";
+    public static final String COLUMN_ORGANIZATION_ID = "organization_id";
+    
+    private static final String TABLE_SYNC_STATE = "sync_state";
+    
+    /**
+     * Mirrored table: the codec that stores an entity and the indexed columns taken from it
+     */
+    public static final class Table<T extends BaseEntity> {
+        private final String name;
+        private final EntityCodec<T> codec;
+        private final RowKey<T> rowKey;
+        private final ColumnMapper<T> columns;
+        // Encoded fields left out of the stored JSON
+        private final Set<String> privateFields;
+        
+        private Table(String name, EntityCodec<T> codec, ColumnMapper<T> columns) {
+            this(name, codec, BaseEntity::getId, columns);
+        }
+        
+        private Table(String name, EntityCodec<T> codec, RowKey<T> rowKey, ColumnMapper<T> columns,
+                      String... privateFields) {
+            this.name = name;
+            this.codec = codec;
+            this.rowKey = rowKey;
+            this.columns = columns;
+            this.privateFields = privateFields.length == 0
+                    ? Collections.emptySet()
+                    : new HashSet<>(Arrays.asList(privateFields));
+        }
+        
+        public EntityCodec<T> getCodec() {
+            return codec;
+        }
+    }
+    
+    private interface RowKey<T> {
+        String of(T entity);
+    }
+    
+    private interface ColumnMapper<T> {
+        void fill(T entity, ContentValues values);
+    }
+    
+    public interface Reader<R> {
+        R read(LocalMirror mirror);
+    }
+    
+    public interface ReadCallback<R> {
+        void onRead(R result);
+    }
+    
+    public static final Table<Post> POSTS = new Table<>("posts", PostCodec.INSTANCE, (post, values) -> {
+        values.put(COLUMN_ORGANIZATION_ID, post.getOrganizationId());
+        values.put("category", post.getCategory() != null ? post.getCategory().name() : null);
+        values.put("location", post.getLocation());
+        values.put("created_at", post.getCreatedAt());
+        values.put("deleted", post.isDeleted() ? 1 : 0);
+    });
+    
+    // Credentials and contact details stay on the server, only the public fields are stored
+    public static final Table<Organization> ORGANIZATIONS = new Table<>("organizations", OrganizationCodec.INSTANCE, BaseEntity::getId, (org, values) -> {
+        values.put("name", org.getName());
+        values.put("location", org.getLocation());
+        values.put("rating", org.getRating());
+        values.put("is_approved", org.isApproved() ? 1 : 0);
+    }, "password", "email", "phone");
+    
+    // Legacy follows sit under push ids; keyed on the follow id so an old and a migrated edge share a row
+    public static final Table<Follow> FOLLOWS = new Table<>("follows", FollowCodec.INSTANCE, LocalMirror::followRowKey, (follow, values) -> {
+        values.put(COLUMN_VOLUNTEER_ID, follow.getVolunteerId());
+        values.put(COLUMN_ORGANIZATION_ID, follow.getOrganizationId());
+    });
+    
+    public static final Table<Notification> NOTIFICATIONS = new Table<>("notifications", NotificationCodec.INSTANCE, (notification, values) -> {
+        values.put("user_id", notification.getUserId());
+        values.put("is_read", notification.isRead() ? 1 : 0);
+        values.put("created_at", notification.getCreatedAt());
+    });
+    
+    public static final Table<VolunteerRequest> VOLUNTEER_REQUESTS = new Table<>("volunteer_requests", VolunteerRequestCodec.INSTANCE, (request, values) -> {
+        values.put(COLUMN_VOLUNTEER_ID, request.getVolunteerId());
+        values.put(COLUMN_ORGANIZATION_ID, request.getOrganizationId());
+        values.put("status", request.getStatus());
+        values.put("location", request.getLocation());
+        values.put("created_at", request.getCreatedAt());
+    });
+    
+    private static LocalMirror instance;
+    
+    // Reads and writes issued from the UI run here, one at a time
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    
+    private LocalMirror(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Screens read while a sync writes
+        setWriteAheadLoggingEnabled(true);
+    }
+    
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new LocalMirror(context.getApplicationContext());
+        }
+    }
+    
+    /**
+     * Get the mirror, or null when init() has not run
+     */
+    public static synchronized LocalMirror getInstance() {
+        return instance;
+    }
+    
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE posts (id TEXT PRIMARY KEY, organization_id TEXT, category TEXT, location TEXT, "
+                + "created_at INTEGER, updated_at INTEGER, deleted INTEGER NOT NULL DEFAULT 0, data TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX idx_posts_created ON posts (deleted, created_at)");
+        db.execSQL("CREATE INDEX idx_posts_organization ON posts (organization_id, created_at)");
+        db.execSQL("CREATE INDEX idx_posts_category ON posts (category, created_at)");
+        db.execSQL("CREATE INDEX idx_posts_location ON posts (location, created_at)");
+        
+        db.execSQL("CREATE TABLE organizations (id TEXT PRIMARY KEY, name TEXT COLLATE NOCASE, location TEXT, "
+                + "rating REAL, is_approved INTEGER NOT NULL DEFAULT 0, updated_at INTEGER, data TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX idx_organizations_name ON organizations (is_approved, name)");
+        db.execSQL("CREATE INDEX idx_organizations_location ON organizations (location)");
+        db.execSQL("CREATE INDEX idx_organizations_rating ON organizations (rating)");
+        
+        db.execSQL("CREATE TABLE follows (id TEXT PRIMARY KEY, volunteer_id TEXT, organization_id TEXT, "
+                + "updated_at INTEGER, data TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX idx_follows_volunteer ON follows (volunteer_id)");
+        db.execSQL("CREATE INDEX idx_follows_organization ON follows (organization_id)");
+        
+        db.execSQL("CREATE TABLE notifications (id TEXT PRIMARY KEY, user_id TEXT, is_read INTEGER NOT NULL DEFAULT 0, "
+                + "created_at INTEGER, updated_at INTEGER, data TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX idx_notifications_user ON notifications (user_id, created_at)");
+        db.execSQL("CREATE INDEX idx_notifications_unread ON notifications (user_id, is_read)");
+        
+        db.execSQL("CREATE TABLE volunteer_requests (id TEXT PRIMARY KEY, volunteer_id TEXT, organization_id TEXT, "
+                + "status TEXT, location TEXT, created_at INTEGER, updated_at INTEGER, data TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX idx_requests_organization ON volunteer_requests (organization_id, status, created_at)");
+        db.execSQL("CREATE INDEX idx_requests_volunteer ON volunteer_requests (volunteer_id, created_at)");
+        db.execSQL("CREATE INDEX idx_requests_location ON volunteer_requests (location)");
+        
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE + " (node TEXT PRIMARY KEY, watermark INTEGER NOT NULL)");
+    }
+    
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Only a cache of the server: drop it and let the next sync refill it
+        for (String table : new String[] {"posts", "organizations", "follows", "notifications",
+                "volunteer_requests", TABLE_SYNC_STATE}) {
+            db.execSQL("DROP TABLE IF EXISTS " + table);
+        }
+        onCreate(db);
+    }
+    
+    /**
+     * Run a read on the mirror's thread and deliver its result on the main thread
+     */
+    public <R> void read(Reader<R> reader, ReadCallback<R> callback) {
+        executor.execute(() -> {
+            R result;
+            try {
+                result = reader.read(this);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "❌ Mirror read failed", e);
+                return;
+            }
+            mainHandler.post(() -> callback.onRead(result));
+        });
+    }
+    
+    /**
+     * Run a write on the mirror's thread
+     */
+    public void write(Runnable write) {
+        executor.execute(() -> {
+            try {
+                write.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "❌ Mirror write failed", e);
+            }
+        });
+    }
+    
+    // Writes
+    
+    public <T extends BaseEntity> void upsert(Table<T> table, List<T> entities) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (T entity : entities) {
+                insertRow(db, table, entity);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+    
+    /**
+     * Store a delta and move the node's watermark in the same transaction, so a crash
+     * in between cannot skip rows. Returns the new watermark.
+     */
+    public <T extends BaseEntity> long upsertDelta(Table<T> table, List<T> entities, String node, long watermark) {
+        long newWatermark = watermark;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (T entity : entities) {
+                insertRow(db, table, entity);
+                if (entity.getUpdatedAt() != null) {
+                    newWatermark = Math.max(newWatermark, entity.getUpdatedAt());
+                }
+            }
+            ContentValues values = new ContentValues();
+            values.put("node", node);
+            values.put("watermark", newWatermark);
+            db.insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return newWatermark;
+    }
+    
+    /**
+     * Replace every row owned by one user, for nodes whose deletions a delta cannot see
+     */
+    public <T extends BaseEntity> void replaceOwned(Table<T> table, String ownerColumn, String ownerId, List<T> entities) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(table.name, ownerColumn + " = ?", new String[] {ownerId});
+            for (T entity : entities) {
+                insertRow(db, table, entity);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+    
+    /**
+     * Keep only the newest live posts; deleted posts and older ones are dropped
+     */
+    public void prunePosts(int keep) {
+        int removed = getWritableDatabase().delete(POSTS.name,
+                "deleted = 1 OR id NOT IN (SELECT id FROM " + POSTS.name
+                        + " WHERE deleted = 0 ORDER BY created_at DESC LIMIT " + keep + ")", null);
+        if (removed > 0) {
+            Log.d(TAG, "Pruned " + removed + " mirrored posts");
+        }
+    }
+    
+    public void deleteNotifications(String userId) {
+        getWritableDatabase().delete(NOTIFICATIONS.name, "user_id = ?", new String[] {userId});
+    }
+    
+    /**
+     * Latest updatedAt stored for a node, 0 before its first sync
+     */
+    public long getWatermark(String node) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT watermark FROM " + TABLE_SYNC_STATE + " WHERE node = ?", new String[] {node})) {
+            return cursor.moveToNext() ? cursor.getLong(0) : 0L;
+        }
+    }
+    
+    private static String followRowKey(Follow follow) {
+        if (follow.getVolunteerId() == null || follow.getOrganizationId() == null) {
+            return null;
+        }
+        return FollowController.getFollowId(follow.getVolunteerId(), follow.getOrganizationId());
+    }
+    
+    private static <T extends BaseEntity> void insertRow(SQLiteDatabase db, Table<T> table, T entity) {
+        String id = table.rowKey.of(entity);
+        if (id == null) {
+            return;
+        }
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_ID, id);
+        values.put("updated_at", entity.getUpdatedAt());
+        table.columns.fill(entity, values);
+        Map<String, Object> encoded = table.codec.encode(entity);
+        encoded.keySet().removeAll(table.privateFields);
+        values.put(COLUMN_DATA, new JSONObject(encoded).toString());
+        db.insertWithOnConflict(table.name, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+    
+    // Reads, in the order the matching screens show them
+    
+    public List<Post> getRecentPosts(int limit) {
+        return query(POSTS, "deleted = 0", null, "created_at DESC", limit);
+    }
+    
+    public List<Organization> getApprovedOrganizations() {
+        return query(ORGANIZATIONS, "is_approved = 1", null, "name", 0);
+    }
+    
+    public List<Follow> getFollowsOfVolunteer(String volunteerId) {
+        return query(FOLLOWS, "volunteer_id = ?", new String[] {volunteerId}, null, 0);
+    }
+    
+    public List<Notification> getNotifications(String userId, int limit) {
+        return query(NOTIFICATIONS, "user_id = ?", new String[] {userId}, "created_at DESC", limit);
+    }
+    
+    public List<VolunteerRequest> getRequestsForOrganization(String organizationId) {
+        return query(VOLUNTEER_REQUESTS, "organization_id = ?", new String[] {organizationId}, "created_at DESC", 0);
+    }
+    
+    private <T extends BaseEntity> List<T> query(Table<T> table, String where, String[] args, String orderBy, int limit) {
+        List<T> entities = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(table.name, new String[] {COLUMN_DATA}, where, args,
+                null, null, orderBy, limit > 0 ? String.valueOf(limit) : null)) {
+            while (cursor.moveToNext()) {
+                try {
+                    entities.add(table.codec.decode(toMap(new JSONObject(cursor.getString(0)))));
+                } catch (JSONException e) {
+                    Log.w(TAG, "⚠️ Skipping unreadable " + table.name + " row: " + e.getMessage());
+                }
+            }
+        }
+        return entities;
+    }
+    
+    // Encoded entities are stored as JSON; read back into the same Map/List shapes Firebase returns
+    
+    private static Map<String, Object> toMap(JSONObject json) throws JSONException {
+        Map<String, Object> map = new HashMap<>();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            map.put(key, fromJson(json.get(key)));
+        }
+        return map;
+    }
+    
+    private static Object fromJson(Object value) throws JSONException {
+        if (value == JSONObject.NULL) {
+            return null;
+        }
+        if (value instanceof JSONObject) {
+            return toMap((JSONObject) value);
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            List<Object> list = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                list.add(fromJson(array.opt(i)));
+            }
+            return list;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.tounesna.util;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.tounesna.model.BaseEntity;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MirrorSync - Keeps LocalMirror current with delta queries
+ * Organizations and the user's inbox are read once in full, posts once as the
+ * newest window the mirror keeps; after that only rows whose updatedAt is at or
+ * past the stored watermark are downloaded. Follows and volunteer requests are
+ * deleted or rewritten without an updatedAt, so the user's own rows of those
+ * nodes are replaced through their indexed query. Deltas are paged by
+ * (updatedAt, key), so any number of rows sharing one timestamp gets through.
+ */
+public final class MirrorSync {
+    
+    private static final String TAG = "MirrorSync";
+    
+    private static final String UPDATED_AT = "updatedAt";
+    private static final int SYNC_BATCH_SIZE = 500;
+    // updatedAt is still stamped by client clocks in places; re-read a margin so a slow clock cannot hide a row
+    private static final long CLOCK_SKEW_MARGIN = 5 * 60 * 1000L;
+    private static final long MIN_SYNC_INTERVAL = 30 * 1000L;
+    // Newest live posts kept on disk; deleted and older ones are pruned after each sync
+    private static final int MAX_MIRRORED_POSTS = 500;
+    
+    // Nodes with a sync in flight, and when each last finished
+    private static final Set<String> inFlight = new HashSet<>();
+    private static final Map<String, Long> lastSyncedAt = new HashMap<>();
+    
+    private MirrorSync() {
+    }
+    
+    /**
+     * Bring every mirrored node up to date for the signed-in user.
+     * Nodes synced in the last 30 seconds or still syncing are skipped.
+     */
+    public static void sync(String userId, boolean isOrganization) {
+        LocalMirror mirror = LocalMirror.getInstance();
+        if (mirror == null || userId == null) {
+            return;
+        }
+        DatabaseReference postsRef = FirebaseManager.getPostsRef();
+        // First sync takes only the window prunePosts keeps, not the whole node
+        syncDelta(mirror, LocalMirror.POSTS, FirebaseManager.PATH_POSTS, postsRef,
+                postsRef.orderByChild("createdAt").limitToLast(MAX_MIRRORED_POSTS),
+                () -> mirror.prunePosts(MAX_MIRRORED_POSTS));
+        DatabaseReference organizationsRef = FirebaseManager.getOrganizationsRef();
+        syncDelta(mirror, LocalMirror.ORGANIZATIONS, FirebaseManager.PATH_ORGANIZATIONS, organizationsRef,
+                organizationsRef, null);
+        DatabaseReference inboxRef = FirebaseManager.getUserNotificationsRef(userId);
+        syncDelta(mirror, LocalMirror.NOTIFICATIONS, FirebaseManager.PATH_USER_NOTIFICATIONS + "/" + userId,
+                inboxRef, inboxRef, null);
+        
+        String ownerField = isOrganization ? "organizationId" : "volunteerId";
+        String ownerColumn = isOrganization ? LocalMirror.COLUMN_ORGANIZATION_ID : LocalMirror.COLUMN_VOLUNTEER_ID;
+        syncOwned(mirror, LocalMirror.FOLLOWS, FirebaseManager.getFollowsRef(), ownerField, ownerColumn, userId);
+        syncOwned(mirror, LocalMirror.VOLUNTEER_REQUESTS, FirebaseManager.getVolunteerRequestsRef(),
+                ownerField, ownerColumn, userId);
+    }
+    
+    /**
+     * seed is the one read made before the node has a watermark. afterSync, when set,
+     * runs on the mirror's thread once every batch is stored.
+     */
+    private static <T extends BaseEntity> void syncDelta(LocalMirror mirror, LocalMirror.Table<T> table,
+                                                         String node, DatabaseReference ref, Query seed,
+                                                         Runnable afterSync) {
+        if (!begin(node)) {
+            return;
+        }
+        mirror.read(m -> m.getWatermark(node), watermark -> {
+            if (watermark == 0) {
+                // First sync: rows written before updatedAt existed are only reachable this way
+                fetchDelta(mirror, table, node, ref, seed, 0, null, 0, afterSync);
+            } else {
+                fetchDelta(mirror, table, node, ref, null, Math.max(1, watermark - CLOCK_SKEW_MARGIN), null,
+                        watermark, afterSync);
+            }
+        });
+    }
+    
+    /**
+     * One batch from (from, fromKey) on, or the seed read when seed is set. fromKey is the
+     * last row of the previous batch, which comes back first and is stored again, so a
+     * batch asks for one extra row.
+     */
+    private static <T extends BaseEntity> void fetchDelta(LocalMirror mirror, LocalMirror.Table<T> table, String node,
+                                                          DatabaseReference ref, Query seed, long from, String fromKey,
+                                                          long watermark, Runnable afterSync) {
+        boolean bounded = seed == null;
+        int limit = fromKey != null ? SYNC_BATCH_SIZE + 1 : SYNC_BATCH_SIZE;
+        Query query;
+        if (!bounded) {
+            query = seed;
+        } else if (fromKey != null) {
+            query = ref.orderByChild(UPDATED_AT).startAt(from, fromKey).limitToFirst(limit);
+        } else {
+            query = ref.orderByChild(UPDATED_AT).startAt(from).limitToFirst(limit);
+        }
+        query.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                // Cursor of the next batch: the last row in (updatedAt, key) order
+                String lastKey = null;
+                Long lastUpdatedAt = null;
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    lastKey = child.getKey();
+                    lastUpdatedAt = child.child(UPDATED_AT).getValue(Long.class);
+                }
+                boolean more = bounded && snapshot.getChildrenCount() >= limit && lastUpdatedAt != null;
+                String nextKey = lastKey;
+                long nextFrom = lastUpdatedAt != null ? lastUpdatedAt : from;
+                
+                SnapshotDecoder.decodeChildren(snapshot, child -> table.getCodec().decode(child),
+                    decoded -> new long[] {decoded.size(), mirror.upsertDelta(table, decoded, node, watermark)},
+                    new SnapshotDecoder.Callback<long[]>() {
+                        @Override
+                        public void onDecoded(long[] result) {
+                            Log.d(TAG, "✅ Mirrored " + result[0] + " rows of " + node);
+                            if (more) {
+                                // A full batch: continue right after its last row
+                                fetchDelta(mirror, table, node, ref, null, nextFrom, nextKey, result[1], afterSync);
+                                return;
+                            }
+                            if (afterSync != null) {
+                                mirror.write(afterSync);
+                            }
+                            finish(node, true);
+                        }
+                        
+                        @Override
+                        public void onError(String message) {
+                            Log.e(TAG, "❌ Failed to mirror " + node + ": " + message);
+                            finish(node, false);
+                        }
+                    });
+            }
+            
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "❌ Delta query on " + node + " failed: " + error.getMessage());
+                finish(node, false);
+            }
+        });
+    }
+    
+    private static <T extends BaseEntity> void syncOwned(LocalMirror mirror, LocalMirror.Table<T> table,
+                                                         DatabaseReference ref, String ownerField,
+                                                         String ownerColumn, String ownerId) {
+        String node = ref.getKey() + "?" + ownerField + "=" + ownerId;
+        if (!begin(node)) {
+            return;
+        }
+        ref.orderByChild(ownerField).equalTo(ownerId)
+            .addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    SnapshotDecoder.decodeChildren(snapshot, child -> table.getCodec().decode(child),
+                        (List<T> decoded) -> {
+                            mirror.replaceOwned(table, ownerColumn, ownerId, decoded);
+                            return decoded.size();
+                        },
+                        new SnapshotDecoder.Callback<Integer>() {
+                            @Override
+                            public void onDecoded(Integer rows) {
+                                Log.d(TAG, "✅ Mirrored " + rows + " rows of " + node);
+                                finish(node, true);
+                            }
+                            
+                            @Override
+                            public void onError(String message) {
+                                Log.e(TAG, "❌ Failed to mirror " + node + ": " + message);
+                                finish(node, false);
+                            }
+                        });
+                }
+                
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    Log.e(TAG, "❌ Query on " + node + " failed: " + error.getMessage());
+                    finish(node, false);
+                }
+            });
+    }
+    
+    private static synchronized boolean begin(String node) {
+        Long last = lastSyncedAt.get(node);
+        if (inFlight.contains(node) || (last != null && SystemClock.elapsedRealtime() - last < MIN_SYNC_INTERVAL)) {
+            return false;
+        }
+        inFlight.add(node);
+        return true;
+    }
+    
+    private static synchronized void finish(String node, boolean success) {
+        inFlight.remove(node);
+        if (success) {
+            lastSyncedAt.put(node, SystemClock.elapsedRealtime());
+        }
+    }
+}
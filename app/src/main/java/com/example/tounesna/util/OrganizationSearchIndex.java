@@ -0,0 +1,349 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Organization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * OrganizationSearchIndex - In-memory inverted index over organization name, tags, location and description
+ * Each organization's text is folded and tokenized once, when it is put, and kept as
+ * BM25 weights and postings. A query term matches every token that contains it,
+ * found through a trigram table; terms are ANDed, so only the organizations in the
+ * postings of every term are scored. In fuzzy mode a term also matches name, tag and
+ * location words a typo or two away. Matches are ranked by BM25 with the name and
+ * tags boosted, then newest, then by name.
+ * Not thread-safe: callers keep all access on one thread.
+ */
+public class OrganizationSearchIndex {
+    
+    private static final int GRAM = 3;
+    
+    private static final float NAME_BOOST = 3f;
+    private static final float TAGS_BOOST = 2f;
+    private static final float LOCATION_BOOST = 1.5f;
+    private static final float DESCRIPTION_BOOST = 1f;
+    // A word reached only through a typo counts for less than one the term is in
+    private static final double FUZZY_DISCOUNT = 0.5;
+    
+    private static final Comparator<ScoredOrganization> BEST_FIRST = (s1, s2) -> {
+        int byScore = Double.compare(s2.score, s1.score);
+        if (byScore != 0) {
+            return byScore;
+        }
+        int byAge = Long.compare(createdAt(s2.organization), createdAt(s1.organization));
+        if (byAge != 0) {
+            return byAge;
+        }
+        return name(s1.organization).compareToIgnoreCase(name(s2.organization));
+    };
+    
+    private static final class ScoredOrganization {
+        final Organization organization;
+        final double score;
+        
+        ScoredOrganization(Organization organization, double score) {
+            this.organization = organization;
+            this.score = score;
+        }
+    }
+    
+    private final Map<String, Organization> organizations = new HashMap<>();
+    // Weighted tokens of each indexed organization, for scoring and to unlink them on update or removal
+    private final Map<String, Bm25.Document> documents = new HashMap<>();
+    // Name, tag and location words of each organization, the ones fuzzy mode accepts
+    private final Map<String, List<String>> fuzzyWords = new HashMap<>();
+    private final Map<String, Set<String>> postings = new HashMap<>();
+    // Organizations having each of those words, for fuzzy matches
+    private final Map<String, Set<String>> fuzzyPostings = new HashMap<>();
+    private final Map<String, Set<String>> tokensByGram = new HashMap<>();
+    private final FuzzyVocabulary vocabulary = new FuzzyVocabulary();
+    private final Bm25 statistics = new Bm25();
+    
+    /**
+     * Index an organization, replacing the previous version with the same ID
+     */
+    public void put(Organization organization) {
+        if (organization == null || organization.getId() == null) {
+            return;
+        }
+        remove(organization.getId());
+        
+        List<String> nameTokens = PostSearchIndex.tokenize(organization.getName());
+        List<String> tagTokens = PostSearchIndex.tokenize(tagsText(organization));
+        List<String> locationTokens = PostSearchIndex.tokenize(organization.getLocation());
+        Bm25.Document document = new Bm25.Document()
+                .field(nameTokens, NAME_BOOST)
+                .field(tagTokens, TAGS_BOOST)
+                .field(locationTokens, LOCATION_BOOST)
+                .field(PostSearchIndex.tokenize(organization.getDescription()), DESCRIPTION_BOOST);
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(concat(nameTokens, tagTokens, locationTokens)));
+        
+        organizations.put(organization.getId(), organization);
+        documents.put(organization.getId(), document);
+        fuzzyWords.put(organization.getId(), words);
+        statistics.add(document);
+        for (String token : document.terms()) {
+            if (link(postings, token, organization.getId())) {
+                linkGrams(token);
+            }
+        }
+        for (String word : words) {
+            vocabulary.add(word);
+            link(fuzzyPostings, word, organization.getId());
+        }
+    }
+    
+    public void remove(String organizationId) {
+        Bm25.Document document = documents.remove(organizationId);
+        organizations.remove(organizationId);
+        List<String> words = fuzzyWords.remove(organizationId);
+        if (document == null) {
+            return;
+        }
+        statistics.remove(document);
+        for (String token : document.terms()) {
+            if (unlink(postings, token, organizationId)) {
+                unlinkGrams(token);
+            }
+        }
+        for (String word : words) {
+            vocabulary.remove(word);
+            unlink(fuzzyPostings, word, organizationId);
+        }
+    }
+    
+    public void clear() {
+        organizations.clear();
+        documents.clear();
+        fuzzyWords.clear();
+        postings.clear();
+        fuzzyPostings.clear();
+        tokensByGram.clear();
+        vocabulary.clear();
+        statistics.clear();
+    }
+    
+    public int size() {
+        return organizations.size();
+    }
+    
+    /**
+     * The best limit organizations matching every term of the query; when fuzzy, a term
+     * also matches name, tag and location words within FuzzyVocabulary.maxDistance edits
+     * of it. An empty query matches every organization, newest first. The list is unmodifiable.
+     */
+    public List<Organization> search(String query, boolean fuzzy, int limit) {
+        List<String> terms = PostSearchIndex.tokenize(query);
+        List<ScoredOrganization> scored = new ArrayList<>();
+        if (terms.isEmpty()) {
+            for (Organization organization : organizations.values()) {
+                scored.add(new ScoredOrganization(organization, 0));
+            }
+        } else {
+            // Sum of each term's best token score, over organizations that match every term
+            Map<String, Double> scores = null;
+            for (String term : terms) {
+                Map<String, Double> termScores = scoreTerm(term, fuzzy);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<String, Double> both = new HashMap<>();
+                    for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                        Double termScore = termScores.get(entry.getKey());
+                        if (termScore != null) {
+                            both.put(entry.getKey(), entry.getValue() + termScore);
+                        }
+                    }
+                    scores = both;
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                scored.add(new ScoredOrganization(organizations.get(entry.getKey()), entry.getValue()));
+            }
+        }
+        
+        List<Organization> results = new ArrayList<>();
+        for (ScoredOrganization best : TopK.select(scored, BEST_FIRST, limit)) {
+            results.add(best.organization);
+        }
+        return Collections.unmodifiableList(results);
+    }
+    
+    /**
+     * Whether an organization would match the query, by the same rules as search.
+     * Lets callers narrow an earlier result set when the query is extended.
+     */
+    public static boolean matches(Organization organization, String query) {
+        List<String> tokens = concat(PostSearchIndex.tokenize(organization.getName()),
+                PostSearchIndex.tokenize(tagsText(organization)),
+                PostSearchIndex.tokenize(organization.getLocation()),
+                PostSearchIndex.tokenize(organization.getDescription()));
+        for (String term : PostSearchIndex.tokenize(query)) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.contains(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Each organization containing the term, scored by its best matching token
+     */
+    private Map<String, Double> scoreTerm(String term, boolean fuzzy) {
+        Map<String, Double> scores = new HashMap<>();
+        for (String token : tokensContaining(term)) {
+            addTokenScores(scores, token, postings.get(token), 1.0);
+        }
+        if (fuzzy) {
+            for (String word : vocabulary.near(term)) {
+                addTokenScores(scores, word, fuzzyPostings.get(word), FUZZY_DISCOUNT);
+            }
+        }
+        return scores;
+    }
+    
+    private void addTokenScores(Map<String, Double> scores, String token, Set<String> organizationIds, double factor) {
+        if (organizationIds == null) {
+            return;
+        }
+        for (String organizationId : organizationIds) {
+            double score = factor * statistics.score(token, documents.get(organizationId));
+            Double best = scores.get(organizationId);
+            if (best == null || score > best) {
+                scores.put(organizationId, score);
+            }
+        }
+    }
+    
+    private Set<String> tokensContaining(String term) {
+        if (term.length() < GRAM) {
+            // Too short for a trigram, check every distinct token
+            Set<String> tokens = new HashSet<>();
+            for (String token : postings.keySet()) {
+                if (token.contains(term)) {
+                    tokens.add(token);
+                }
+            }
+            return tokens;
+        }
+        
+        // Candidates share every trigram of the term; start from the rarest one
+        Set<String> candidates = null;
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            Set<String> tokens = tokensByGram.get(term.substring(i, i + GRAM));
+            if (tokens == null) {
+                return Collections.emptySet();
+            }
+            if (candidates == null || tokens.size() < candidates.size()) {
+                candidates = tokens;
+            }
+        }
+        Set<String> tokens = new HashSet<>();
+        for (String token : candidates) {
+            if (token.contains(term)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    /**
+     * Returns true when the token had no organizations before
+     */
+    private static boolean link(Map<String, Set<String>> postings, String token, String organizationId) {
+        Set<String> organizationIds = postings.get(token);
+        boolean added = organizationIds == null;
+        if (added) {
+            organizationIds = new HashSet<>();
+            postings.put(token, organizationIds);
+        }
+        organizationIds.add(organizationId);
+        return added;
+    }
+    
+    /**
+     * Returns true when the token has no organizations left
+     */
+    private static boolean unlink(Map<String, Set<String>> postings, String token, String organizationId) {
+        Set<String> organizationIds = postings.get(token);
+        if (organizationIds == null) {
+            return false;
+        }
+        organizationIds.remove(organizationId);
+        if (organizationIds.isEmpty()) {
+            postings.remove(token);
+            return true;
+        }
+        return false;
+    }
+    
+    private void linkGrams(String token) {
+        for (String gram : grams(token)) {
+            Set<String> tokens = tokensByGram.get(gram);
+            if (tokens == null) {
+                tokens = new HashSet<>();
+                tokensByGram.put(gram, tokens);
+            }
+            tokens.add(token);
+        }
+    }
+    
+    private void unlinkGrams(String token) {
+        for (String gram : grams(token)) {
+            Set<String> tokens = tokensByGram.get(gram);
+            if (tokens != null) {
+                tokens.remove(token);
+                if (tokens.isEmpty()) {
+                    tokensByGram.remove(gram);
+                }
+            }
+        }
+    }
+    
+    private static Set<String> grams(String token) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= token.length(); i++) {
+            grams.add(token.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+    
+    @SafeVarargs
+    private static List<String> concat(List<String>... lists) {
+        List<String> all = new ArrayList<>();
+        for (List<String> list : lists) {
+            all.addAll(list);
+        }
+        return all;
+    }
+    
+    private static String tagsText(Organization organization) {
+        return organization.getTags() != null ? String.join(" ", organization.getTags()) : null;
+    }
+    
+    private static long createdAt(Organization organization) {
+        return organization.getCreatedAt() != null ? organization.getCreatedAt() : 0L;
+    }
+    
+    private static String name(Organization organization) {
+        return organization.getName() != null ? organization.getName() : "";
+    }
+}
@@ -0,0 +1,393 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Organization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * OrganizationTrie - Prefix trie over organization names and tags for autocomplete
+ * Every node keeps the best K organizations of its subtree, ranked by rating then
+ * followers, so a lookup is a walk down the prefix and a copy into the caller's
+ * array. Queries are folded character by character through a precomputed table,
+ * the same folding PostSearchIndex applies, so a keystroke allocates nothing.
+ * Updates rebuild the ranked lists along the changed paths only.
+ * Not thread-safe: callers keep all access on one thread.
+ */
+public class OrganizationTrie {
+    
+    private static final char SEPARATOR = ' ';
+    private static final int[] NO_SLOTS = new int[0];
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    
+    // Folded form of each Latin and Arabic character, null where folding leaves it as is
+    private static final String[] FOLDED = new String[0x0700];
+    
+    static {
+        for (char c = 0; c < FOLDED.length; c++) {
+            String folded = PostSearchIndex.fold(String.valueOf(c));
+            if (folded.length() != 1 || folded.charAt(0) != c) {
+                FOLDED[c] = folded;
+            }
+        }
+    }
+    
+    private static final class Node {
+        // Children sorted by label, searched by bisection
+        char[] labels = NO_LABELS;
+        Node[] children = NO_CHILDREN;
+        int childCount;
+        // Organizations with a key ending here
+        int[] terminals = NO_SLOTS;
+        int terminalCount;
+        // Best organizations of the subtree, best first
+        int[] top;
+        int topCount;
+        
+        Node(int topSize) {
+            top = new int[topSize];
+        }
+        
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, 0, childCount, label);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+    
+    private final int topSize;
+    private final Node root;
+    
+    private Organization[] organizations = new Organization[16];
+    private String[][] keysBySlot = new String[16][];
+    private final Map<String, Integer> slotsById = new HashMap<>();
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotCount;
+    
+    public OrganizationTrie(int topSize) {
+        this.topSize = topSize;
+        this.root = new Node(topSize);
+    }
+    
+    /**
+     * Index an organization, replacing the previous version with the same ID
+     */
+    public void put(Organization organization) {
+        if (organization == null || organization.getId() == null) {
+            return;
+        }
+        remove(organization.getId());
+        
+        int slot = allocateSlot();
+        organizations[slot] = organization;
+        String[] keys = keysOf(organization);
+        keysBySlot[slot] = keys;
+        slotsById.put(organization.getId(), slot);
+        for (String key : keys) {
+            insert(key, slot);
+        }
+    }
+    
+    public void remove(String organizationId) {
+        Integer slot = slotsById.remove(organizationId);
+        if (slot == null) {
+            return;
+        }
+        for (String key : keysBySlot[slot]) {
+            delete(key, slot);
+        }
+        organizations[slot] = null;
+        keysBySlot[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+    
+    public void clear() {
+        Arrays.fill(organizations, null);
+        Arrays.fill(keysBySlot, null);
+        slotsById.clear();
+        freeCount = 0;
+        slotCount = 0;
+        root.labels = NO_LABELS;
+        root.children = NO_CHILDREN;
+        root.childCount = 0;
+        root.terminals = NO_SLOTS;
+        root.terminalCount = 0;
+        root.topCount = 0;
+    }
+    
+    public int size() {
+        return slotsById.size();
+    }
+    
+    public Organization get(String organizationId) {
+        Integer slot = slotsById.get(organizationId);
+        return slot != null ? organizations[slot] : null;
+    }
+    
+    /**
+     * Every indexed organization, in no particular order
+     */
+    public List<Organization> getAll() {
+        List<Organization> all = new ArrayList<>(slotsById.size());
+        for (int slot : slotsById.values()) {
+            all.add(organizations[slot]);
+        }
+        return all;
+    }
+    
+    /**
+     * Fill out with the best organizations whose name, a word of the name or a tag
+     * starts with the prefix, best first. Returns how many were written.
+     * An empty prefix gives the best organizations overall.
+     */
+    public int complete(CharSequence prefix, Organization[] out) {
+        Node node = root;
+        boolean started = false;
+        boolean pendingSeparator = false;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            char c = prefix.charAt(i);
+            String folded = c < FOLDED.length ? FOLDED[c] : null;
+            if (folded == null) {
+                c = Character.toLowerCase(c);
+                if (!Character.isLetterOrDigit(c)) {
+                    pendingSeparator |= started;
+                    continue;
+                }
+                if (pendingSeparator) {
+                    node = node.child(SEPARATOR);
+                    pendingSeparator = false;
+                }
+                node = node != null ? node.child(c) : null;
+                started = true;
+                continue;
+            }
+            for (int j = 0; j < folded.length() && node != null; j++) {
+                char f = folded.charAt(j);
+                if (!Character.isLetterOrDigit(f)) {
+                    pendingSeparator |= started;
+                    continue;
+                }
+                if (pendingSeparator) {
+                    node = node.child(SEPARATOR);
+                    pendingSeparator = false;
+                }
+                node = node != null ? node.child(f) : null;
+                started = true;
+            }
+        }
+        if (node == null) {
+            return 0;
+        }
+        int count = Math.min(node.topCount, out.length);
+        for (int i = 0; i < count; i++) {
+            out[i] = organizations[node.top[i]];
+        }
+        return count;
+    }
+    
+    private void insert(String key, int slot) {
+        Node[] path = new Node[key.length() + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < key.length(); i++) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                child = addChild(node, key.charAt(i));
+            }
+            node = child;
+            path[i + 1] = node;
+        }
+        if (node.terminalCount == node.terminals.length) {
+            node.terminals = Arrays.copyOf(node.terminals, Math.max(2, node.terminalCount * 2));
+        }
+        node.terminals[node.terminalCount++] = slot;
+        rerank(path, key.length());
+    }
+    
+    private void delete(String key, int slot) {
+        Node[] path = new Node[key.length() + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+            path[i + 1] = node;
+        }
+        if (node == null) {
+            return;
+        }
+        for (int i = 0; i < node.terminalCount; i++) {
+            if (node.terminals[i] == slot) {
+                node.terminals[i] = node.terminals[--node.terminalCount];
+                break;
+            }
+        }
+        
+        // Prune the branch that no longer leads to any key
+        int depth = key.length();
+        while (depth > 0 && path[depth].childCount == 0 && path[depth].terminalCount == 0) {
+            removeChild(path[depth - 1], key.charAt(depth - 1));
+            depth--;
+        }
+        rerank(path, depth);
+    }
+    
+    /**
+     * Rebuild the ranked lists from the deepest changed node up to the root.
+     * A child's list already holds its subtree's best, so merging the children's
+     * lists with the node's own terminals gives the node's best exactly.
+     */
+    private void rerank(Node[] path, int depth) {
+        for (int d = depth; d >= 0; d--) {
+            Node node = path[d];
+            node.topCount = 0;
+            for (int i = 0; i < node.terminalCount; i++) {
+                offer(node, node.terminals[i]);
+            }
+            for (int i = 0; i < node.childCount; i++) {
+                Node child = node.children[i];
+                for (int j = 0; j < child.topCount; j++) {
+                    offer(node, child.top[j]);
+                }
+            }
+        }
+    }
+    
+    private void offer(Node node, int slot) {
+        int position = node.topCount;
+        for (int i = 0; i < node.topCount; i++) {
+            if (node.top[i] == slot) {
+                // Same organization reached through another key
+                return;
+            }
+            if (position == node.topCount && ranksBefore(slot, node.top[i])) {
+                position = i;
+            }
+        }
+        if (position >= topSize) {
+            return;
+        }
+        int last = Math.min(node.topCount, topSize - 1);
+        System.arraycopy(node.top, position, node.top, position + 1, last - position);
+        node.top[position] = slot;
+        node.topCount = last + 1;
+    }
+    
+    /**
+     * Rating, then followers, then name, then slot so the order is total
+     */
+    private boolean ranksBefore(int a, int b) {
+        Organization first = organizations[a];
+        Organization second = organizations[b];
+        int byRating = Double.compare(rating(second), rating(first));
+        if (byRating != 0) {
+            return byRating < 0;
+        }
+        int byFollowers = Integer.compare(second.getFollowersCount(), first.getFollowersCount());
+        if (byFollowers != 0) {
+            return byFollowers < 0;
+        }
+        int byName = name(first).compareTo(name(second));
+        if (byName != 0) {
+            return byName < 0;
+        }
+        return a < b;
+    }
+    
+    private Node addChild(Node node, char label) {
+        int index = -Arrays.binarySearch(node.labels, 0, node.childCount, label) - 1;
+        if (node.childCount == node.labels.length) {
+            int capacity = Math.max(2, node.childCount * 2);
+            node.labels = Arrays.copyOf(node.labels, capacity);
+            node.children = Arrays.copyOf(node.children, capacity);
+        }
+        System.arraycopy(node.labels, index, node.labels, index + 1, node.childCount - index);
+        System.arraycopy(node.children, index, node.children, index + 1, node.childCount - index);
+        Node child = new Node(topSize);
+        node.labels[index] = label;
+        node.children[index] = child;
+        node.childCount++;
+        return child;
+    }
+    
+    private void removeChild(Node node, char label) {
+        int index = Arrays.binarySearch(node.labels, 0, node.childCount, label);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(node.labels, index + 1, node.labels, index, node.childCount - index - 1);
+        System.arraycopy(node.children, index + 1, node.children, index, node.childCount - index - 1);
+        node.childCount--;
+        node.children[node.childCount] = null;
+    }
+    
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == organizations.length) {
+            organizations = Arrays.copyOf(organizations, slotCount * 2);
+            keysBySlot = Arrays.copyOf(keysBySlot, slotCount * 2);
+        }
+        return slotCount++;
+    }
+    
+    /**
+     * The whole name, each word of it, and each tag and tag word, all normalized
+     */
+    private static String[] keysOf(Organization organization) {
+        Set<String> keys = new LinkedHashSet<>();
+        addKeys(keys, organization.getName());
+        if (organization.getTags() != null) {
+            for (String tag : organization.getTags()) {
+                addKeys(keys, tag);
+            }
+        }
+        keys.remove("");
+        return keys.toArray(new String[0]);
+    }
+    
+    private static void addKeys(Set<String> keys, String text) {
+        if (text == null) {
+            return;
+        }
+        String normalized = normalize(text);
+        keys.add(normalized);
+        if (normalized.indexOf(SEPARATOR) >= 0) {
+            keys.addAll(Arrays.asList(normalized.split(String.valueOf(SEPARATOR))));
+        }
+    }
+    
+    /**
+     * Folded text with every run of other characters turned into one separator,
+     * the form complete() walks a query in
+     */
+    static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSeparator = false;
+        for (String token : PostSearchIndex.tokenize(text)) {
+            if (pendingSeparator) {
+                normalized.append(SEPARATOR);
+            }
+            normalized.append(token);
+            pendingSeparator = true;
+        }
+        return normalized.toString();
+    }
+    
+    private static double rating(Organization organization) {
+        return organization.getRating() != null ? organization.getRating() : 0;
+    }
+    
+    private static String name(Organization organization) {
+        return organization.getName() != null ? organization.getName() : "";
+    }
+}
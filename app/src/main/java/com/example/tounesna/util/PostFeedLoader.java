@@ -0,0 +1,441 @@
+package com.example.tounesna.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.tounesna.controller.PostController;
+import com.example.tounesna.model.Post;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * PostFeedLoader - Incremental page loader for the posts feed
+ * Fetches keyset pages from PostController, applies the client-side filter,
+ * tops up when the filter drops too many rows and evicts far-off pages
+ * so only a bounded number of rows stays in memory. Until the first page
+ * arrives, the newest posts of the local mirror stand in for it.
+ * With a ranker, the first fetch is a pool of RANKED_POOL_PAGES pages. The
+ * pool is served best first, each page being the ranker's top pageSize of
+ * what is left, so a followed or nearby post can rise above newer ones. Posts
+ * older than the pool follow newest first.
+ */
+public class PostFeedLoader {
+    
+    private static final String TAG = "PostFeedLoader";
+    
+    // Upper bound of extra pages fetched in one loadNext() to fill a filtered page
+    private static final int MAX_TOP_UP_PAGES = 5;
+    // Pages of newest posts fetched in one query and ranked together
+    private static final int RANKED_POOL_PAGES = 5;
+    
+    public interface Filter {
+        boolean accept(Post post);
+    }
+    
+    public interface Listener {
+        void onPostsAppended(List<Post> posts);
+        void onPostsPrepended(List<Post> posts);
+        void onPostsEvicted(boolean fromHead, int count);
+        void onLoadFinished(int visibleCount, boolean endReached);
+        void onError(String message);
+    }
+    
+    /**
+     * One shown page: the cursor it was loaded with, the cursor after it,
+     * and the rows that passed the filter. A page served from the ranked pool
+     * has no cursor of its own and records where it starts in rankedRows.
+     */
+    private static class Page {
+        final String cursor;
+        final String nextCursor;
+        final int rankedFrom;
+        final List<Post> rows;
+        
+        Page(String cursor, String nextCursor, List<Post> rows) {
+            this(cursor, nextCursor, -1, rows);
+        }
+        
+        Page(String cursor, String nextCursor, int rankedFrom, List<Post> rows) {
+            this.cursor = cursor;
+            this.nextCursor = nextCursor;
+            this.rankedFrom = rankedFrom;
+            this.rows = rows;
+        }
+        
+        boolean isRanked() {
+            return rankedFrom >= 0;
+        }
+        
+        /**
+         * What is kept of an evicted page: enough to load it again
+         */
+        Page withoutRows() {
+            return new Page(cursor, nextCursor, rankedFrom, Collections.emptyList());
+        }
+    }
+    
+    private final int pageSize;
+    private final int maxRetainedRows;
+    private final Listener listener;
+    
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    
+    private final Deque<Page> pages = new ArrayDeque<>();
+    // Pages evicted from the head without their rows, most recently evicted last
+    private final List<Page> evictedHead = new ArrayList<>();
+    
+    private Filter filter;
+    private FeedRanker ranker;
+    // Ranked mode: pool posts not served yet, the served ones in ranked order, and
+    // the keyset cursor after the pool (null when the pool reached the oldest post)
+    private final List<Post> pool = new ArrayList<>();
+    private final List<Post> rankedRows = new ArrayList<>();
+    private String poolNextCursor;
+    private boolean poolLoaded = false;
+    private int retainedRows = 0;
+    // Rows shown from the local mirror until the first page arrives from the network
+    private int provisionalRows = 0;
+    private boolean loading = false;
+    private boolean endReached = false;
+    private int generation = 0;
+    
+    public PostFeedLoader(int pageSize, int maxRetainedRows, Listener listener) {
+        this.pageSize = pageSize;
+        this.maxRetainedRows = Math.max(maxRetainedRows, pageSize * 2);
+        this.listener = listener;
+    }
+    
+    /**
+     * Drop every loaded page and start over with a new filter.
+     * Responses of requests issued before the reset are ignored.
+     */
+    public void reset(Filter filter) {
+        reset(filter, null);
+    }
+    
+    /**
+     * Start over with a new filter, serving the newest pool best first by the ranker
+     * (null keeps the whole feed newest first)
+     */
+    public void reset(Filter filter, FeedRanker ranker) {
+        this.filter = filter;
+        this.ranker = ranker;
+        pages.clear();
+        evictedHead.clear();
+        pool.clear();
+        rankedRows.clear();
+        poolNextCursor = null;
+        poolLoaded = false;
+        retainedRows = 0;
+        provisionalRows = 0;
+        loading = false;
+        endReached = false;
+        generation++;
+    }
+    
+    public boolean isLoading() {
+        return loading;
+    }
+    
+    public boolean isEndReached() {
+        return endReached;
+    }
+    
+    public boolean hasEvictedHead() {
+        return !evictedHead.isEmpty();
+    }
+    
+    /**
+     * Load the next page after the last retained one, fetching extra pages
+     * while the filter keeps fewer than half a page of rows
+     */
+    public void loadNext() {
+        if (loading || endReached) {
+            return;
+        }
+        loading = true;
+        if (pages.isEmpty() && evictedHead.isEmpty() && provisionalRows == 0) {
+            showMirroredRows(generation);
+        }
+        if (ranker != null && !poolLoaded) {
+            fetchPool(generation);
+            return;
+        }
+        Page last = pages.peekLast();
+        if (last != null && last.isRanked()) {
+            int nextFrom = last.rankedFrom + last.rows.size();
+            if (nextFrom < rankedRows.size() || !pool.isEmpty()) {
+                int requestGeneration = generation;
+                // Posted so the adapter is not changed from inside a scroll callback
+                mainHandler.post(() -> {
+                    if (requestGeneration == generation) {
+                        appendRankedPage(nextFrom);
+                    }
+                });
+                return;
+            }
+            if (last.nextCursor == null) {
+                endReached = true;
+                loading = false;
+                listener.onLoadFinished(retainedRows, true);
+                return;
+            }
+        }
+        String cursor = last == null ? null : last.nextCursor;
+        fetchNext(cursor, 0, 0, generation);
+    }
+    
+    /**
+     * Fetch the newest RANKED_POOL_PAGES pages in one query and show the best page of them
+     */
+    private void fetchPool(int requestGeneration) {
+        PostController.getRecentPostsPage(pageSize * RANKED_POOL_PAGES, null, new PostController.PostsPageCallback() {
+            @Override
+            public void onSuccess(PostController.PostPage page) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                if (provisionalRows > 0) {
+                    // The network page replaces the mirrored rows
+                    listener.onPostsEvicted(true, provisionalRows);
+                    provisionalRows = 0;
+                }
+                pool.addAll(applyFilter(page.getPosts()));
+                poolNextCursor = page.hasMore() ? page.getNextCursor() : null;
+                poolLoaded = true;
+                
+                if (pool.isEmpty()) {
+                    // The filter kept nothing of the pool: carry on newest first after it
+                    if (poolNextCursor == null) {
+                        endReached = true;
+                        loading = false;
+                        listener.onLoadFinished(retainedRows, true);
+                    } else {
+                        fetchNext(poolNextCursor, 0, 0, requestGeneration);
+                    }
+                    return;
+                }
+                appendRankedPage(0);
+            }
+            
+            @Override
+            public void onError(String message) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading = false;
+                listener.onError(message);
+            }
+        });
+    }
+    
+    /**
+     * Append the ranked page starting at rankedFrom: shown before and evicted from the
+     * tail, or else the ranker's top pageSize of the pool posts not served yet
+     */
+    private void appendRankedPage(int rankedFrom) {
+        if (rankedFrom >= rankedRows.size()) {
+            List<Post> best = ranker.rank(pool, pageSize, System.currentTimeMillis());
+            Set<Post> served = Collections.newSetFromMap(new IdentityHashMap<>());
+            served.addAll(best);
+            List<Post> rest = new ArrayList<>(pool.size() - best.size());
+            for (Post post : pool) {
+                if (!served.contains(post)) {
+                    rest.add(post);
+                }
+            }
+            pool.clear();
+            pool.addAll(rest);
+            rankedRows.addAll(best);
+        }
+        Page loaded = new Page(null, poolNextCursor, rankedFrom, rankedSlice(rankedFrom));
+        pages.addLast(loaded);
+        retainedRows += loaded.rows.size();
+        listener.onPostsAppended(loaded.rows);
+        evictHeadIfNeeded();
+        
+        endReached = pool.isEmpty() && poolNextCursor == null
+                && rankedFrom + loaded.rows.size() >= rankedRows.size();
+        loading = false;
+        listener.onLoadFinished(retainedRows, endReached);
+    }
+    
+    private List<Post> rankedSlice(int rankedFrom) {
+        int to = Math.min(rankedFrom + pageSize, rankedRows.size());
+        return new ArrayList<>(rankedRows.subList(rankedFrom, to));
+    }
+    
+    /**
+     * Show the newest mirrored posts while the first page is on its way
+     */
+    private void showMirroredRows(int requestGeneration) {
+        LocalMirror mirror = LocalMirror.getInstance();
+        if (mirror == null) {
+            return;
+        }
+        mirror.read(m -> m.getRecentPosts(pageSize), cached -> {
+            // Nothing to bridge once the network page is in
+            if (requestGeneration != generation || !pages.isEmpty() || provisionalRows > 0) {
+                return;
+            }
+            List<Post> rows = applyFilter(cached);
+            if (!rows.isEmpty()) {
+                provisionalRows = rows.size();
+                listener.onPostsAppended(rows);
+            }
+        });
+    }
+    
+    private void fetchNext(String cursor, int acceptedSoFar, int topUps, int requestGeneration) {
+        PostController.getRecentPostsPage(pageSize, cursor, new PostController.PostsPageCallback() {
+            @Override
+            public void onSuccess(PostController.PostPage page) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                
+                if (provisionalRows > 0) {
+                    // The network page replaces the mirrored rows
+                    listener.onPostsEvicted(true, provisionalRows);
+                    provisionalRows = 0;
+                }
+                Page loaded = new Page(cursor, page.getNextCursor(), applyFilter(page.getPosts()));
+                pages.addLast(loaded);
+                retainedRows += loaded.rows.size();
+                if (!loaded.rows.isEmpty()) {
+                    listener.onPostsAppended(loaded.rows);
+                }
+                evictHeadIfNeeded();
+                
+                int accepted = acceptedSoFar + loaded.rows.size();
+                if (!page.hasMore()) {
+                    endReached = true;
+                } else if (accepted < pageSize / 2 && topUps < MAX_TOP_UP_PAGES) {
+                    Log.d(TAG, "Filter kept " + accepted + " rows, fetching another page");
+                    fetchNext(page.getNextCursor(), accepted, topUps + 1, requestGeneration);
+                    return;
+                }
+                
+                loading = false;
+                listener.onLoadFinished(retainedRows, endReached);
+            }
+            
+            @Override
+            public void onError(String message) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading = false;
+                listener.onError(message);
+            }
+        });
+    }
+    
+    /**
+     * Reload the most recently evicted head page, evicting from the tail if needed
+     */
+    public void loadPrevious() {
+        if (loading || evictedHead.isEmpty()) {
+            return;
+        }
+        loading = true;
+        fetchPrevious(generation);
+    }
+    
+    private void fetchPrevious(int requestGeneration) {
+        Page evicted = evictedHead.remove(evictedHead.size() - 1);
+        if (evicted.isRanked()) {
+            // Served from memory, posted so the adapter is not changed from inside a scroll callback
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                Page loaded = new Page(null, evicted.nextCursor, evicted.rankedFrom, rankedSlice(evicted.rankedFrom));
+                pages.addFirst(loaded);
+                retainedRows += loaded.rows.size();
+                listener.onPostsPrepended(loaded.rows);
+                evictTailIfNeeded();
+                loading = false;
+                listener.onLoadFinished(retainedRows, endReached);
+            });
+            return;
+        }
+        String cursor = evicted.cursor;
+        PostController.getRecentPostsPage(pageSize, cursor, new PostController.PostsPageCallback() {
+            @Override
+            public void onSuccess(PostController.PostPage page) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                
+                Page loaded = new Page(cursor, page.getNextCursor(), applyFilter(page.getPosts()));
+                pages.addFirst(loaded);
+                retainedRows += loaded.rows.size();
+                if (!loaded.rows.isEmpty()) {
+                    listener.onPostsPrepended(loaded.rows);
+                }
+                evictTailIfNeeded();
+                
+                // Pages the filter emptied give the user nothing to scroll to, keep going
+                if (loaded.rows.isEmpty() && !evictedHead.isEmpty()) {
+                    fetchPrevious(requestGeneration);
+                    return;
+                }
+                
+                loading = false;
+                listener.onLoadFinished(retainedRows, endReached);
+            }
+            
+            @Override
+            public void onError(String message) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                // Keep the page so it can be requested again
+                evictedHead.add(evicted);
+                loading = false;
+                listener.onError(message);
+            }
+        });
+    }
+    
+    private List<Post> applyFilter(List<Post> posts) {
+        List<Post> rows = new ArrayList<>();
+        for (Post post : posts) {
+            if (filter == null || filter.accept(post)) {
+                rows.add(post);
+            }
+        }
+        return rows;
+    }
+    
+    private void evictHeadIfNeeded() {
+        while (retainedRows > maxRetainedRows && pages.size() > 1) {
+            Page evicted = pages.removeFirst();
+            evictedHead.add(evicted.withoutRows());
+            retainedRows -= evicted.rows.size();
+            if (!evicted.rows.isEmpty()) {
+                listener.onPostsEvicted(true, evicted.rows.size());
+            }
+        }
+    }
+    
+    private void evictTailIfNeeded() {
+        while (retainedRows > maxRetainedRows && pages.size() > 1) {
+            Page evicted = pages.removeLast();
+            retainedRows -= evicted.rows.size();
+            // The new last page's next cursor points back at the evicted page
+            endReached = false;
+            if (!evicted.rows.isEmpty()) {
+                listener.onPostsEvicted(false, evicted.rows.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Post;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PostSearchIndex - In-memory inverted index over post title, needs, location and description
+ * Text is folded (case, Latin accents, Arabic diacritics and letter variants) and split
+ * into tokens. A query term matches every token that contains it, like the substring
+ * search it replaces; a trigram table narrows the tokens to check. Terms are ANDed.
+ * In fuzzy mode a term also matches tokens a typo or two away, through FuzzyVocabulary.
+ * Matches are ranked by BM25 with the title and needs boosted over the description,
+ * newest first among equal scores; ranked answers are cached until the index changes.
+ * Not thread-safe: callers keep all access on one thread.
+ */
+public class PostSearchIndex {
+    
+    private static final int GRAM = 3;
+    
+    private static final float TITLE_BOOST = 3f;
+    private static final float NEEDS_BOOST = 2f;
+    private static final float LOCATION_BOOST = 1.5f;
+    private static final float DESCRIPTION_BOOST = 1f;
+    // A token reached only through a typo counts for less than one the term is in
+    private static final double FUZZY_DISCOUNT = 0.5;
+    private static final int CACHE_SIZE = 32;
+    
+    private static final Comparator<Post> NEWEST_FIRST = (p1, p2) -> Long.compare(createdAt(p2), createdAt(p1));
+    private static final Comparator<ScoredPost> BEST_FIRST = (s1, s2) -> {
+        int byScore = Double.compare(s2.score, s1.score);
+        return byScore != 0 ? byScore : NEWEST_FIRST.compare(s1.post, s2.post);
+    };
+    
+    private static final class ScoredPost {
+        final Post post;
+        final double score;
+        
+        ScoredPost(Post post, double score) {
+            this.post = post;
+            this.score = score;
+        }
+    }
+    
+    private final Map<String, Post> posts = new HashMap<>();
+    // Weighted tokens of each indexed post, for scoring and to unlink them on update or removal
+    private final Map<String, Bm25.Document> documents = new HashMap<>();
+    private final Map<String, Set<String>> postings = new HashMap<>();
+    private final Map<String, Set<String>> tokensByGram = new HashMap<>();
+    private final FuzzyVocabulary vocabulary = new FuzzyVocabulary();
+    private final Bm25 statistics = new Bm25();
+    // Ranked answers by mode, limit and folded query; any change to the index empties it
+    private final Map<String, List<Post>> rankedCache = new LinkedHashMap<String, List<Post>>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Post>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    
+    /**
+     * Index a post, replacing the previous version with the same ID
+     */
+    public void put(Post post) {
+        if (post == null || post.getId() == null) {
+            return;
+        }
+        remove(post.getId());
+        
+        Bm25.Document document = new Bm25.Document()
+                .field(tokenize(post.getTitle()), TITLE_BOOST)
+                .field(tokenize(needsText(post)), NEEDS_BOOST)
+                .field(tokenize(post.getLocation()), LOCATION_BOOST)
+                .field(tokenize(post.getDescription()), DESCRIPTION_BOOST);
+        
+        posts.put(post.getId(), post);
+        documents.put(post.getId(), document);
+        statistics.add(document);
+        rankedCache.clear();
+        for (String token : document.terms()) {
+            Set<String> postIds = postings.get(token);
+            if (postIds == null) {
+                postIds = new HashSet<>();
+                postings.put(token, postIds);
+                linkGrams(token);
+                vocabulary.add(token);
+            }
+            postIds.add(post.getId());
+        }
+    }
+    
+    public void remove(String postId) {
+        Bm25.Document document = documents.remove(postId);
+        posts.remove(postId);
+        if (document == null) {
+            return;
+        }
+        statistics.remove(document);
+        rankedCache.clear();
+        for (String token : document.terms()) {
+            Set<String> postIds = postings.get(token);
+            if (postIds == null) {
+                continue;
+            }
+            postIds.remove(postId);
+            if (postIds.isEmpty()) {
+                postings.remove(token);
+                unlinkGrams(token);
+                vocabulary.remove(token);
+            }
+        }
+    }
+    
+    public void clear() {
+        posts.clear();
+        documents.clear();
+        postings.clear();
+        tokensByGram.clear();
+        vocabulary.clear();
+        statistics.clear();
+        rankedCache.clear();
+    }
+    
+    public int size() {
+        return posts.size();
+    }
+    
+    /**
+     * Posts matching every term of the query, best match first.
+     * An empty query matches every post, newest first.
+     */
+    public List<Post> search(String query) {
+        return search(query, false, Integer.MAX_VALUE);
+    }
+    
+    public List<Post> search(String query, boolean fuzzy) {
+        return search(query, fuzzy, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * The best limit posts for the query; when fuzzy, a term also matches tokens
+     * within FuzzyVocabulary.maxDistance edits of it. The list is unmodifiable.
+     */
+    public List<Post> search(String query, boolean fuzzy, int limit) {
+        List<String> terms = tokenize(query);
+        String cacheKey = (fuzzy ? "~" : "=") + limit + ":" + String.join(" ", terms);
+        List<Post> cached = rankedCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        
+        List<Post> results;
+        if (terms.isEmpty()) {
+            results = TopK.select(posts.values(), NEWEST_FIRST, limit);
+        } else {
+            // Sum of each term's best token score, over posts that match every term
+            Map<String, Double> scores = null;
+            for (String term : terms) {
+                Map<String, Double> termScores = scoreTerm(term, fuzzy);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<String, Double> both = new HashMap<>();
+                    for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                        Double termScore = termScores.get(entry.getKey());
+                        if (termScore != null) {
+                            both.put(entry.getKey(), entry.getValue() + termScore);
+                        }
+                    }
+                    scores = both;
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+            
+            List<ScoredPost> scored = new ArrayList<>(scores.size());
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                scored.add(new ScoredPost(posts.get(entry.getKey()), entry.getValue()));
+            }
+            results = new ArrayList<>();
+            for (ScoredPost best : TopK.select(scored, BEST_FIRST, limit)) {
+                results.add(best.post);
+            }
+        }
+        results = Collections.unmodifiableList(results);
+        rankedCache.put(cacheKey, results);
+        return results;
+    }
+    
+    /**
+     * Whether a post outside the index would match the query, by the same rules as search.
+     * Lets callers narrow an earlier result set when the query is extended.
+     */
+    public static boolean matches(Post post, String query) {
+        List<String> tokens = new ArrayList<>();
+        tokens.addAll(tokenize(post.getTitle()));
+        tokens.addAll(tokenize(needsText(post)));
+        tokens.addAll(tokenize(post.getLocation()));
+        tokens.addAll(tokenize(post.getDescription()));
+        for (String term : tokenize(query)) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.contains(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Each post containing the term, scored by its best matching token
+     */
+    private Map<String, Double> scoreTerm(String term, boolean fuzzy) {
+        Map<String, Double> scores = new HashMap<>();
+        for (String token : tokensContaining(term)) {
+            addTokenScores(scores, token, 1.0);
+        }
+        if (fuzzy) {
+            for (String token : vocabulary.near(term)) {
+                addTokenScores(scores, token, FUZZY_DISCOUNT);
+            }
+        }
+        return scores;
+    }
+    
+    private void addTokenScores(Map<String, Double> scores, String token, double factor) {
+        for (String postId : postings.get(token)) {
+            double score = factor * statistics.score(token, documents.get(postId));
+            Double best = scores.get(postId);
+            if (best == null || score > best) {
+                scores.put(postId, score);
+            }
+        }
+    }
+    
+    private Set<String> tokensContaining(String term) {
+        if (term.length() < GRAM) {
+            // Too short for a trigram, check every distinct token
+            Set<String> tokens = new HashSet<>();
+            for (String token : postings.keySet()) {
+                if (token.contains(term)) {
+                    tokens.add(token);
+                }
+            }
+            return tokens;
+        }
+        
+        // Candidates share every trigram of the term; start from the rarest one
+        Set<String> candidates = null;
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            Set<String> tokens = tokensByGram.get(term.substring(i, i + GRAM));
+            if (tokens == null) {
+                return Collections.emptySet();
+            }
+            if (candidates == null || tokens.size() < candidates.size()) {
+                candidates = tokens;
+            }
+        }
+        Set<String> tokens = new HashSet<>();
+        for (String token : candidates) {
+            if (token.contains(term)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    private void linkGrams(String token) {
+        for (String gram : grams(token)) {
+            Set<String> tokens = tokensByGram.get(gram);
+            if (tokens == null) {
+                tokens = new HashSet<>();
+                tokensByGram.put(gram, tokens);
+            }
+            tokens.add(token);
+        }
+    }
+    
+    private void unlinkGrams(String token) {
+        for (String gram : grams(token)) {
+            Set<String> tokens = tokensByGram.get(gram);
+            if (tokens != null) {
+                tokens.remove(token);
+                if (tokens.isEmpty()) {
+                    tokensByGram.remove(gram);
+                }
+            }
+        }
+    }
+    
+    private static Set<String> grams(String token) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= token.length(); i++) {
+            grams.add(token.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+    
+    private static String needsText(Post post) {
+        return post.getNeeds() != null ? String.join(" ", post.getNeeds()) : null;
+    }
+    
+    private static long createdAt(Post post) {
+        return post.getCreatedAt() != null ? post.getCreatedAt() : 0L;
+    }
+    
+    /**
+     * Fold then split on anything that is not a letter or digit
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean inToken = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (inToken && start < 0) {
+                start = i;
+            } else if (!inToken && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+    
+    /**
+     * Lower-case and strip what users leave out when typing: Latin accents, Arabic
+     * harakat and tatweel, and the hamza/alef, ta marbuta and alef maqsura variants
+     */
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = Character.toLowerCase(decomposed.charAt(i));
+            if (Character.getType(c) == Character.NON_SPACING_MARK || c == 'ـ') {
+                continue;
+            }
+            switch (c) {
+                case 'آ': // alef with madda
+                case 'أ': // alef with hamza above
+                case 'إ': // alef with hamza below
+                case 'ٱ': // alef wasla
+                    folded.append('ا');
+                    break;
+                case 'ة': // ta marbuta
+                    folded.append('ه');
+                    break;
+                case 'ى': // alef maqsura
+                    folded.append('ي');
+                    break;
+                case 'œ': // oe ligature
+                    folded.append("oe");
+                    break;
+                case 'æ': // ae ligature
+                    folded.append("ae");
+                    break;
+                default:
+                    folded.append(c);
+            }
+        }
+        return folded.toString();
+    }
+}
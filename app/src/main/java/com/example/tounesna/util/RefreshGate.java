@@ -0,0 +1,47 @@
+package com.example.tounesna.util;
+
+import android.os.SystemClock;
+
+/**
+ * RefreshGate - Minimum interval between automatic refreshes of one screen
+ * A screen asks the gate before reloading on resume; within the interval of the
+ * last refresh the data on screen is kept. Explicit user actions reload without
+ * asking, and invalidate() lets the next resume through, e.g. after an edit.
+ */
+public class RefreshGate {
+    
+    interface Clock {
+        long now();
+    }
+    
+    private final long minIntervalMs;
+    private final Clock clock;
+    private boolean refreshed = false;
+    private long lastRefresh;
+    
+    public RefreshGate(long minIntervalMs) {
+        this(minIntervalMs, SystemClock::elapsedRealtime);
+    }
+    
+    RefreshGate(long minIntervalMs, Clock clock) {
+        this.minIntervalMs = minIntervalMs;
+        this.clock = clock;
+    }
+    
+    /**
+     * True, and counted as a refresh, when the interval has passed since the last one
+     */
+    public boolean tryRefresh() {
+        long now = clock.now();
+        if (refreshed && now - lastRefresh < minIntervalMs) {
+            return false;
+        }
+        refreshed = true;
+        lastRefresh = now;
+        return true;
+    }
+    
+    public void invalidate() {
+        refreshed = false;
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Priority;
+import com.example.tounesna.model.VolunteerRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RequestFilterIndex - Bitmap index over one load of volunteer requests
+ * Rows are numbered in createdAt order, so a date range is a row range found by
+ * binary search on the createdAt column. Status, location, priority and each need
+ * get a bitmap of their rows, kept as a sorted row array while that is smaller than
+ * one bit per row. A filter is then a few word-wise intersections instead of a
+ * pass over every request. The priority orders are row permutations sorted once
+ * per load, so a filter result comes out sorted by walking the permutation and
+ * keeping matched rows. Built once per load and read-only afterwards.
+ */
+public class RequestFilterIndex {
+    
+    /**
+     * Orders a filter result can be collected in; priority ties go newest first
+     */
+    public enum Order {
+        RECENT,
+        OLD,
+        PRIORITY_HIGH,
+        PRIORITY_LOW
+    }
+    
+    private final VolunteerRequest[] rows;
+    // createdAt of each row, ascending; a missing timestamp sorts as 0
+    private final long[] createdAt;
+    private final int wordCount;
+    
+    private final Map<String, Bitmap> byStatus = new HashMap<>();
+    private final Map<String, Bitmap> byLocation = new HashMap<>();
+    private final Map<Priority, Bitmap> byPriority = new HashMap<>();
+    private final Map<String, Bitmap> byNeed = new HashMap<>();
+    
+    // Rows in PRIORITY_HIGH and PRIORITY_LOW order
+    private final int[] highestPriorityFirst;
+    private final int[] lowestPriorityFirst;
+    
+    /**
+     * Rows of one value: a sorted row array when sparse, one bit per row when dense
+     */
+    private static final class Bitmap {
+        private final int[] sparseRows;
+        private final long[] words;
+        
+        private Bitmap(int[] sparseRows, long[] words) {
+            this.sparseRows = sparseRows;
+            this.words = words;
+        }
+        
+        static Bitmap of(int[] rows, int count, int rowCount) {
+            // An int costs 32 bits per member, a dense bitmap one bit per row
+            if ((long) count * Integer.SIZE < rowCount) {
+                return new Bitmap(Arrays.copyOf(rows, count), null);
+            }
+            long[] words = new long[wordsFor(rowCount)];
+            for (int i = 0; i < count; i++) {
+                words[rows[i] >>> 6] |= 1L << rows[i];
+            }
+            return new Bitmap(null, words);
+        }
+        
+        void andInto(long[] result, long[] scratch) {
+            if (words != null) {
+                for (int i = 0; i < result.length; i++) {
+                    result[i] &= words[i];
+                }
+                return;
+            }
+            Arrays.fill(scratch, 0L);
+            orInto(scratch);
+            for (int i = 0; i < result.length; i++) {
+                result[i] &= scratch[i];
+            }
+        }
+        
+        void orInto(long[] result) {
+            if (words != null) {
+                for (int i = 0; i < result.length; i++) {
+                    result[i] |= words[i];
+                }
+                return;
+            }
+            for (int row : sparseRows) {
+                result[row >>> 6] |= 1L << row;
+            }
+        }
+    }
+    
+    /**
+     * Growable row list used while building
+     */
+    private static final class RowList {
+        int[] rows = new int[8];
+        int count;
+        
+        void add(int row) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count++] = row;
+        }
+    }
+    
+    public RequestFilterIndex(List<VolunteerRequest> requests) {
+        List<VolunteerRequest> ordered = new ArrayList<>(requests);
+        Collections.sort(ordered, (r1, r2) -> Long.compare(createdAt(r1), createdAt(r2)));
+        rows = ordered.toArray(new VolunteerRequest[0]);
+        createdAt = new long[rows.length];
+        wordCount = wordsFor(rows.length);
+        
+        Map<String, RowList> statusRows = new HashMap<>();
+        Map<String, RowList> locationRows = new HashMap<>();
+        Map<Priority, RowList> priorityRows = new HashMap<>();
+        Map<String, RowList> needRows = new HashMap<>();
+        for (int row = 0; row < rows.length; row++) {
+            VolunteerRequest request = rows[row];
+            createdAt[row] = createdAt(request);
+            addRow(statusRows, request.getStatus(), row);
+            addRow(locationRows, request.getLocation(), row);
+            addRow(priorityRows, request.getPriority(), row);
+            if (request.getNeeds() != null) {
+                for (String need : request.getNeeds()) {
+                    RowList needList = needRows.get(need);
+                    // A need listed twice marks the row once
+                    if (needList == null || needList.count == 0 || needList.rows[needList.count - 1] != row) {
+                        addRow(needRows, need, row);
+                    }
+                }
+            }
+        }
+        freeze(statusRows, byStatus);
+        freeze(locationRows, byLocation);
+        freeze(priorityRows, byPriority);
+        freeze(needRows, byNeed);
+        
+        highestPriorityFirst = priorityOrder(true);
+        lowestPriorityFirst = priorityOrder(false);
+    }
+    
+    public int size() {
+        return rows.length;
+    }
+    
+    /**
+     * Rows matching every given criterion, as one bit per row; a null criterion matches all.
+     * Needs match when the request lists any of them; the date range is inclusive.
+     */
+    public long[] match(String status, String location, Priority priority,
+                        Collection<String> anyOfNeeds, Long from, Long to) {
+        long[] result = new long[wordCount];
+        int start = from != null ? lowerBound(from) : 0;
+        int end = to != null ? upperBound(to) : rows.length;
+        setRange(result, start, end);
+        
+        long[] scratch = new long[wordCount];
+        if (!intersect(result, scratch, byStatus, status)
+                || !intersect(result, scratch, byLocation, location)
+                || !intersect(result, scratch, byPriority, priority)) {
+            return new long[wordCount];
+        }
+        if (anyOfNeeds != null && !anyOfNeeds.isEmpty()) {
+            long[] needs = new long[wordCount];
+            for (String need : anyOfNeeds) {
+                Bitmap bitmap = byNeed.get(need);
+                if (bitmap != null) {
+                    bitmap.orInto(needs);
+                }
+            }
+            for (int i = 0; i < wordCount; i++) {
+                result[i] &= needs[i];
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * The matched requests in the given order
+     */
+    public List<VolunteerRequest> collect(long[] match, Order order) {
+        int remaining = count(match);
+        List<VolunteerRequest> requests = new ArrayList<>(remaining);
+        switch (order) {
+            case RECENT:
+                for (int i = match.length - 1; i >= 0; i--) {
+                    long word = match[i];
+                    while (word != 0) {
+                        int bit = 63 - Long.numberOfLeadingZeros(word);
+                        requests.add(rows[(i << 6) + bit]);
+                        word &= ~(1L << bit);
+                    }
+                }
+                break;
+            case OLD:
+                for (int i = 0; i < match.length; i++) {
+                    long word = match[i];
+                    while (word != 0) {
+                        requests.add(rows[(i << 6) + Long.numberOfTrailingZeros(word)]);
+                        word &= word - 1;
+                    }
+                }
+                break;
+            default:
+                int[] permutation = order == Order.PRIORITY_HIGH ? highestPriorityFirst : lowestPriorityFirst;
+                // Keep matched rows in permutation order, stopping at the last match
+                for (int i = 0; remaining > 0; i++) {
+                    int row = permutation[i];
+                    if ((match[row >>> 6] & (1L << row)) != 0) {
+                        requests.add(rows[row]);
+                        remaining--;
+                    }
+                }
+                break;
+        }
+        return requests;
+    }
+    
+    public static int count(long[] match) {
+        int count = 0;
+        for (long word : match) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+    
+    /**
+     * Intersect with the value's rows; false when no row has the value
+     */
+    private static <K> boolean intersect(long[] result, long[] scratch, Map<K, Bitmap> bitmaps, K value) {
+        if (value == null) {
+            return true;
+        }
+        Bitmap bitmap = bitmaps.get(value);
+        if (bitmap == null) {
+            return false;
+        }
+        bitmap.andInto(result, scratch);
+        return true;
+    }
+    
+    // First row created at or after the time
+    private int lowerBound(long time) {
+        int low = 0;
+        int high = createdAt.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (createdAt[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    // First row created after the time
+    private int upperBound(long time) {
+        int low = 0;
+        int high = createdAt.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (createdAt[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private static void setRange(long[] words, int start, int end) {
+        for (int row = start; row < end; ) {
+            int word = row >>> 6;
+            int bit = row & 63;
+            int bits = Math.min(64 - bit, end - row);
+            long mask = bits == 64 ? -1L : ((1L << bits) - 1) << bit;
+            words[word] |= mask;
+            row += bits;
+        }
+    }
+    
+    /**
+     * Rows by priority then newest first, sorted as packed primitive keys:
+     * the priority rank in the high half, the newest-first row rank in the low half.
+     * Rows are already in createdAt order, so the row rank stands in for the timestamp.
+     */
+    private int[] priorityOrder(boolean highestFirst) {
+        long[] keys = new long[rows.length];
+        for (int row = 0; row < rows.length; row++) {
+            int rank = priorityRank(rows[row].getPriority());
+            long priorityKey = highestFirst ? Priority.values().length - rank : rank;
+            keys[row] = priorityKey << 32 | (rows.length - 1 - row);
+        }
+        Arrays.sort(keys);
+        int[] permutation = new int[rows.length];
+        for (int i = 0; i < keys.length; i++) {
+            permutation[i] = rows.length - 1 - (int) keys[i];
+        }
+        return permutation;
+    }
+    
+    // A missing priority ranks below LOW
+    private static int priorityRank(Priority priority) {
+        return priority != null ? priority.ordinal() + 1 : 0;
+    }
+    
+    private static <K> void addRow(Map<K, RowList> rowLists, K value, int row) {
+        if (value == null) {
+            return;
+        }
+        RowList rowList = rowLists.get(value);
+        if (rowList == null) {
+            rowList = new RowList();
+            rowLists.put(value, rowList);
+        }
+        rowList.add(row);
+    }
+    
+    private <K> void freeze(Map<K, RowList> rowLists, Map<K, Bitmap> bitmaps) {
+        for (Map.Entry<K, RowList> entry : rowLists.entrySet()) {
+            bitmaps.put(entry.getKey(), Bitmap.of(entry.getValue().rows, entry.getValue().count, rows.length));
+        }
+    }
+    
+    private static int wordsFor(int rowCount) {
+        return (rowCount + 63) >>> 6;
+    }
+    
+    private static long createdAt(VolunteerRequest request) {
+        return request.getCreatedAt() != null ? request.getCreatedAt() : 0L;
+    }
+}
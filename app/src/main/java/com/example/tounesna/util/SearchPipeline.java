@@ -0,0 +1,197 @@
+package com.example.tounesna.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SearchPipeline - Search-as-you-type front end for one kind of result
+ * Keystrokes are debounced, so only the query the user pauses on is sent. Every
+ * request carries a sequence number and a response that is no longer the latest
+ * is dropped, so an old query can never overwrite a newer one. When the new query
+ * extends the one whose results are shown, those results are narrowed locally with
+ * the same predicate and shown at once; the source's ranked answer replaces them
+ * after the debounce. Approximate results, such as typo-tolerant matches, are never
+ * narrowed.
+ * Main thread only.
+ */
+public class SearchPipeline<T> {
+    
+    private static final long DEBOUNCE_DELAY = 300;
+    
+    public interface Source<T> {
+        void search(String query, Results<T> results);
+    }
+    
+    public interface Results<T> {
+        void onSuccess(List<T> items);
+        // Items the Matcher does not account for, so a longer query must ask the source again
+        void onApproximate(List<T> items);
+        void onError(String message);
+    }
+    
+    /**
+     * Must agree with the source: an item the source leaves out for a query must not match it here
+     */
+    public interface Matcher<T> {
+        boolean matches(T item, String query);
+    }
+    
+    public interface Listener<T> {
+        void onSearching(String query);
+        void onResults(String query, List<T> items);
+        void onError(String message);
+    }
+    
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Source<T> source;
+    private final Matcher<T> matcher;
+    private final Listener<T> listener;
+    
+    private int sequence;
+    private boolean inFlight;
+    // Latest query handed to the source
+    private String issuedQuery;
+    // Query shown and every result it has, before any filtering by the caller
+    private String shownQuery;
+    private List<T> shownResults;
+    private boolean shownExact;
+    private Runnable pending;
+    
+    public SearchPipeline(Source<T> source, Matcher<T> matcher, Listener<T> listener) {
+        this.source = source;
+        this.matcher = matcher;
+        this.listener = listener;
+    }
+    
+    /**
+     * A keystroke: searched after the user stops typing for a moment
+     */
+    public void setQuery(String query) {
+        schedule(normalize(query), DEBOUNCE_DELAY);
+    }
+    
+    /**
+     * An explicit submit: searched right away
+     */
+    public void submit(String query) {
+        schedule(normalize(query), 0);
+    }
+    
+    /**
+     * Drop the pending query and any response still on its way
+     */
+    public void cancel() {
+        cancelPending();
+        sequence++;
+        inFlight = false;
+        issuedQuery = shownQuery;
+    }
+    
+    private void schedule(String query, long delay) {
+        cancelPending();
+        if (query.equals(issuedQuery) && (inFlight || query.equals(shownQuery))) {
+            // Already answered, or the answer is on its way
+            if (!inFlight) {
+                listener.onResults(query, shownResults);
+            }
+            return;
+        }
+        // Narrowed results stay up while the ranked answer loads, so no progress for it
+        boolean narrowed = canNarrow(query) && narrow(query);
+        pending = () -> {
+            pending = null;
+            issue(query, !narrowed);
+        };
+        if (delay > 0) {
+            handler.postDelayed(pending, delay);
+        } else {
+            pending.run();
+        }
+    }
+    
+    /**
+     * Every predicate this pipeline serves matches substrings, so extending the
+     * query can only remove results; anything else needs the source again
+     */
+    private boolean canNarrow(String query) {
+        return shownResults != null && shownExact && !inFlight && query.startsWith(shownQuery);
+    }
+    
+    /**
+     * Returns false when nothing is left, leaving the source to try approximate matches
+     */
+    private boolean narrow(String query) {
+        List<T> narrowed = new ArrayList<>();
+        for (T item : shownResults) {
+            if (matcher.matches(item, query)) {
+                narrowed.add(item);
+            }
+        }
+        if (narrowed.isEmpty()) {
+            return false;
+        }
+        sequence++;
+        show(query, Collections.unmodifiableList(narrowed), true);
+        return true;
+    }
+    
+    private void issue(String query, boolean showProgress) {
+        int requestSequence = ++sequence;
+        issuedQuery = query;
+        inFlight = true;
+        if (showProgress) {
+            listener.onSearching(query);
+        }
+        source.search(query, new Results<T>() {
+            @Override
+            public void onSuccess(List<T> items) {
+                if (requestSequence != sequence) {
+                    return;
+                }
+                inFlight = false;
+                show(query, items, true);
+            }
+            
+            @Override
+            public void onApproximate(List<T> items) {
+                if (requestSequence != sequence) {
+                    return;
+                }
+                inFlight = false;
+                show(query, items, false);
+            }
+            
+            @Override
+            public void onError(String message) {
+                if (requestSequence != sequence) {
+                    return;
+                }
+                inFlight = false;
+                issuedQuery = shownQuery;
+                listener.onError(message);
+            }
+        });
+    }
+    
+    private void show(String query, List<T> items, boolean exact) {
+        shownQuery = query;
+        shownResults = items;
+        shownExact = exact;
+        listener.onResults(query, items);
+    }
+    
+    private void cancelPending() {
+        if (pending != null) {
+            handler.removeCallbacks(pending);
+            pending = null;
+        }
+    }
+    
+    private static String normalize(String query) {
+        return query != null ? query.trim().toLowerCase() : "";
+    }
+}
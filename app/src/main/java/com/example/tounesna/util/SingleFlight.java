@@ -0,0 +1,67 @@
+package com.example.tounesna.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SingleFlight - Merges identical queries that are in flight at the same time
+ * The first caller for a key starts the query; callers arriving before it answers
+ * wait on that same query, and the answer is handed to every one of them. Once it
+ * has answered the key is free again, so nothing is cached beyond the flight.
+ */
+public class SingleFlight<V> {
+    
+    public interface Callback<V> {
+        void onSuccess(V value);
+        void onError(String message);
+    }
+    
+    /**
+     * Starts the underlying query and reports its outcome once through done
+     */
+    public interface Call<V> {
+        void start(Callback<V> done);
+    }
+    
+    // Callers waiting per key, for keys whose query is in flight
+    private final Map<String, List<Callback<V>>> inFlight = new HashMap<>();
+    
+    public void run(String key, Call<V> call, Callback<V> callback) {
+        synchronized (this) {
+            List<Callback<V>> waiting = inFlight.get(key);
+            if (waiting != null) {
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            inFlight.put(key, waiting);
+        }
+        call.start(new Callback<V>() {
+            @Override
+            public void onSuccess(V value) {
+                for (Callback<V> waiter : takeWaiting(key)) {
+                    waiter.onSuccess(value);
+                }
+            }
+            
+            @Override
+            public void onError(String message) {
+                for (Callback<V> waiter : takeWaiting(key)) {
+                    waiter.onError(message);
+                }
+            }
+        });
+    }
+    
+    public synchronized boolean isInFlight(String key) {
+        return inFlight.containsKey(key);
+    }
+    
+    private synchronized List<Callback<V>> takeWaiting(String key) {
+        List<Callback<V>> waiting = inFlight.remove(key);
+        return waiting != null ? waiting : new ArrayList<>();
+    }
+}
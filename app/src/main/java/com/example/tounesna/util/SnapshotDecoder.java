@@ -0,0 +1,210 @@
+package com.example.tounesna.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.database.DataSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * SnapshotDecoder - Decodes, filters and sorts query results off the main thread
+ * Firebase delivers onDataChange on the main thread; controllers hand the raw
+ * snapshot here instead of walking it in place. Large result sets are split into
+ * chunks decoded on several cores, and only the finished, unmodifiable list is
+ * posted back to the main thread.
+ */
+public final class SnapshotDecoder {
+    private static final String TAG = "SnapshotDecoder";
+    
+    /**
+     * Decodes one child; returning null leaves the child out of the result.
+     * Runs on a worker thread, so it must not touch views.
+     */
+    public interface ChildDecoder<T> {
+        T decode(DataSnapshot child);
+    }
+    
+    /**
+     * Turns the decoded children, in snapshot order, into the delivered result.
+     * Runs on a worker thread.
+     */
+    public interface Finisher<T, R> {
+        R finish(List<T> decoded);
+    }
+    
+    public interface Callback<R> {
+        void onDecoded(R result);
+        void onError(String message);
+    }
+    
+    // Below this many children one thread decodes them all, chunking costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 200;
+    private static final int MIN_CHUNK_SIZE = 100;
+    private static final int QUEUE_CAPACITY = 32;
+    
+    // Leave a core for the UI thread; low-end devices get two workers
+    private static final int WORKERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    
+    private SnapshotDecoder() {
+    }
+    
+    /**
+     * Decode every child, keep the non-null ones in snapshot order, and deliver them unmodifiable
+     */
+    public static <T> void decodeChildren(DataSnapshot snapshot, ChildDecoder<T> decoder, Callback<List<T>> callback) {
+        decodeChildren(snapshot, decoder, (Comparator<? super T>) null, callback);
+    }
+    
+    /**
+     * Same as above, sorted with the comparator on the worker thread when it is not null
+     */
+    public static <T> void decodeChildren(DataSnapshot snapshot, ChildDecoder<T> decoder,
+                                          Comparator<? super T> order, Callback<List<T>> callback) {
+        decodeChildren(snapshot, decoder, decoded -> {
+            List<T> result = new ArrayList<>(decoded);
+            if (order != null) {
+                Collections.sort(result, order);
+            }
+            return Collections.unmodifiableList(result);
+        }, callback);
+    }
+    
+    public static <T, R> void decodeChildren(DataSnapshot snapshot, ChildDecoder<T> decoder,
+                                             Finisher<T, R> finisher, Callback<R> callback) {
+        Runnable job = () -> {
+            try {
+                List<T> decoded = decodeAll(snapshot, decoder);
+                R result = finisher.finish(decoded);
+                MAIN_HANDLER.post(() -> callback.onDecoded(result));
+            } catch (RuntimeException e) {
+                Log.e(TAG, "❌ Snapshot decoding failed", e);
+                String message = e.getMessage() != null ? e.getMessage() : e.toString();
+                MAIN_HANDLER.post(() -> callback.onError("Failed to read data: " + message));
+            }
+        };
+        
+        try {
+            EXECUTOR.execute(job);
+        } catch (RejectedExecutionException e) {
+            // Queue full: decode in place rather than drop the result
+            Log.w(TAG, "⚠️ Decode queue full, decoding on the calling thread");
+            job.run();
+        }
+    }
+    
+    private static <T> List<T> decodeAll(DataSnapshot snapshot, ChildDecoder<T> decoder) {
+        List<DataSnapshot> children = new ArrayList<>();
+        for (DataSnapshot child : snapshot.getChildren()) {
+            children.add(child);
+        }
+        
+        if (children.size() < PARALLEL_THRESHOLD) {
+            List<T> decoded = new ArrayList<>(children.size());
+            decodeRange(children, 0, children.size(), decoder, decoded);
+            return decoded;
+        }
+        return decodeInChunks(children, decoder);
+    }
+    
+    /**
+     * Chunks are claimed from a shared counter by helper tasks and by the calling
+     * worker itself, so the call finishes even when no helper ever gets a thread.
+     */
+    private static <T> List<T> decodeInChunks(List<DataSnapshot> children, ChildDecoder<T> decoder) {
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (children.size() + WORKERS - 1) / WORKERS);
+        int chunkCount = (children.size() + chunkSize - 1) / chunkSize;
+        
+        List<List<T>> chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            chunks.add(new ArrayList<>(chunkSize));
+        }
+        AtomicInteger nextChunk = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(chunkCount);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        
+        Runnable worker = () -> {
+            int chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+                try {
+                    int start = chunk * chunkSize;
+                    int end = Math.min(children.size(), start + chunkSize);
+                    decodeRange(children, start, end, decoder, chunks.get(chunk));
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        
+        for (int i = 1; i < chunkCount; i++) {
+            try {
+                EXECUTOR.execute(worker);
+            } catch (RejectedExecutionException e) {
+                // The calling worker picks up whatever no helper claims
+                break;
+            }
+        }
+        worker.run();
+        
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Decoding interrupted");
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        
+        List<T> decoded = new ArrayList<>(children.size());
+        for (List<T> chunk : chunks) {
+            decoded.addAll(chunk);
+        }
+        return decoded;
+    }
+    
+    private static <T> void decodeRange(List<DataSnapshot> children, int start, int end,
+                                        ChildDecoder<T> decoder, List<T> out) {
+        for (int i = start; i < end; i++) {
+            T item = decoder.decode(children.get(i));
+            if (item != null) {
+                out.add(item);
+            }
+        }
+    }
+    
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "snapshot-decode-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(WORKERS, WORKERS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.tounesna.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * TopK - Selects the best k items with a bounded heap
+ * The heap holds the current best k with the weakest on top, so each candidate
+ * costs O(log k) and the rest of the candidates are never sorted.
+ */
+public final class TopK {
+    
+    private TopK() {
+    }
+    
+    /**
+     * The k items that come first in order, in that order
+     */
+    public static <T> List<T> select(Iterable<T> items, Comparator<? super T> order, int k) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        // Reversed: the head is the item that would be dropped first
+        Comparator<? super T> weakestFirst = Collections.reverseOrder(order);
+        PriorityQueue<T> heap = new PriorityQueue<>(Math.min(k, 64), weakestFirst);
+        for (T item : items) {
+            if (heap.size() < k) {
+                heap.add(item);
+            } else if (order.compare(item, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+        List<T> selected = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            selected.add(heap.poll());
+        }
+        Collections.reverse(selected);
+        return selected;
+    }
+}
@@ -17,11 +17,16 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.tounesna.R;
+import com.example.tounesna.controller.AuthController;
 import com.example.tounesna.controller.FollowController;
 import com.example.tounesna.controller.NotificationController;
-import com.example.tounesna.controller.PostController;
 import com.example.tounesna.model.Post;
 import com.example.tounesna.model.PostCategory;
+import com.example.tounesna.model.Volunteer;
+import com.example.tounesna.util.FeedRanker;
+import com.example.tounesna.util.MirrorSync;
+import com.example.tounesna.util.PostFeedLoader;
+import com.example.tounesna.util.RefreshGate;
 import com.example.tounesna.util.SessionManager;
 import com.example.tounesna.util.TunisianCities;
 import com.example.tounesna.view.adapter.PostAdapter;
@@ -29,6 +34,7 @@ import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -38,6 +44,12 @@ import java.util.List;
  */
 public class DashboardActivity extends AppCompatActivity {
     
+    private static final int FEED_PAGE_SIZE = 20;
+    private static final int FEED_MAX_RETAINED_POSTS = 200;
+    private static final int FEED_PREFETCH_DISTANCE = 5;
+    // Returning to the dashboard sooner than this keeps the feed as it is
+    private static final long FEED_MIN_REFRESH_MS = 30_000;
+    
     private Toolbar toolbar;
     private ChipGroup chipGroupCategories;
     private ChipGroup chipGroupLocations;
@@ -48,10 +60,19 @@ public class DashboardActivity extends AppCompatActivity {
     
     private SessionManager sessionManager;
     private PostAdapter postAdapter;
+    private PostFeedLoader feedLoader;
     private List<Post> posts;
     private List<String> selectedCategories;
     private String selectedLocation;
     private List<String> followedOrgIds;
+    // Volunteers only: their profile and the ranker built from it and their follows
+    private Volunteer volunteerProfile;
+    private FeedRanker feedRanker;
+    // Follow list and profile reads still out before the feed loads, and the refresh they belong to
+    private int pendingFeedInputs;
+    private int feedInputsRound;
+    private ValueEventListener unreadCountListener;
+    private final RefreshGate feedRefresh = new RefreshGate(FEED_MIN_REFRESH_MS);
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -73,14 +94,17 @@ public class DashboardActivity extends AppCompatActivity {
         setupRecyclerView();
         setupBottomNavigation();
         setupFAB();
-        
-        loadFollowedOrganizations();
-        loadPosts();
-        updateNotificationBadge();
+        // The first load happens in onResume
     }
     
-    private void updateNotificationBadge() {
-        NotificationController.getUnreadCount(sessionManager.getUserId(), new NotificationController.UnreadCountCallback() {
+    /**
+     * Keep the badge in sync with the user's unread counter while the dashboard is visible
+     */
+    private void subscribeNotificationBadge() {
+        if (unreadCountListener != null) {
+            return;
+        }
+        unreadCountListener = NotificationController.addUnreadCountListener(sessionManager.getUserId(), new NotificationController.UnreadCountCallback() {
             @Override
             public void onSuccess(int unreadCount) {
                 runOnUiThread(() -> {
@@ -108,6 +132,13 @@ public class DashboardActivity extends AppCompatActivity {
         });
     }
     
+    private void unsubscribeNotificationBadge() {
+        if (unreadCountListener != null) {
+            NotificationController.removeUnreadCountListener(sessionManager.getUserId(), unreadCountListener);
+            unreadCountListener = null;
+        }
+    }
+    
     private void initViews() {
         toolbar = findViewById(R.id.toolbar);
         chipGroupCategories = findViewById(R.id.chipGroupCategories);
@@ -227,8 +258,60 @@ public class DashboardActivity extends AppCompatActivity {
             startActivity(intent);
         });
         
-        rvPosts.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        rvPosts.setLayoutManager(layoutManager);
         rvPosts.setAdapter(postAdapter);
+        
+        feedLoader = new PostFeedLoader(FEED_PAGE_SIZE, FEED_MAX_RETAINED_POSTS, new PostFeedLoader.Listener() {
+            @Override
+            public void onPostsAppended(List<Post> newPosts) {
+                runOnUiThread(() -> postAdapter.appendPosts(newPosts));
+            }
+            
+            @Override
+            public void onPostsPrepended(List<Post> newPosts) {
+                runOnUiThread(() -> postAdapter.prependPosts(newPosts));
+            }
+            
+            @Override
+            public void onPostsEvicted(boolean fromHead, int count) {
+                runOnUiThread(() -> {
+                    int start = fromHead ? 0 : postAdapter.getItemCount() - count;
+                    postAdapter.removePosts(start, count);
+                });
+            }
+            
+            @Override
+            public void onLoadFinished(int visibleCount, boolean endReached) {
+                runOnUiThread(() -> updateEmptyState());
+            }
+            
+            @Override
+            public void onError(String message) {
+                runOnUiThread(() -> {
+                    Toast.makeText(DashboardActivity.this, "Error loading posts: " + message, Toast.LENGTH_SHORT).show();
+                    updateEmptyState();
+                });
+            }
+        });
+        
+        // Fetch the next page when the user nears the end of the loaded rows
+        rvPosts.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0) {
+                    int lastVisible = layoutManager.findLastVisibleItemPosition();
+                    if (lastVisible >= postAdapter.getItemCount() - FEED_PREFETCH_DISTANCE) {
+                        feedLoader.loadNext();
+                    }
+                } else if (dy < 0 && feedLoader.hasEvictedHead()) {
+                    int firstVisible = layoutManager.findFirstVisibleItemPosition();
+                    if (firstVisible <= FEED_PREFETCH_DISTANCE) {
+                        feedLoader.loadPrevious();
+                    }
+                }
+            }
+        });
     }
     
     private void setupBottomNavigation() {
@@ -274,6 +357,8 @@ public class DashboardActivity extends AppCompatActivity {
         if (sessionManager.isOrganization()) {
             fabCreatePost.setVisibility(View.VISIBLE);
             fabCreatePost.setOnClickListener(v -> {
+                // The new post should show up on return
+                feedRefresh.invalidate();
                 // Navigate to CreatePostActivity
                 Intent intent = new Intent(DashboardActivity.this, CreatePostActivity.class);
                 startActivity(intent);
@@ -284,83 +369,107 @@ public class DashboardActivity extends AppCompatActivity {
     }
     
     private void loadPosts() {
-        // Load recent posts from Firebase
-        PostController.getRecentPosts(50, new PostController.PostsCallback() {
+        // Restart the feed from the newest page with the current filters
+        postAdapter.clearPosts();
+        List<String> categories = new ArrayList<>(selectedCategories);
+        String location = selectedLocation;
+        feedLoader.reset(post -> {
+            // Location filter
+            if (location != null && !location.isEmpty()) {
+                if (post.getLocation() == null || !post.getLocation().equals(location)) {
+                    return false;
+                }
+            }
+            
+            // Category filter
+            if (!categories.isEmpty()) {
+                PostCategory postCategory = post.getCategory();
+                if (postCategory == null || !categories.contains(postCategory.toString())) {
+                    return false;
+                }
+            }
+            return true;
+        }, feedRanker);
+        feedLoader.loadNext();
+    }
+    
+    private void updateEmptyState() {
+        if (posts.isEmpty() && !feedLoader.isLoading()) {
+            rvPosts.setVisibility(View.GONE);
+            llEmptyState.setVisibility(View.VISIBLE);
+        } else {
+            rvPosts.setVisibility(View.VISIBLE);
+            llEmptyState.setVisibility(View.GONE);
+        }
+    }
+    
+    /**
+     * Read the volunteer's follow list and profile, then load the feed once,
+     * ranked by both; a failed read leaves its previous value in place
+     */
+    private void loadRankedFeed() {
+        int round = ++feedInputsRound;
+        pendingFeedInputs = 2;
+        loadFollowedOrganizations(round);
+        loadVolunteerProfile(round);
+    }
+    
+    private void onFeedInputLoaded(int round) {
+        if (round != feedInputsRound || --pendingFeedInputs > 0) {
+            return;
+        }
+        if (volunteerProfile != null) {
+            feedRanker = new FeedRanker(followedOrgIds, volunteerProfile.getLocation(),
+                volunteerProfile.getInterests(), volunteerProfile.getSkills());
+        }
+        loadPosts();
+    }
+    
+    private void loadFollowedOrganizations(int round) {
+        FollowController.getFollowedOrganizations(sessionManager.getUserId(), new FollowController.FollowsCallback() {
             @Override
-            public void onSuccess(List<Post> fetchedPosts) {
+            public void onSuccess(List<com.example.tounesna.model.Follow> follows) {
+                List<String> orgIds = new ArrayList<>();
+                for (com.example.tounesna.model.Follow follow : follows) {
+                    orgIds.add(follow.getOrganizationId());
+                }
                 runOnUiThread(() -> {
-                    posts.clear();
-                    
-                    // Apply filters
-                    for (Post post : fetchedPosts) {
-                        boolean matchesFilters = true;
-                        
-                        // Location filter
-                        if (selectedLocation != null && !selectedLocation.isEmpty()) {
-                            if (post.getLocation() == null || !post.getLocation().equals(selectedLocation)) {
-                                matchesFilters = false;
-                            }
-                        }
-                        
-                        // Category filter
-                        if (!selectedCategories.isEmpty()) {
-                            PostCategory postCategory = post.getCategory();
-                            if (postCategory == null || !selectedCategories.contains(postCategory.toString())) {
-                                matchesFilters = false;
-                            }
-                        }
-                        
-                        if (matchesFilters) {
-                            posts.add(post);
-                        }
-                    }
-                    
-                    postAdapter.updatePosts(posts);
-                    
-                    // Show/hide empty state
-                    if (posts.isEmpty()) {
-                        rvPosts.setVisibility(View.GONE);
-                        llEmptyState.setVisibility(View.VISIBLE);
-                    } else {
-                        rvPosts.setVisibility(View.VISIBLE);
-                        llEmptyState.setVisibility(View.GONE);
-                    }
+                    followedOrgIds.clear();
+                    followedOrgIds.addAll(orgIds);
+                    onFeedInputLoaded(round);
                 });
             }
             
             @Override
             public void onError(String message) {
-                runOnUiThread(() -> {
-                    Toast.makeText(DashboardActivity.this, "Error loading posts: " + message, Toast.LENGTH_SHORT).show();
-                    llEmptyState.setVisibility(View.VISIBLE);
-                });
+                // The feed is ranked with the follow list it already had
+                android.util.Log.e("DashboardActivity", "Error loading follows: " + message);
+                runOnUiThread(() -> onFeedInputLoaded(round));
             }
         });
     }
     
-    private void loadFollowedOrganizations() {
-        if (sessionManager.isVolunteer()) {
-            String volunteerId = sessionManager.getUserId();
-            if (volunteerId != null) {
-                FollowController.getFollowedOrganizations(volunteerId, new FollowController.FollowsCallback() {
-                    @Override
-                    public void onSuccess(List<com.example.tounesna.model.Follow> follows) {
-                        followedOrgIds.clear();
-                        for (com.example.tounesna.model.Follow follow : follows) {
-                            followedOrgIds.add(follow.getOrganizationId());
-                        }
-                        // Reload posts with updated follow list
-                        runOnUiThread(() -> loadPosts());
-                    }
-                    
-                    @Override
-                    public void onError(String message) {
-                        android.util.Log.e("DashboardActivity", "Error loading follows: " + message);
-                        runOnUiThread(() -> loadPosts());
-                    }
+    private void loadVolunteerProfile(int round) {
+        AuthController.getVolunteerById(sessionManager.getUserId(), new AuthController.UserDataCallback() {
+            @Override
+            public void onVolunteerLoaded(Volunteer volunteer) {
+                runOnUiThread(() -> {
+                    volunteerProfile = volunteer;
+                    onFeedInputLoaded(round);
                 });
             }
-        }
+            
+            @Override
+            public void onOrganizationLoaded(com.example.tounesna.model.Organization organization) {
+            }
+            
+            @Override
+            public void onError(String message) {
+                // Without a profile the feed stays newest first
+                android.util.Log.e("DashboardActivity", "Error loading profile: " + message);
+                runOnUiThread(() -> onFeedInputLoaded(round));
+            }
+        });
     }
     
     private void navigateToLogin() {
@@ -378,8 +487,21 @@ public class DashboardActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        updateNotificationBadge();
-        loadFollowedOrganizations();
-        loadPosts(); // Refresh posts when returning to dashboard
+        subscribeNotificationBadge();
+        MirrorSync.sync(sessionManager.getUserId(), sessionManager.isOrganization());
+        if (feedRefresh.tryRefresh()) {
+            // Refresh posts when returning to dashboard; volunteers' feed waits for what ranks it
+            if (sessionManager.isVolunteer() && sessionManager.getUserId() != null) {
+                loadRankedFeed();
+            } else {
+                loadPosts();
+            }
+        }
+    }
+    
+    @Override
+    protected void onPause() {
+        super.onPause();
+        unsubscribeNotificationBadge();
     }
 }
@@ -8,6 +8,11 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.tounesna.R;
+import com.example.tounesna.controller.FollowController;
+import com.example.tounesna.controller.NotificationController;
+import com.example.tounesna.controller.PostController;
+import com.example.tounesna.controller.RatingController;
+import com.example.tounesna.util.EntityCaches;
 
 /**
  * Debug Activity - For testing and verifying database operations
@@ -17,6 +22,7 @@ public class DebugActivity extends AppCompatActivity {
     private TextView tvDatabaseStats;
     private Button btnRefreshStats;
     private Button btnExportDatabase;
+    private Button btnMigrateData;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -26,16 +32,137 @@ public class DebugActivity extends AppCompatActivity {
         tvDatabaseStats = findViewById(R.id.tvDatabaseStats);
         btnRefreshStats = findViewById(R.id.btnRefreshStats);
         btnExportDatabase = findViewById(R.id.btnExportDatabase);
+        btnMigrateData = findViewById(R.id.btnMigrateData);
         
         btnRefreshStats.setOnClickListener(v -> refreshStats());
         btnExportDatabase.setOnClickListener(v -> exportDatabase());
+        btnMigrateData.setOnClickListener(v -> migrateData());
         
         // Load stats on start
         refreshStats();
     }
     
     private void refreshStats() {
-        tvDatabaseStats.setText("Firebase Debug - Stats not available");
+        tvDatabaseStats.setText("Entity cache\n" + EntityCaches.getStats());
+    }
+    
+    private void migrateData() {
+        btnMigrateData.setEnabled(false);
+        tvDatabaseStats.setText("Migrating follows...");
+        
+        FollowController.migrateFollows(new FollowController.MigrationCallback() {
+            @Override
+            public void onSuccess(int migratedCount) {
+                runOnUiThread(() -> tvDatabaseStats.setText("Follows migrated: " + migratedCount
+                        + "\nReconciling follower counts..."));
+                reconcileFollowerCounts(migratedCount);
+            }
+            
+            @Override
+            public void onError(String message) {
+                runOnUiThread(() -> {
+                    btnMigrateData.setEnabled(true);
+                    tvDatabaseStats.setText("Follow migration failed: " + message);
+                });
+            }
+        });
+    }
+    
+    private void reconcileFollowerCounts(int migratedCount) {
+        FollowController.reconcileFollowerCounts(new FollowController.ReconcileCallback() {
+            @Override
+            public void onSuccess(int correctedCount) {
+                String summary = "Follows migrated: " + migratedCount
+                        + "\nFollower counts corrected: " + correctedCount;
+                runOnUiThread(() -> tvDatabaseStats.setText(summary + "\nRebuilding rating aggregates..."));
+                rebuildRatingAggregates(summary);
+            }
+            
+            @Override
+            public void onError(String message) {
+                runOnUiThread(() -> {
+                    btnMigrateData.setEnabled(true);
+                    tvDatabaseStats.setText("Follower count reconciliation failed: " + message);
+                });
+            }
+        });
+    }
+    
+    private void rebuildRatingAggregates(String summary) {
+        RatingController.rebuildRatingAggregates(new RatingController.RebuildCallback() {
+            @Override
+            public void onSuccess(int organizationCount) {
+                String ratingSummary = summary + "\nRating aggregates rebuilt: " + organizationCount;
+                runOnUiThread(() -> tvDatabaseStats.setText(ratingSummary + "\nMigrating notifications..."));
+                migrateNotifications(ratingSummary);
+            }
+            
+            @Override
+            public void onError(String message) {
+                runOnUiThread(() -> {
+                    btnMigrateData.setEnabled(true);
+                    tvDatabaseStats.setText(summary + "\nRating aggregate rebuild failed: " + message);
+                });
+            }
+        });
+    }
+    
+    private void migrateNotifications(String summary) {
+        NotificationController.migrateNotifications(new NotificationController.MigrationCallback() {
+            @Override
+            public void onSuccess(int migratedCount) {
+                String notificationSummary = summary + "\nNotifications moved to inboxes: " + migratedCount;
+                runOnUiThread(() -> tvDatabaseStats.setText(notificationSummary + "\nRebuilding unread counters..."));
+                rebuildUnreadCounts(notificationSummary);
+            }
+            
+            @Override
+            public void onError(String message) {
+                runOnUiThread(() -> {
+                    btnMigrateData.setEnabled(true);
+                    tvDatabaseStats.setText(summary + "\nNotification migration failed: " + message);
+                });
+            }
+        });
+    }
+    
+    private void rebuildUnreadCounts(String summary) {
+        NotificationController.rebuildUnreadCounts(new NotificationController.UnreadCountCallback() {
+            @Override
+            public void onSuccess(int userCount) {
+                String unreadSummary = summary + "\nUnread counters rebuilt: " + userCount;
+                runOnUiThread(() -> tvDatabaseStats.setText(unreadSummary + "\nEmbedding organization summaries..."));
+                backfillPostSummaries(unreadSummary);
+            }
+            
+            @Override
+            public void onError(String message) {
+                runOnUiThread(() -> {
+                    btnMigrateData.setEnabled(true);
+                    tvDatabaseStats.setText(summary + "\nUnread counter rebuild failed: " + message);
+                });
+            }
+        });
+    }
+    
+    private void backfillPostSummaries(String summary) {
+        PostController.backfillOrganizationSummaries(new PostController.FanOutCallback() {
+            @Override
+            public void onSuccess(int updatedPosts) {
+                runOnUiThread(() -> {
+                    btnMigrateData.setEnabled(true);
+                    tvDatabaseStats.setText(summary + "\nPosts with organization summary: " + updatedPosts);
+                });
+            }
+            
+            @Override
+            public void onError(String message) {
+                runOnUiThread(() -> {
+                    btnMigrateData.setEnabled(true);
+                    tvDatabaseStats.setText(summary + "\nOrganization summary backfill failed: " + message);
+                });
+            }
+        });
     }
     
     private void exportDatabase() {
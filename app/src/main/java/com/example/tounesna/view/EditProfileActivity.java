@@ -427,6 +427,12 @@ public class EditProfileActivity extends AppCompatActivity {
         ref.updateChildren(updates).addOnCompleteListener(task -> {
             runOnUiThread(() -> {
                 if (task.isSuccessful()) {
+                    if (isOrganization) {
+                        com.example.tounesna.util.EntityCaches.organizations().invalidate(sessionManager.getUserId());
+                        refreshPostSummaries();
+                    } else {
+                        com.example.tounesna.util.EntityCaches.volunteers().invalidate(sessionManager.getUserId());
+                    }
                     Toast.makeText(EditProfileActivity.this, "Profile updated successfully!", Toast.LENGTH_SHORT).show();
                     btnSaveProfile.setEnabled(true);
                     btnSaveProfile.setText("Save Changes");
@@ -443,6 +449,22 @@ public class EditProfileActivity extends AppCompatActivity {
         });
     }
 
+    private void refreshPostSummaries() {
+        // Posts embed the organization's name and picture, push the new values to them
+        com.example.tounesna.controller.PostController.refreshOrganizationSummary(sessionManager.getUserId(),
+            new com.example.tounesna.controller.PostController.FanOutCallback() {
+                @Override
+                public void onSuccess(int updatedPosts) {
+                    android.util.Log.d("EditProfile", "Refreshed organization summary on " + updatedPosts + " posts");
+                }
+                
+                @Override
+                public void onError(String message) {
+                    android.util.Log.e("EditProfile", "Failed to refresh post summaries: " + message);
+                }
+            });
+    }
+
     private List<String> getSelectedInterests() {
         List<String> interests = new ArrayList<>();
 
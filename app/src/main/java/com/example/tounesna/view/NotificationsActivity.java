@@ -19,6 +19,8 @@ import com.example.tounesna.R;
 import com.example.tounesna.adapter.NotificationAdapter;
 import com.example.tounesna.controller.NotificationController;
 import com.example.tounesna.model.Notification;
+import com.example.tounesna.util.LocalMirror;
+import com.example.tounesna.util.RefreshGate;
 import com.example.tounesna.util.SessionManager;
 
 import java.util.ArrayList;
@@ -26,6 +28,10 @@ import java.util.List;
 
 public class NotificationsActivity extends AppCompatActivity implements NotificationAdapter.OnNotificationClickListener {
     
+    private static final int MIRRORED_NOTIFICATIONS = 50;
+    // Returning to the inbox sooner than this keeps it as it is
+    private static final long INBOX_MIN_REFRESH_MS = 10_000;
+    
     private RecyclerView recyclerNotifications;
     private ProgressBar progressBar;
     private TextView tvEmpty;
@@ -33,6 +39,7 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
     private NotificationAdapter adapter;
     private List<Notification> notifications;
     
+    private final RefreshGate inboxRefresh = new RefreshGate(INBOX_MIN_REFRESH_MS);
     private SessionManager sessionManager;
     private String userId;
     private String userType;
@@ -49,7 +56,7 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
         
         initViews();
         setupRecyclerView();
-        loadNotifications();
+        // The first load happens in onResume
     }
     
     private void initViews() {
@@ -80,6 +87,7 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
         tvEmpty.setVisibility(View.GONE);
         recyclerNotifications.setVisibility(View.GONE);
         btnMarkAllRead.setVisibility(View.GONE);
+        showMirroredNotifications();
         
         NotificationController.getNotificationsForUser(userId, new NotificationController.NotificationsCallback() {
             @Override
@@ -92,16 +100,14 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
                         recyclerNotifications.setVisibility(View.GONE);
                         btnMarkAllRead.setVisibility(View.GONE);
                     } else {
-                        notifications.clear();
-                        notifications.addAll(loadedNotifications);
-                        adapter.notifyDataSetChanged();
+                        adapter.updateNotifications(loadedNotifications);
                         
                         recyclerNotifications.setVisibility(View.VISIBLE);
                         tvEmpty.setVisibility(View.GONE);
                         
                         // Show "Mark all as read" button only if there are unread notifications
                         boolean hasUnread = false;
-                        for (Notification notification : notifications) {
+                        for (Notification notification : loadedNotifications) {
                             if (!notification.isRead()) {
                                 hasUnread = true;
                                 break;
@@ -123,6 +129,23 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
         });
     }
     
+    /**
+     * Render the mirrored inbox while the network copy loads
+     */
+    private void showMirroredNotifications() {
+        LocalMirror mirror = LocalMirror.getInstance();
+        if (mirror == null || !notifications.isEmpty()) {
+            return;
+        }
+        mirror.read(m -> m.getNotifications(userId, MIRRORED_NOTIFICATIONS), cached -> {
+            if (cached.isEmpty() || !notifications.isEmpty() || isFinishing()) {
+                return;
+            }
+            adapter.updateNotifications(cached);
+            recyclerNotifications.setVisibility(View.VISIBLE);
+        });
+    }
+    
     private void markAllAsRead() {
         progressBar.setVisibility(View.VISIBLE);
         
@@ -150,7 +173,9 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
     public void onNotificationClick(Notification notification) {
         // Mark as read
         if (!notification.isRead()) {
-            NotificationController.markAsRead(notification.getId(), new NotificationController.NotificationCallback() {
+            // Show the new read state on return
+            inboxRefresh.invalidate();
+            NotificationController.markAsRead(userId, notification.getId(), new NotificationController.NotificationCallback() {
                 @Override
                 public void onSuccess(String notificationId) {
                     // Successfully marked as read
@@ -213,6 +238,8 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
     @Override
     protected void onResume() {
         super.onResume();
-        loadNotifications(); // Reload when returning to this activity
+        if (inboxRefresh.tryRefresh()) {
+            loadNotifications(); // Reload when returning to this activity
+        }
     }
 }
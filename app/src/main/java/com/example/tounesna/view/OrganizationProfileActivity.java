@@ -239,11 +239,9 @@ public class OrganizationProfileActivity extends AppCompatActivity {
             @Override
             public void onSuccess(List<Post> orgPosts) {
                 runOnUiThread(() -> {
-                    posts.clear();
-                    posts.addAll(orgPosts);
-                    postAdapter.notifyDataSetChanged();
+                    postAdapter.updatePosts(orgPosts);
                     
-                    if (posts.isEmpty()) {
+                    if (orgPosts.isEmpty()) {
                         tvNoPosts.setVisibility(View.VISIBLE);
                         recyclerViewPosts.setVisibility(View.GONE);
                     } else {
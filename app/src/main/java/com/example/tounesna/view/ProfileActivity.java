@@ -21,8 +21,10 @@ import androidx.appcompat.widget.Toolbar;
 import com.bumptech.glide.Glide;
 import com.example.tounesna.R;
 import com.example.tounesna.controller.AuthController;
+import com.example.tounesna.controller.PostController;
 import com.example.tounesna.model.Organization;
 import com.example.tounesna.model.Volunteer;
+import com.example.tounesna.util.EntityCaches;
 import com.example.tounesna.util.SessionManager;
 
 import androidx.annotation.NonNull;
@@ -399,6 +401,7 @@ public class ProfileActivity extends AppCompatActivity {
         // Update Firebase with local image URI
         java.util.Map<String, Object> updates = new java.util.HashMap<>();
         updates.put("profilePictureUrl", imageUrl);
+        updates.put("updatedAt", System.currentTimeMillis());
         
         String path = isOrganization ? "organizations" : "volunteers";
         com.example.tounesna.util.FirebaseManager.getDatabase().getReference()
@@ -410,8 +413,11 @@ public class ProfileActivity extends AppCompatActivity {
                     if (task.isSuccessful()) {
                         if (isOrganization) {
                             currentOrganization.setProfilePictureUrl(imageUrl);
+                            EntityCaches.organizations().invalidate(sessionManager.getUserId());
+                            refreshPostSummaries();
                         } else {
                             currentVolunteer.setProfilePictureUrl(imageUrl);
+                            EntityCaches.volunteers().invalidate(sessionManager.getUserId());
                         }
                         Toast.makeText(ProfileActivity.this, "Profile picture updated!", Toast.LENGTH_SHORT).show();
                         progressBar.setVisibility(View.GONE);
@@ -427,6 +433,21 @@ public class ProfileActivity extends AppCompatActivity {
             });
     }
     
+    private void refreshPostSummaries() {
+        // Posts embed the organization's picture, push the new one to them
+        PostController.refreshOrganizationSummary(sessionManager.getUserId(), new PostController.FanOutCallback() {
+            @Override
+            public void onSuccess(int updatedPosts) {
+                android.util.Log.d("ProfileActivity", "Refreshed organization summary on " + updatedPosts + " posts");
+            }
+            
+            @Override
+            public void onError(String message) {
+                android.util.Log.e("ProfileActivity", "Failed to refresh post summaries: " + message);
+            }
+        });
+    }
+    
     private void showLogoutDialog() {
         new AlertDialog.Builder(this)
             .setTitle("Logout")
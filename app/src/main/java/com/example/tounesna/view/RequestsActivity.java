@@ -22,6 +22,8 @@ import com.example.tounesna.R;
 import com.example.tounesna.controller.VolunteerRequestController;
 import com.example.tounesna.model.Priority;
 import com.example.tounesna.model.VolunteerRequest;
+import com.example.tounesna.util.LocalMirror;
+import com.example.tounesna.util.RequestFilterIndex;
 import com.example.tounesna.util.SessionManager;
 import com.example.tounesna.util.TunisianCities;
 import com.example.tounesna.view.adapter.VolunteerRequestAdapter;
@@ -31,8 +33,6 @@ import com.google.android.material.chip.ChipGroup;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 
@@ -58,12 +58,14 @@ public class RequestsActivity extends AppCompatActivity {
     private VolunteerRequestAdapter adapter;
     private List<VolunteerRequest> allRequests;
     private List<VolunteerRequest> filteredRequests;
+    // Rebuilt whenever allRequests is replaced, so filter changes only intersect bitmaps
+    private RequestFilterIndex requestIndex;
     
     // Filter values
     private String selectedLocation = null;
     private Priority selectedPriority = null;
     private List<String> selectedNeeds = new ArrayList<>();
-    private String sortOrder = "recent"; // recent, old, priority_high, priority_low
+    private RequestFilterIndex.Order sortOrder = RequestFilterIndex.Order.RECENT;
     private Long startDate = null;
     private Long endDate = null;
     private boolean isFirstLoad = true;
@@ -197,10 +199,10 @@ public class RequestsActivity extends AppCompatActivity {
             @Override
             public void onItemSelected(android.widget.AdapterView<?> parent, View view, int position, long id) {
                 switch (position) {
-                    case 0: sortOrder = "recent"; break;
-                    case 1: sortOrder = "old"; break;
-                    case 2: sortOrder = "priority_high"; break;
-                    case 3: sortOrder = "priority_low"; break;
+                    case 0: sortOrder = RequestFilterIndex.Order.RECENT; break;
+                    case 1: sortOrder = RequestFilterIndex.Order.OLD; break;
+                    case 2: sortOrder = RequestFilterIndex.Order.PRIORITY_HIGH; break;
+                    case 3: sortOrder = RequestFilterIndex.Order.PRIORITY_LOW; break;
                 }
                 applyFilters();
             }
@@ -256,6 +258,7 @@ public class RequestsActivity extends AppCompatActivity {
         
         String orgId = sessionManager.getUserId();
         Log.d(TAG, "Loading requests for organization: " + orgId);
+        showMirroredRequests(orgId);
         
         VolunteerRequestController.getRequestsForOrganization(orgId, new VolunteerRequestController.RequestsCallback() {
             @Override
@@ -267,6 +270,7 @@ public class RequestsActivity extends AppCompatActivity {
                     }
                     allRequests.clear();
                     allRequests.addAll(requests);
+                    requestIndex = new RequestFilterIndex(allRequests);
                     progressBar.setVisibility(View.GONE);
                     applyFilters();
                 });
@@ -283,62 +287,36 @@ public class RequestsActivity extends AppCompatActivity {
         });
     }
     
-    private void applyFilters() {
-        if (allRequests == null) {
+    /**
+     * Render the mirrored requests while the network copy loads
+     */
+    private void showMirroredRequests(String orgId) {
+        LocalMirror mirror = LocalMirror.getInstance();
+        if (mirror == null || !allRequests.isEmpty()) {
             return;
         }
-        
-        filteredRequests.clear();
-        
-        for (VolunteerRequest request : allRequests) {
-            // Only show pending requests (hide approved/rejected)
-            if (!"PENDING".equals(request.getStatus())) {
-                continue;
-            }
-            
-            // Location filter
-            if (selectedLocation != null && !selectedLocation.equals(request.getLocation())) {
-                continue;
-            }
-            
-            // Priority filter
-            if (selectedPriority != null && request.getPriority() != selectedPriority) {
-                continue;
-            }
-            
-            // Needs filter
-            if (!selectedNeeds.isEmpty()) {
-                boolean hasMatchingNeed = false;
-                if (request.getNeeds() != null) {
-                    for (String need : selectedNeeds) {
-                        if (request.getNeeds().contains(need)) {
-                            hasMatchingNeed = true;
-                            break;
-                        }
-                    }
-                }
-                if (!hasMatchingNeed) {
-                    continue;
-                }
-            }
-            
-            // Date range filter
-            if (startDate != null && request.getCreatedAt() < startDate) {
-                continue;
+        mirror.read(m -> m.getRequestsForOrganization(orgId), cached -> {
+            if (cached.isEmpty() || !allRequests.isEmpty() || isFinishing()) {
+                return;
             }
-            if (endDate != null && request.getCreatedAt() > endDate) {
-                continue;
-            }
-            
-            filteredRequests.add(request);
+            allRequests.addAll(cached);
+            requestIndex = new RequestFilterIndex(allRequests);
+            applyFilters();
+        });
+    }
+    
+    private void applyFilters() {
+        if (requestIndex == null) {
+            return;
         }
         
-        // Apply sorting
-        sortRequests();
+        // Only show pending requests (hide approved/rejected)
+        long[] matches = requestIndex.match("PENDING", selectedLocation, selectedPriority,
+            selectedNeeds, startDate, endDate);
+        List<VolunteerRequest> matched = requestIndex.collect(matches, sortOrder);
+        adapter.updateRequests(matched);
         
-        adapter.notifyDataSetChanged();
-        
-        if (filteredRequests.isEmpty()) {
+        if (matched.isEmpty()) {
             tvEmptyState.setVisibility(View.VISIBLE);
             recyclerView.setVisibility(View.GONE);
         } else {
@@ -347,38 +325,6 @@ public class RequestsActivity extends AppCompatActivity {
         }
     }
     
-    private void sortRequests() {
-        switch (sortOrder) {
-            case "recent":
-                Collections.sort(filteredRequests, (r1, r2) -> 
-                    Long.compare(r2.getCreatedAt(), r1.getCreatedAt()));
-                break;
-            case "old":
-                Collections.sort(filteredRequests, (r1, r2) -> 
-                    Long.compare(r1.getCreatedAt(), r2.getCreatedAt()));
-                break;
-            case "priority_high":
-                Collections.sort(filteredRequests, (r1, r2) -> 
-                    Integer.compare(getPriorityValue(r2.getPriority()), getPriorityValue(r1.getPriority())));
-                break;
-            case "priority_low":
-                Collections.sort(filteredRequests, (r1, r2) -> 
-                    Integer.compare(getPriorityValue(r1.getPriority()), getPriorityValue(r2.getPriority())));
-                break;
-        }
-    }
-    
-    private int getPriorityValue(Priority priority) {
-        if (priority == null) return 0;
-        switch (priority) {
-            case VERY_HIGH: return 4;
-            case HIGH: return 3;
-            case MEDIUM: return 2;
-            case LOW: return 1;
-            default: return 0;
-        }
-    }
-    
     private void showDateRangePicker() {
         Calendar calendar = Calendar.getInstance();
         
@@ -414,7 +360,7 @@ public class RequestsActivity extends AppCompatActivity {
         selectedLocation = null;
         selectedPriority = null;
         selectedNeeds.clear();
-        sortOrder = "recent";
+        sortOrder = RequestFilterIndex.Order.RECENT;
         startDate = null;
         endDate = null;
         tvSelectedDates.setVisibility(View.GONE);
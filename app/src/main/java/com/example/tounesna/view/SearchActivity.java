@@ -1,12 +1,15 @@
 package com.example.tounesna.view;
 
 import android.content.Intent;
+import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.ProgressBar;
 import android.widget.SearchView;
+import android.widget.SimpleCursorAdapter;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -22,6 +25,8 @@ import com.example.tounesna.controller.SearchController;
 import com.example.tounesna.model.Organization;
 import com.example.tounesna.model.Post;
 import com.example.tounesna.model.PostCategory;
+import com.example.tounesna.util.PostSearchIndex;
+import com.example.tounesna.util.SearchPipeline;
 import com.example.tounesna.util.TunisianCities;
 import com.example.tounesna.view.adapter.OrganizationAdapter;
 import com.example.tounesna.view.adapter.PostAdapter;
@@ -42,23 +47,39 @@ public class SearchActivity extends AppCompatActivity {
     private ProgressBar progressBar;
     private TextView tvEmptyState;
     
+    private static final String SUGGESTION_ORGANIZATION_ID = "organization_id";
+    private static final String SUGGESTION_NAME = "name";
+    private static final String[] SUGGESTION_COLUMNS = {"_id", SUGGESTION_ORGANIZATION_ID, SUGGESTION_NAME};
+    
     private String searchType = "Posts"; // "Posts" or "Organizations"
     private String currentQuery = "";
     
+    private PostAdapter postAdapter;
+    private OrganizationAdapter organizationAdapter;
+    private SearchPipeline<Post> postPipeline;
+    private SearchPipeline<Organization> organizationPipeline;
+    // Unfiltered results of the query last shown, kept so filter changes need no new search
+    private List<Post> postResults;
+    private List<Organization> organizationResults;
+    // Reused on every keystroke for organization name suggestions
+    private final Organization[] suggestions = new Organization[SearchController.AUTOCOMPLETE_SIZE];
+    private SimpleCursorAdapter suggestionAdapter;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_search);
         
         initViews();
+        setupPipelines();
         setupToolbar();
         setupSearchType();
         setupLocationSpinner();
         setupSearchView();
         setupRecyclerView();
         
-        // Initial search for all posts
-        performSearch();
+        // Initial search for all posts; later keystrokes narrow it locally
+        postPipeline.submit(currentQuery);
     }
     
     private void initViews() {
@@ -94,7 +115,7 @@ public class SearchActivity extends AppCompatActivity {
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
                 searchType = searchTypes[position];
                 setupFilterSpinner();
-                performSearch();
+                onSearchTypeChanged();
             }
             
             @Override
@@ -118,7 +139,7 @@ public class SearchActivity extends AppCompatActivity {
         spinnerLocation.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                performSearch();
+                applyFilters();
             }
             
             @Override
@@ -146,7 +167,7 @@ public class SearchActivity extends AppCompatActivity {
         spinnerFilter.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                performSearch();
+                applyFilters();
             }
             
             @Override
@@ -160,37 +181,212 @@ public class SearchActivity extends AppCompatActivity {
             @Override
             public boolean onQueryTextSubmit(String query) {
                 currentQuery = query;
-                performSearch();
+                activePipeline().submit(currentQuery);
                 return true;
             }
             
             @Override
             public boolean onQueryTextChange(String newText) {
                 currentQuery = newText;
-                // Perform search on text change for real-time results
-                performSearch();
+                showSuggestions();
+                // Debounced: only the query the user pauses on is searched
+                activePipeline().setQuery(currentQuery);
+                return true;
+            }
+        });
+        
+        suggestionAdapter = new SimpleCursorAdapter(this, android.R.layout.simple_list_item_1, null,
+            new String[] {SUGGESTION_NAME}, new int[] {android.R.id.text1}, 0);
+        searchView.setSuggestionsAdapter(suggestionAdapter);
+        searchView.setOnSuggestionListener(new SearchView.OnSuggestionListener() {
+            @Override
+            public boolean onSuggestionSelect(int position) {
+                return false;
+            }
+            
+            @Override
+            public boolean onSuggestionClick(int position) {
+                Cursor cursor = suggestionAdapter.getCursor();
+                if (cursor != null && cursor.moveToPosition(position)) {
+                    Intent intent = new Intent(SearchActivity.this, OrganizationProfileActivity.class);
+                    intent.putExtra(OrganizationProfileActivity.EXTRA_ORGANIZATION_ID,
+                        cursor.getString(cursor.getColumnIndexOrThrow(SUGGESTION_ORGANIZATION_ID)));
+                    startActivity(intent);
+                }
                 return true;
             }
         });
+        
+        // Load the organization index early so the first suggestions are instant
+        SearchController.attachOrganizationIndex();
+    }
+    
+    /**
+     * Organization names completing the typed prefix, best rated first, straight from the index
+     */
+    private void showSuggestions() {
+        MatrixCursor cursor = new MatrixCursor(SUGGESTION_COLUMNS);
+        if (searchType.equals("Organizations") && !currentQuery.trim().isEmpty()) {
+            int count = SearchController.completeOrganizations(currentQuery, suggestions);
+            for (int i = 0; i < count; i++) {
+                cursor.addRow(new Object[] {i, suggestions[i].getId(), suggestions[i].getName()});
+            }
+        }
+        suggestionAdapter.changeCursor(cursor);
     }
     
     private void setupRecyclerView() {
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        
+        postAdapter = new PostAdapter(new ArrayList<>(), post -> {
+            Intent intent = new Intent(SearchActivity.this, PostDetailActivity.class);
+            intent.putExtra(PostDetailActivity.EXTRA_POST_ID, post.getId());
+            startActivity(intent);
+        });
+        organizationAdapter = new OrganizationAdapter(this, new ArrayList<>(), org -> {
+            // Open organization profile
+            Intent intent = new Intent(SearchActivity.this, OrganizationProfileActivity.class);
+            intent.putExtra(OrganizationProfileActivity.EXTRA_ORGANIZATION_ID, org.getId());
+            startActivity(intent);
+        });
     }
     
-    private void performSearch() {
-        progressBar.setVisibility(View.VISIBLE);
-        tvEmptyState.setVisibility(View.GONE);
-        recyclerView.setVisibility(View.GONE);
+    private void setupPipelines() {
+        postPipeline = new SearchPipeline<>(
+            (query, results) -> PostController.searchPosts(query, new PostController.PostsCallback() {
+                @Override
+                public void onSuccess(List<Post> posts) {
+                    if (!posts.isEmpty() || query.isEmpty()) {
+                        results.onSuccess(posts);
+                        return;
+                    }
+                    // Nothing matched as typed: retry allowing a typo
+                    PostController.searchPosts(query, true, new PostController.PostsCallback() {
+                        @Override
+                        public void onSuccess(List<Post> closePosts) {
+                            results.onApproximate(closePosts);
+                        }
+                        
+                        @Override
+                        public void onError(String message) {
+                            results.onError(message);
+                        }
+                    });
+                }
+                
+                @Override
+                public void onError(String message) {
+                    results.onError(message);
+                }
+            }),
+            PostSearchIndex::matches,
+            new SearchPipeline.Listener<Post>() {
+                @Override
+                public void onSearching(String query) {
+                    showLoading();
+                }
+                
+                @Override
+                public void onResults(String query, List<Post> posts) {
+                    postResults = posts;
+                    showPosts();
+                }
+                
+                @Override
+                public void onError(String message) {
+                    showError(message);
+                }
+            });
         
+        organizationPipeline = new SearchPipeline<>(
+            (query, results) -> SearchController.searchOrganizations(query, new SearchController.OrganizationsCallback() {
+                @Override
+                public void onSuccess(List<Organization> organizations) {
+                    if (!organizations.isEmpty() || query.isEmpty()) {
+                        results.onSuccess(organizations);
+                        return;
+                    }
+                    // Nothing matched as typed: retry allowing a typo
+                    SearchController.searchOrganizations(query, true, new SearchController.OrganizationsCallback() {
+                        @Override
+                        public void onSuccess(List<Organization> closeOrganizations) {
+                            results.onApproximate(closeOrganizations);
+                        }
+                        
+                        @Override
+                        public void onError(String message) {
+                            results.onError(message);
+                        }
+                    });
+                }
+                
+                @Override
+                public void onError(String message) {
+                    results.onError(message);
+                }
+            }),
+            SearchController::matchesOrganization,
+            new SearchPipeline.Listener<Organization>() {
+                @Override
+                public void onSearching(String query) {
+                    showLoading();
+                }
+                
+                @Override
+                public void onResults(String query, List<Organization> organizations) {
+                    organizationResults = organizations;
+                    showOrganizations();
+                }
+                
+                @Override
+                public void onError(String message) {
+                    showError(message);
+                }
+            });
+    }
+    
+    private SearchPipeline<?> activePipeline() {
+        return searchType.equals("Organizations") ? organizationPipeline : postPipeline;
+    }
+    
+    private void onSearchTypeChanged() {
+        // The other type's response is no longer wanted
         if (searchType.equals("Organizations")) {
-            searchOrganizations();
+            postPipeline.cancel();
         } else {
-            searchPosts();
+            organizationPipeline.cancel();
         }
+        showSuggestions();
+        activePipeline().submit(currentQuery);
     }
     
-    private void searchOrganizations() {
+    /**
+     * Filters only narrow the results already loaded for the query, no new search needed
+     */
+    private void applyFilters() {
+        if (searchType.equals("Organizations")) {
+            if (organizationResults != null) {
+                showOrganizations();
+            }
+        } else if (postResults != null) {
+            showPosts();
+        }
+    }
+    
+    private void showLoading() {
+        progressBar.setVisibility(View.VISIBLE);
+        tvEmptyState.setVisibility(View.GONE);
+        recyclerView.setVisibility(View.GONE);
+    }
+    
+    private void showError(String message) {
+        progressBar.setVisibility(View.GONE);
+        tvEmptyState.setText("Error: " + message);
+        tvEmptyState.setVisibility(View.VISIBLE);
+        recyclerView.setVisibility(View.GONE);
+    }
+    
+    private void showOrganizations() {
         // Get rating filter
         String filterText = spinnerFilter.getSelectedItem().toString();
         Double minRating = null;
@@ -210,58 +406,37 @@ public class SearchActivity extends AppCompatActivity {
         // Get location filter
         String locationText = spinnerLocation.getSelectedItem().toString();
         String location = locationText.equals("All Locations") ? null : locationText;
-        final Double finalMinRating = minRating;
         
-        SearchController.searchOrganizations(currentQuery, new SearchController.OrganizationsCallback() {
-            @Override
-            public void onSuccess(List<Organization> results) {
-                // Filter by rating
-                List<Organization> filteredResults = new ArrayList<>();
-                for (Organization org : results) {
-                    boolean matchesRating = finalMinRating == null || 
-                        (org.getRating() != null && org.getRating() >= finalMinRating);
-                    boolean matchesLocation = location == null || location.equals(org.getLocation());
-                    
-                    if (matchesRating && matchesLocation) {
-                        filteredResults.add(org);
-                    }
-                }
-                
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(View.GONE);
-                    
-                    if (filteredResults.isEmpty()) {
-                        tvEmptyState.setText("No organizations found");
-                        tvEmptyState.setVisibility(View.VISIBLE);
-                        recyclerView.setVisibility(View.GONE);
-                    } else {
-                        tvEmptyState.setVisibility(View.GONE);
-                        recyclerView.setVisibility(View.VISIBLE);
-                        
-                        OrganizationAdapter adapter = new OrganizationAdapter(SearchActivity.this, filteredResults, org -> {
-                            // Open organization profile
-                            Intent intent = new Intent(SearchActivity.this, OrganizationProfileActivity.class);
-                            intent.putExtra(OrganizationProfileActivity.EXTRA_ORGANIZATION_ID, org.getId());
-                            startActivity(intent);
-                        });
-                        recyclerView.setAdapter(adapter);
-                    }
-                });
+        // Filter by rating
+        List<Organization> filteredResults = new ArrayList<>();
+        for (Organization org : organizationResults) {
+            boolean matchesRating = minRating == null || 
+                (org.getRating() != null && org.getRating() >= minRating);
+            boolean matchesLocation = location == null || location.equals(org.getLocation());
+            
+            if (matchesRating && matchesLocation) {
+                filteredResults.add(org);
             }
+        }
+        
+        progressBar.setVisibility(View.GONE);
+        
+        if (filteredResults.isEmpty()) {
+            tvEmptyState.setText("No organizations found");
+            tvEmptyState.setVisibility(View.VISIBLE);
+            recyclerView.setVisibility(View.GONE);
+        } else {
+            tvEmptyState.setVisibility(View.GONE);
+            recyclerView.setVisibility(View.VISIBLE);
             
-            @Override
-            public void onError(String message) {
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(View.GONE);
-                    tvEmptyState.setText("Error: " + message);
-                    tvEmptyState.setVisibility(View.VISIBLE);
-                    recyclerView.setVisibility(View.GONE);
-                });
+            organizationAdapter.updateOrganizations(filteredResults);
+            if (recyclerView.getAdapter() != organizationAdapter) {
+                recyclerView.setAdapter(organizationAdapter);
             }
-        });
+        }
     }
     
-    private void searchPosts() {
+    private void showPosts() {
         // Get category filter
         String filterText = spinnerFilter.getSelectedItem().toString();
         PostCategory category = null;
@@ -278,54 +453,39 @@ public class SearchActivity extends AppCompatActivity {
         String locationText = spinnerLocation.getSelectedItem().toString();
         String location = locationText.equals("All Locations") ? null : locationText;
         
-        final PostCategory finalCategory = category;
-        
-        PostController.searchPosts(currentQuery, new PostController.PostsCallback() {
-            @Override
-            public void onSuccess(List<Post> results) {
-                // Filter by category and location
-                List<Post> filteredResults = new ArrayList<>();
-                for (Post post : results) {
-                    boolean matchesCategory = finalCategory == null || 
-                        (post.getCategory() != null && finalCategory.toString().equals(post.getCategory()));
-                    boolean matchesLocation = location == null || 
-                        (post.getLocation() != null && location.equals(post.getLocation()));
-                    
-                    if (matchesCategory && matchesLocation) {
-                        filteredResults.add(post);
-                    }
-                }
-                
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(View.GONE);
-                    
-                    if (filteredResults.isEmpty()) {
-                        tvEmptyState.setText("No posts found");
-                        tvEmptyState.setVisibility(View.VISIBLE);
-                        recyclerView.setVisibility(View.GONE);
-                    } else {
-                        tvEmptyState.setVisibility(View.GONE);
-                        recyclerView.setVisibility(View.VISIBLE);
-                        
-                        PostAdapter adapter = new PostAdapter(filteredResults, post -> {
-                            Intent intent = new Intent(SearchActivity.this, PostDetailActivity.class);
-                            intent.putExtra(PostDetailActivity.EXTRA_POST_ID, post.getId());
-                            startActivity(intent);
-                        });
-                        recyclerView.setAdapter(adapter);
-                    }
-                });
+        // Filter by category and location
+        List<Post> filteredResults = new ArrayList<>();
+        for (Post post : postResults) {
+            boolean matchesCategory = category == null || category == post.getCategory();
+            boolean matchesLocation = location == null || 
+                (post.getLocation() != null && location.equals(post.getLocation()));
+            
+            if (matchesCategory && matchesLocation) {
+                filteredResults.add(post);
             }
+        }
+        
+        progressBar.setVisibility(View.GONE);
+        
+        if (filteredResults.isEmpty()) {
+            tvEmptyState.setText("No posts found");
+            tvEmptyState.setVisibility(View.VISIBLE);
+            recyclerView.setVisibility(View.GONE);
+        } else {
+            tvEmptyState.setVisibility(View.GONE);
+            recyclerView.setVisibility(View.VISIBLE);
             
-            @Override
-            public void onError(String message) {
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(View.GONE);
-                    tvEmptyState.setText("Error: " + message);
-                    tvEmptyState.setVisibility(View.VISIBLE);
-                    recyclerView.setVisibility(View.GONE);
-                });
+            postAdapter.updatePosts(filteredResults);
+            if (recyclerView.getAdapter() != postAdapter) {
+                recyclerView.setAdapter(postAdapter);
             }
-        });
+        }
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        postPipeline.cancel();
+        organizationPipeline.cancel();
     }
 }
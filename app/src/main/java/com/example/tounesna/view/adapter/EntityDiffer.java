@@ -0,0 +1,149 @@
+package com.example.tounesna.view.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.tounesna.model.BaseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * EntityDiffer - Keeps an adapter's list and applies new lists as minimal updates
+ * A submitted list is diffed against the shown one on a background thread and only
+ * the resulting inserts, removals, moves and changes reach the adapter, so unchanged
+ * rows keep their views and images. Rows are identified by entity id, and the
+ * adapter's stable id is a 64-bit hash of it, so nothing is kept per id ever shown.
+ * The list passed in stays the one shown: callers
+ * read it but change it only through submit() or edit().
+ */
+public class EntityDiffer<T extends BaseEntity> {
+    
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    
+    // FNV-1a 64-bit parameters
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    /**
+     * Same item when the entity id matches; subclasses compare the bound fields
+     */
+    public abstract static class ItemCallback<T extends BaseEntity> extends DiffUtil.ItemCallback<T> {
+        @Override
+        public boolean areItemsTheSame(@NonNull T oldItem, @NonNull T newItem) {
+            return oldItem.getId() != null && oldItem.getId().equals(newItem.getId());
+        }
+    }
+    
+    private final RecyclerView.Adapter<?> adapter;
+    private final ItemCallback<T> callback;
+    private final List<T> items;
+    // Bumped by every change so a diff finishing after a newer one is dropped
+    private int generation;
+    
+    public EntityDiffer(RecyclerView.Adapter<?> adapter, List<T> items, ItemCallback<T> callback) {
+        this.adapter = adapter;
+        this.items = items;
+        this.callback = callback;
+        adapter.setHasStableIds(true);
+    }
+    
+    public T get(int position) {
+        return items.get(position);
+    }
+    
+    public int size() {
+        return items.size();
+    }
+    
+    public long getItemId(int position) {
+        String id = items.get(position).getId();
+        if (id == null) {
+            return RecyclerView.NO_ID;
+        }
+        return stableId(id);
+    }
+    
+    static long stableId(String id) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // NO_ID is reserved by RecyclerView
+        return hash != RecyclerView.NO_ID ? hash : 0L;
+    }
+    
+    /**
+     * Show newItems; must be called on the main thread
+     */
+    public void submit(List<T> newItems) {
+        int submitted = ++generation;
+        List<T> oldSnapshot = new ArrayList<>(items);
+        List<T> newSnapshot = new ArrayList<>(newItems);
+        
+        // Nothing to match against: apply at once
+        if (oldSnapshot.isEmpty() || newSnapshot.isEmpty()) {
+            items.clear();
+            items.addAll(newSnapshot);
+            if (!oldSnapshot.isEmpty()) {
+                adapter.notifyItemRangeRemoved(0, oldSnapshot.size());
+            } else if (!newSnapshot.isEmpty()) {
+                adapter.notifyItemRangeInserted(0, newSnapshot.size());
+            }
+            return;
+        }
+        
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                @Override
+                public int getOldListSize() {
+                    return oldSnapshot.size();
+                }
+                
+                @Override
+                public int getNewListSize() {
+                    return newSnapshot.size();
+                }
+                
+                @Override
+                public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                    return callback.areItemsTheSame(oldSnapshot.get(oldPosition), newSnapshot.get(newPosition));
+                }
+                
+                @Override
+                public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                    return callback.areContentsTheSame(oldSnapshot.get(oldPosition), newSnapshot.get(newPosition));
+                }
+                
+                @Override
+                public Object getChangePayload(int oldPosition, int newPosition) {
+                    return callback.getChangePayload(oldSnapshot.get(oldPosition), newSnapshot.get(newPosition));
+                }
+            });
+            MAIN_HANDLER.post(() -> {
+                if (submitted != generation) {
+                    return;
+                }
+                items.clear();
+                items.addAll(newSnapshot);
+                result.dispatchUpdatesTo(adapter);
+            });
+        });
+    }
+    
+    /**
+     * The shown list for a direct edit the caller notifies itself; cancels pending diffs
+     */
+    public List<T> edit() {
+        generation++;
+        return items;
+    }
+}
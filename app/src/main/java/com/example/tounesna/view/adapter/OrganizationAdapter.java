@@ -15,6 +15,7 @@ import com.example.tounesna.R;
 import com.example.tounesna.model.Organization;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
  * OrganizationAdapter - RecyclerView adapter for organizations
@@ -25,18 +26,22 @@ public class OrganizationAdapter extends RecyclerView.Adapter<OrganizationAdapte
         void onOrganizationClick(Organization organization);
     }
     
+    // Change payload flags for the parts of a row that can be rebound alone
+    private static final int PAYLOAD_RATING = 1;
+    private static final int PAYLOAD_FOLLOWERS = 1 << 1;
+    
     private Context context;
-    private List<Organization> organizations;
+    private final EntityDiffer<Organization> differ;
     private OnOrganizationClickListener listener;
     
     public OrganizationAdapter(Context context, List<Organization> organizations) {
         this.context = context;
-        this.organizations = organizations;
+        this.differ = new EntityDiffer<>(this, organizations, new OrganizationDiff());
     }
     
     public OrganizationAdapter(Context context, List<Organization> organizations, OnOrganizationClickListener listener) {
         this.context = context;
-        this.organizations = organizations;
+        this.differ = new EntityDiffer<>(this, organizations, new OrganizationDiff());
         this.listener = listener;
     }
     
@@ -49,14 +54,48 @@ public class OrganizationAdapter extends RecyclerView.Adapter<OrganizationAdapte
     
     @Override
     public void onBindViewHolder(@NonNull OrganizationViewHolder holder, int position) {
-        Organization org = organizations.get(position);
+        Organization org = differ.get(position);
         
         holder.tvName.setText(org.getName());
         holder.tvDomain.setText(org.getDomain());
         holder.tvLocation.setText(org.getLocation());
         holder.tvEmail.setText(org.getEmail());
         
-        // Rating
+        bindRating(holder, org);
+        
+        // Member count
+        if (org.getMemberCount() > 0) {
+            holder.tvMemberCount.setText(org.getMemberCount() + " members");
+            holder.tvMemberCount.setVisibility(View.VISIBLE);
+        } else {
+            holder.tvMemberCount.setVisibility(View.GONE);
+        }
+        
+        bindFollowers(holder, org);
+        bindClick(holder, org);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull OrganizationViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            super.onBindViewHolder(holder, position, payloads);
+            return;
+        }
+        int changed = 0;
+        for (Object payload : payloads) {
+            changed |= (Integer) payload;
+        }
+        Organization org = differ.get(position);
+        if ((changed & PAYLOAD_RATING) != 0) {
+            bindRating(holder, org);
+        }
+        if ((changed & PAYLOAD_FOLLOWERS) != 0) {
+            bindFollowers(holder, org);
+        }
+        bindClick(holder, org);
+    }
+    
+    private void bindRating(OrganizationViewHolder holder, Organization org) {
         if (org.getRating() != null && org.getRating() > 0) {
             holder.rbRating.setRating(org.getRating().floatValue());
             holder.rbRating.setVisibility(View.VISIBLE);
@@ -71,21 +110,15 @@ public class OrganizationAdapter extends RecyclerView.Adapter<OrganizationAdapte
             holder.rbRating.setVisibility(View.GONE);
             holder.tvRatingCount.setVisibility(View.GONE);
         }
-        
-        // Member count
-        if (org.getMemberCount() > 0) {
-            holder.tvMemberCount.setText(org.getMemberCount() + " members");
-            holder.tvMemberCount.setVisibility(View.VISIBLE);
-        } else {
-            holder.tvMemberCount.setVisibility(View.GONE);
-        }
-        
-        // Followers count
+    }
+    
+    private void bindFollowers(OrganizationViewHolder holder, Organization org) {
         int followersCount = org.getFollowersCount();
         holder.tvFollowersCount.setText(followersCount + (followersCount == 1 ? " follower" : " followers"));
         holder.tvFollowersCount.setVisibility(View.VISIBLE);
-        
-        // Click listener
+    }
+    
+    private void bindClick(OrganizationViewHolder holder, Organization org) {
         if (listener != null) {
             holder.cardView.setOnClickListener(v -> listener.onOrganizationClick(org));
         }
@@ -93,7 +126,54 @@ public class OrganizationAdapter extends RecyclerView.Adapter<OrganizationAdapte
     
     @Override
     public int getItemCount() {
-        return organizations.size();
+        return differ.size();
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return differ.getItemId(position);
+    }
+    
+    /**
+     * Show newOrganizations, rebinding only the rows that changed
+     */
+    public void updateOrganizations(List<Organization> newOrganizations) {
+        differ.submit(newOrganizations);
+    }
+    
+    /**
+     * Compares the fields an organization row shows
+     */
+    private static class OrganizationDiff extends EntityDiffer.ItemCallback<Organization> {
+        @Override
+        public boolean areContentsTheSame(@NonNull Organization oldOrg, @NonNull Organization newOrg) {
+            return sameFixedFields(oldOrg, newOrg) && changedParts(oldOrg, newOrg) == 0;
+        }
+        
+        @Override
+        public Object getChangePayload(@NonNull Organization oldOrg, @NonNull Organization newOrg) {
+            return sameFixedFields(oldOrg, newOrg) ? changedParts(oldOrg, newOrg) : null;
+        }
+        
+        private static int changedParts(Organization oldOrg, Organization newOrg) {
+            int changed = 0;
+            if (!Objects.equals(oldOrg.getRating(), newOrg.getRating())
+                    || oldOrg.getRatingCount() != newOrg.getRatingCount()) {
+                changed |= PAYLOAD_RATING;
+            }
+            if (oldOrg.getFollowersCount() != newOrg.getFollowersCount()) {
+                changed |= PAYLOAD_FOLLOWERS;
+            }
+            return changed;
+        }
+        
+        private static boolean sameFixedFields(Organization oldOrg, Organization newOrg) {
+            return Objects.equals(oldOrg.getName(), newOrg.getName())
+                    && Objects.equals(oldOrg.getDomain(), newOrg.getDomain())
+                    && Objects.equals(oldOrg.getLocation(), newOrg.getLocation())
+                    && Objects.equals(oldOrg.getEmail(), newOrg.getEmail())
+                    && oldOrg.getMemberCount() == newOrg.getMemberCount();
+        }
     }
     
     static class OrganizationViewHolder extends RecyclerView.ViewHolder {
@@ -15,17 +15,22 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.tounesna.R;
+import com.example.tounesna.model.Organization;
 import com.example.tounesna.model.Post;
 import com.example.tounesna.model.Priority;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
  * PostAdapter - RecyclerView adapter for displaying posts
  */
 public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder> {
     
-    private List<Post> posts;
+    // Change payload: only the organization's rating differs
+    private static final Object PAYLOAD_RATING = "rating";
+    
+    private final EntityDiffer<Post> differ;
     private OnPostClickListener listener;
     
     public interface OnPostClickListener {
@@ -33,7 +38,7 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
     }
     
     public PostAdapter(List<Post> posts, OnPostClickListener listener) {
-        this.posts = posts;
+        this.differ = new EntityDiffer<>(this, posts, new PostDiff());
         this.listener = listener;
     }
     
@@ -47,18 +52,106 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
     
     @Override
     public void onBindViewHolder(@NonNull PostViewHolder holder, int position) {
-        Post post = posts.get(position);
+        Post post = differ.get(position);
         holder.bind(post, listener);
     }
     
+    @Override
+    public void onBindViewHolder(@NonNull PostViewHolder holder, int position, @NonNull List<Object> payloads) {
+        // The rating is the only partial rebind; an empty list means a full one
+        if (payloads.contains(PAYLOAD_RATING)) {
+            Post post = differ.get(position);
+            holder.bindRating(post);
+            holder.bindClick(post, listener);
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+    
     @Override
     public int getItemCount() {
-        return posts.size();
+        return differ.size();
     }
     
+    @Override
+    public long getItemId(int position) {
+        return differ.getItemId(position);
+    }
+    
+    /**
+     * Show newPosts, rebinding only the rows that changed
+     */
     public void updatePosts(List<Post> newPosts) {
-        this.posts = newPosts;
-        notifyDataSetChanged();
+        differ.submit(newPosts);
+    }
+    
+    /**
+     * Add posts at the end without rebinding the rows already shown
+     */
+    public void appendPosts(List<Post> newPosts) {
+        List<Post> posts = differ.edit();
+        int start = posts.size();
+        posts.addAll(newPosts);
+        notifyItemRangeInserted(start, newPosts.size());
+    }
+    
+    /**
+     * Add posts at the top without rebinding the rows already shown
+     */
+    public void prependPosts(List<Post> newPosts) {
+        differ.edit().addAll(0, newPosts);
+        notifyItemRangeInserted(0, newPosts.size());
+    }
+    
+    public void removePosts(int start, int count) {
+        differ.edit().subList(start, start + count).clear();
+        notifyItemRangeRemoved(start, count);
+    }
+    
+    public void clearPosts() {
+        List<Post> posts = differ.edit();
+        int count = posts.size();
+        posts.clear();
+        notifyItemRangeRemoved(0, count);
+    }
+    
+    /**
+     * Compares the fields a post row shows
+     */
+    private static class PostDiff extends EntityDiffer.ItemCallback<Post> {
+        @Override
+        public boolean areContentsTheSame(@NonNull Post oldPost, @NonNull Post newPost) {
+            return sameRating(oldPost, newPost) && sameExceptRating(oldPost, newPost);
+        }
+        
+        @Override
+        public Object getChangePayload(@NonNull Post oldPost, @NonNull Post newPost) {
+            return sameExceptRating(oldPost, newPost) ? PAYLOAD_RATING : null;
+        }
+        
+        private static boolean sameRating(Post oldPost, Post newPost) {
+            Organization oldOrg = oldPost.getOrganization();
+            Organization newOrg = newPost.getOrganization();
+            if (oldOrg == null || newOrg == null) {
+                return oldOrg == newOrg;
+            }
+            return Objects.equals(oldOrg.getRating(), newOrg.getRating())
+                    && oldOrg.getRatingCount() == newOrg.getRatingCount();
+        }
+        
+        private static boolean sameExceptRating(Post oldPost, Post newPost) {
+            Organization oldOrg = oldPost.getOrganization();
+            Organization newOrg = newPost.getOrganization();
+            return Objects.equals(oldPost.getTitle(), newPost.getTitle())
+                    && Objects.equals(oldPost.getImageUrl(), newPost.getImageUrl())
+                    && Objects.equals(oldPost.getDescription(), newPost.getDescription())
+                    && Objects.equals(oldPost.getLocation(), newPost.getLocation())
+                    && Objects.equals(oldPost.getCreatedAt(), newPost.getCreatedAt())
+                    && oldPost.getPriority() == newPost.getPriority()
+                    && oldPost.getCategory() == newPost.getCategory()
+                    && (oldOrg == null) == (newOrg == null)
+                    && (oldOrg == null || Objects.equals(oldOrg.getName(), newOrg.getName()));
+        }
     }
     
     static class PostViewHolder extends RecyclerView.ViewHolder {
@@ -107,30 +200,13 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
                 ivPostImage.setVisibility(View.GONE);
             }
             
-            // Set organization name
+            // Set organization name and rating
             if (post.getOrganization() != null) {
                 tvOrganizationName.setText(post.getOrganization().getName());
-                
-                // Set organization rating
-                if (post.getOrganization().getRating() != null) {
-                    rbOrganizationRating.setRating(post.getOrganization().getRating().floatValue());
-                    rbOrganizationRating.setVisibility(View.VISIBLE);
-                    
-                    if (post.getOrganization().getRatingCount() > 0) {
-                        tvRatingCount.setText("(" + post.getOrganization().getRatingCount() + ")");
-                        tvRatingCount.setVisibility(View.VISIBLE);
-                    } else {
-                        tvRatingCount.setVisibility(View.GONE);
-                    }
-                } else {
-                    rbOrganizationRating.setVisibility(View.GONE);
-                    tvRatingCount.setVisibility(View.GONE);
-                }
             } else {
                 tvOrganizationName.setText("Unknown Organization");
-                rbOrganizationRating.setVisibility(View.GONE);
-                tvRatingCount.setVisibility(View.GONE);
             }
+            bindRating(post);
             
             // Set description
             if (post.getDescription() != null && !post.getDescription().isEmpty()) {
@@ -161,7 +237,10 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
                 tvCategoryBadge.setVisibility(View.GONE);
             }
             
-            // Click listener
+            bindClick(post, listener);
+        }
+        
+        void bindClick(Post post, OnPostClickListener listener) {
             itemView.setOnClickListener(v -> {
                 if (listener != null) {
                     listener.onPostClick(post);
@@ -169,6 +248,23 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
             });
         }
         
+        void bindRating(Post post) {
+            if (post.getOrganization() != null && post.getOrganization().getRating() != null) {
+                rbOrganizationRating.setRating(post.getOrganization().getRating().floatValue());
+                rbOrganizationRating.setVisibility(View.VISIBLE);
+                
+                if (post.getOrganization().getRatingCount() > 0) {
+                    tvRatingCount.setText("(" + post.getOrganization().getRatingCount() + ")");
+                    tvRatingCount.setVisibility(View.VISIBLE);
+                } else {
+                    tvRatingCount.setVisibility(View.GONE);
+                }
+            } else {
+                rbOrganizationRating.setVisibility(View.GONE);
+                tvRatingCount.setVisibility(View.GONE);
+            }
+        }
+        
         private void setPriorityBadge(Priority priority) {
             if (priority == null) {
                 tvPriorityBadge.setVisibility(View.GONE);
@@ -15,6 +15,7 @@ import com.example.tounesna.model.VolunteerRequest;
 
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * VolunteerRequestAdapter - RecyclerView adapter for volunteer requests
@@ -22,7 +23,7 @@ import java.util.List;
 public class VolunteerRequestAdapter extends RecyclerView.Adapter<VolunteerRequestAdapter.RequestViewHolder> {
     
     private Context context;
-    private List<VolunteerRequest> requests;
+    private final EntityDiffer<VolunteerRequest> differ;
     private OnRequestClickListener listener;
     
     public interface OnRequestClickListener {
@@ -32,7 +33,7 @@ public class VolunteerRequestAdapter extends RecyclerView.Adapter<VolunteerReque
     public VolunteerRequestAdapter(Context context, List<VolunteerRequest> requests, 
                                   OnRequestClickListener listener) {
         this.context = context;
-        this.requests = requests;
+        this.differ = new EntityDiffer<>(this, requests, new RequestDiff());
         this.listener = listener;
     }
     
@@ -45,7 +46,7 @@ public class VolunteerRequestAdapter extends RecyclerView.Adapter<VolunteerReque
     
     @Override
     public void onBindViewHolder(@NonNull RequestViewHolder holder, int position) {
-        VolunteerRequest request = requests.get(position);
+        VolunteerRequest request = differ.get(position);
         
         holder.tvTitle.setText(request.getTitle());
         holder.tvDescription.setText(request.getDescription());
@@ -104,7 +105,41 @@ public class VolunteerRequestAdapter extends RecyclerView.Adapter<VolunteerReque
     
     @Override
     public int getItemCount() {
-        return requests.size();
+        return differ.size();
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return differ.getItemId(position);
+    }
+    
+    /**
+     * Show newRequests, rebinding only the rows that changed
+     */
+    public void updateRequests(List<VolunteerRequest> newRequests) {
+        differ.submit(newRequests);
+    }
+    
+    /**
+     * Compares the fields a request row shows
+     */
+    private static class RequestDiff extends EntityDiffer.ItemCallback<VolunteerRequest> {
+        @Override
+        public boolean areContentsTheSame(@NonNull VolunteerRequest oldRequest, @NonNull VolunteerRequest newRequest) {
+            return Objects.equals(oldRequest.getTitle(), newRequest.getTitle())
+                    && Objects.equals(oldRequest.getDescription(), newRequest.getDescription())
+                    && Objects.equals(oldRequest.getLocation(), newRequest.getLocation())
+                    && oldRequest.getPriority() == newRequest.getPriority()
+                    && Objects.equals(oldRequest.getCreatedAt(), newRequest.getCreatedAt())
+                    && Objects.equals(volunteerName(oldRequest), volunteerName(newRequest));
+        }
+        
+        private static String volunteerName(VolunteerRequest request) {
+            if (request.getVolunteer() == null) {
+                return null;
+            }
+            return request.getVolunteer().getName() + " " + request.getVolunteer().getSurname();
+        }
     }
     
     static class RequestViewHolder extends RecyclerView.ViewHolder {
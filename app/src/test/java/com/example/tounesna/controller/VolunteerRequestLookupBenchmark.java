@@ -0,0 +1,137 @@
+package com.example.tounesna.controller;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the two lookup paths of VolunteerRequestController.getRequestsForOrganization
+ * on a local in-memory copy of volunteer_requests with 100k entries: the fallback
+ * full scan, matching rows the way fetchAllAndFilter does, against an equalTo range
+ * read from an index sorted on organizationId, as ".indexOn" keeps it on the server.
+ * Opt-in: remove @Ignore to run it by hand.
+ */
+@Ignore("Benchmark, run by hand")
+public class VolunteerRequestLookupBenchmark {
+    
+    private static final int REQUEST_COUNT = 100_000;
+    private static final int ORGANIZATION_COUNT = 500;
+    private static final int LOOKUPS = 200;
+    
+    /**
+     * Rows ordered by organizationId then key, the order an equalTo query reads
+     */
+    private static final class OrganizationIndex {
+        final String[] keys;
+        final Map<String, Object>[] rows;
+        
+        @SuppressWarnings("unchecked")
+        OrganizationIndex(List<Map<String, Object>> requests) {
+            List<Map<String, Object>> sorted = new ArrayList<>(requests);
+            sorted.sort((a, b) -> {
+                int byOrganization = key(a).compareTo(key(b));
+                return byOrganization != 0 ? byOrganization : ((String) a.get("id")).compareTo((String) b.get("id"));
+            });
+            keys = new String[sorted.size()];
+            rows = sorted.toArray(new Map[0]);
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = key(rows[i]);
+            }
+        }
+        
+        List<Map<String, Object>> equalTo(String organizationId) {
+            int from = lowerBound(organizationId);
+            List<Map<String, Object>> matches = new ArrayList<>();
+            for (int i = from; i < keys.length && keys[i].equals(organizationId); i++) {
+                matches.add(rows[i]);
+            }
+            return matches;
+        }
+        
+        private int lowerBound(String organizationId) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(organizationId) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+    
+    @Test
+    public void indexedLookup_againstFullScan() {
+        Random random = new Random(42);
+        List<Map<String, Object>> requests = new ArrayList<>(REQUEST_COUNT);
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            Map<String, Object> request = new HashMap<>();
+            request.put("id", String.format("req%06d", i));
+            // Legacy rows store numeric IDs, like the String/Long coercion in the controller
+            int org = random.nextInt(ORGANIZATION_COUNT);
+            request.put("organizationId", org % 10 == 0 ? (Object) (long) org : "org" + org);
+            request.put("status", "PENDING");
+            requests.add(request);
+        }
+        OrganizationIndex index = new OrganizationIndex(requests);
+        
+        String[] organizationIds = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int org = random.nextInt(ORGANIZATION_COUNT);
+            organizationIds[i] = org % 10 == 0 ? String.valueOf(org) : "org" + org;
+        }
+        
+        // Warm up both paths before timing
+        for (int i = 0; i < 20; i++) {
+            fullScan(requests, organizationIds[i]);
+            index.equalTo(organizationIds[i]);
+        }
+        
+        long scanStart = System.nanoTime();
+        int scanMatches = 0;
+        for (String organizationId : organizationIds) {
+            scanMatches += fullScan(requests, organizationId).size();
+        }
+        long scanNanos = System.nanoTime() - scanStart;
+        
+        long indexStart = System.nanoTime();
+        int indexMatches = 0;
+        for (String organizationId : organizationIds) {
+            indexMatches += index.equalTo(organizationId).size();
+        }
+        long indexNanos = System.nanoTime() - indexStart;
+        
+        System.out.println("Full scan:      " + (scanNanos / LOOKUPS / 1000.0) + " µs per organization");
+        System.out.println("Indexed lookup: " + (indexNanos / LOOKUPS / 1000.0) + " µs per organization");
+        
+        assertEquals(scanMatches, indexMatches);
+        for (String organizationId : Arrays.copyOf(organizationIds, 20)) {
+            assertEquals(fullScan(requests, organizationId).size(), index.equalTo(organizationId).size());
+        }
+    }
+    
+    private static List<Map<String, Object>> fullScan(List<Map<String, Object>> requests, String organizationId) {
+        List<Map<String, Object>> matches = new ArrayList<>();
+        for (Map<String, Object> request : requests) {
+            if (organizationId.equals(key(request))) {
+                matches.add(request);
+            }
+        }
+        return matches;
+    }
+    
+    private static String key(Map<String, Object> request) {
+        return VolunteerRequestController.organizationKey(request.get("organizationId"));
+    }
+}
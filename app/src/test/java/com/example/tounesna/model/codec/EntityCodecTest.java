@@ -0,0 +1,183 @@
+package com.example.tounesna.model.codec;
+
+import com.example.tounesna.model.Notification;
+import com.example.tounesna.model.Organization;
+import com.example.tounesna.model.Post;
+import com.example.tounesna.model.PostCategory;
+import com.example.tounesna.model.Priority;
+import com.example.tounesna.model.Volunteer;
+import com.example.tounesna.model.VolunteerRequest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trips through the hand-written codecs, on the Map form Firebase hands back
+ */
+public class EntityCodecTest {
+    
+    @Test
+    public void post_roundTripKeepsEveryField() {
+        Organization author = new Organization();
+        author.setName("Croissant Rouge");
+        author.setProfilePictureUrl("https://example.com/cr.png");
+        author.setRating(4.5);
+        author.setRatingCount(12);
+        
+        Post post = new Post();
+        post.setId("p1");
+        post.setOrganizationId("org1");
+        post.setOrganization(author);
+        post.setTitle("Beach cleanup");
+        post.setDescription("Saturday morning");
+        post.setImageUrl("https://example.com/beach.png");
+        post.setLocation("Sousse");
+        post.setStartDate(1000L);
+        post.setEndDate(2000L);
+        post.setVolunteersNeeded(8);
+        post.setCategory(PostCategory.ENVIRONMENT);
+        post.setPriority(Priority.HIGH);
+        post.setNeeds(Arrays.asList("gloves", "bags"));
+        
+        Map<String, Object> encoded = PostCodec.INSTANCE.encode(post);
+        Post decoded = PostCodec.INSTANCE.decode(encoded);
+        
+        assertEquals(encoded, PostCodec.INSTANCE.encode(decoded));
+        assertEquals(PostCategory.ENVIRONMENT, decoded.getCategory());
+        assertEquals(Priority.HIGH, decoded.getPriority());
+        assertEquals(Arrays.asList("gloves", "bags"), decoded.getNeeds());
+        assertEquals("org1", decoded.getOrganization().getId());
+        assertEquals("Croissant Rouge", decoded.getOrganizationName());
+    }
+    
+    @Test
+    public void post_toleratesLegacyValues() {
+        Map<String, Object> stored = new HashMap<>();
+        stored.put("id", 42L);
+        stored.put("organizationId", 7L);
+        stored.put("priority", "URGENT-ish");
+        stored.put("imageUrl", "data:image/png;base64,AAAA");
+        Map<String, Object> needs = new HashMap<>();
+        needs.put("0", "water");
+        needs.put("2", "blankets");
+        stored.put("needs", needs);
+        
+        Post post = PostCodec.INSTANCE.decode(stored);
+        
+        assertEquals("42", post.getId());
+        assertEquals("7", post.getOrganizationId());
+        assertEquals(Priority.MEDIUM, post.getPriority());
+        assertNull(post.getImageUrl());
+        assertEquals(2, post.getNeeds().size());
+        assertTrue(post.getNeeds().contains("blankets"));
+    }
+    
+    @Test
+    public void organization_roundTripKeepsEveryField() {
+        Organization org = new Organization();
+        org.setId("org1");
+        org.setName("Croissant Rouge");
+        org.setDomain("Health");
+        org.setEmail("contact@cr.tn");
+        org.setMemberCount(300);
+        org.setFoundedYear(1956);
+        org.setApproved(true);
+        org.setRating(4.0);
+        org.setRatingCount(3);
+        org.setFollowersCount(20);
+        org.setTags(Arrays.asList("aid", "health"));
+        
+        Map<String, Object> encoded = OrganizationCodec.INSTANCE.encode(org);
+        Organization decoded = OrganizationCodec.INSTANCE.decode(encoded);
+        
+        assertEquals(encoded, OrganizationCodec.INSTANCE.encode(decoded));
+        assertTrue(decoded.isApproved());
+    }
+    
+    @Test
+    public void organization_ratingAggregateOverridesLegacyFields() {
+        Map<String, Object> stored = new HashMap<>();
+        stored.put("rating", 1.0);
+        stored.put("ratingCount", 1L);
+        Map<String, Object> aggregate = new HashMap<>();
+        aggregate.put("sum", 14L);
+        aggregate.put("count", 4L);
+        stored.put(OrganizationCodec.RATING_AGGREGATE, aggregate);
+        
+        Organization org = OrganizationCodec.INSTANCE.decode(stored);
+        
+        assertEquals(3.5, org.getRating(), 0.0001);
+        assertEquals(4, org.getRatingCount());
+    }
+    
+    @Test
+    public void organization_fallsBackToTotalRatings() {
+        Map<String, Object> stored = new HashMap<>();
+        stored.put("rating", 4.2);
+        stored.put("totalRatings", 9L);
+        
+        Organization org = OrganizationCodec.INSTANCE.decode(stored);
+        
+        assertEquals(4.2, org.getRating(), 0.0001);
+        assertEquals(9, org.getRatingCount());
+    }
+    
+    @Test
+    public void volunteer_roundTripKeepsEveryField() {
+        Volunteer volunteer = new Volunteer();
+        volunteer.setId("v1");
+        volunteer.setName("Amira");
+        volunteer.setSurname("Ben Ali");
+        volunteer.setEmail("amira@example.com");
+        volunteer.setRating(5.0);
+        volunteer.setRatingCount(2);
+        volunteer.setSkills(Arrays.asList("first aid"));
+        volunteer.setInterests(Arrays.asList("health", "education"));
+        
+        Map<String, Object> encoded = VolunteerCodec.INSTANCE.encode(volunteer);
+        assertEquals(encoded, VolunteerCodec.INSTANCE.encode(VolunteerCodec.INSTANCE.decode(encoded)));
+    }
+    
+    @Test
+    public void volunteerRequest_roundTripKeepsEveryField() {
+        VolunteerRequest request = new VolunteerRequest();
+        request.setId("r1");
+        request.setVolunteerId("v1");
+        request.setOrganizationId("org1");
+        request.setTitle("Food drive");
+        request.setPriority(Priority.LOW);
+        request.setNeeds(Arrays.asList("rice"));
+        request.setSentToOrgIds(Arrays.asList("org1", "org2"));
+        request.setStatus("PENDING");
+        
+        Map<String, Object> encoded = VolunteerRequestCodec.INSTANCE.encode(request);
+        VolunteerRequest decoded = VolunteerRequestCodec.INSTANCE.decode(encoded);
+        
+        assertEquals(encoded, VolunteerRequestCodec.INSTANCE.encode(decoded));
+        assertEquals(Priority.LOW, decoded.getPriority());
+    }
+    
+    @Test
+    public void notification_roundTripKeepsEveryField() {
+        Notification notification = new Notification();
+        notification.setId("n1");
+        notification.setUserId("v1");
+        notification.setUserType("VOLUNTEER");
+        notification.setType("NEW_FOLLOWER");
+        notification.setTitle("New follower");
+        notification.setMessage("Amira follows you");
+        notification.setRead(true);
+        notification.setRelatedVolunteerId("v1");
+        
+        Map<String, Object> encoded = NotificationCodec.INSTANCE.encode(notification);
+        Notification decoded = NotificationCodec.INSTANCE.decode(encoded);
+        
+        assertEquals(encoded, NotificationCodec.INSTANCE.encode(decoded));
+        assertTrue(decoded.isRead());
+    }
+}
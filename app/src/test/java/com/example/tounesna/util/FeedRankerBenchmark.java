@@ -0,0 +1,54 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Post;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times FeedRanker.rank picking the top of 10k candidate posts against scoring
+ * every candidate and sorting them all. Opt-in: remove @Ignore to run it by hand.
+ */
+@Ignore("Benchmark, run by hand")
+public class FeedRankerBenchmark {
+    
+    private static final int CANDIDATES = 10_000;
+    private static final int TOP = 20;
+    private static final int ROUNDS = 50;
+    
+    @Test
+    public void topK_againstFullSort() {
+        List<Post> candidates = FeedRankerTest.randomPosts(new Random(25), CANDIDATES);
+        FeedRanker ranker = FeedRankerTest.sampleRanker();
+        long now = FeedRankerTest.NOW;
+        
+        // Warm up both paths before timing
+        for (int i = 0; i < 5; i++) {
+            ranker.rank(candidates, TOP, now);
+            FeedRankerTest.fullSort(ranker, candidates, now);
+        }
+        
+        long heapStart = System.nanoTime();
+        List<Post> ranked = null;
+        for (int i = 0; i < ROUNDS; i++) {
+            ranked = ranker.rank(candidates, TOP, now);
+        }
+        long heapNanos = System.nanoTime() - heapStart;
+        
+        long sortStart = System.nanoTime();
+        List<Post> sorted = null;
+        for (int i = 0; i < ROUNDS; i++) {
+            sorted = FeedRankerTest.fullSort(ranker, candidates, now);
+        }
+        long sortNanos = System.nanoTime() - sortStart;
+        
+        System.out.println("Top-" + TOP + " heap: " + (heapNanos / ROUNDS / 1000.0) + " µs per " + CANDIDATES + " candidates");
+        System.out.println("Full sort:   " + (sortNanos / ROUNDS / 1000.0) + " µs per " + CANDIDATES + " candidates");
+        assertEquals(sorted.subList(0, TOP), ranked);
+    }
+}
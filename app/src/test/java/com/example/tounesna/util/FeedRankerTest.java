@@ -0,0 +1,142 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Post;
+import com.example.tounesna.model.PostCategory;
+import com.example.tounesna.model.Priority;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks FeedRanker's signals and that its top-k heap agrees with a full sort
+ */
+public class FeedRankerTest {
+    
+    static final long NOW = 1_700_000_000_000L;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final String[] CITIES = {"Tunis", "Sfax", "Sousse", "Gabès", "Bizerte", "Nabeul"};
+    private static final String[] NEEDS = {"Water", "Food", "Clothes", "Medicine", "Books", "Toys", "Blankets"};
+    
+    @Test
+    public void score_addsEachSignal() {
+        FeedRanker ranker = new FeedRanker(Collections.singletonList("org1"), "Sfax",
+                Collections.singletonList("Events"), Collections.singletonList("Food"));
+        Post plain = new Post();
+        plain.setOrganizationId("org2");
+        plain.setPriority(Priority.LOW);
+        plain.setCreatedAt(NOW - 365 * DAY_MS);
+        plain.setLocation("Tunis");
+        double base = ranker.score(plain, NOW);
+        
+        Post followed = copy(plain);
+        followed.setOrganizationId("org1");
+        Post urgent = copy(plain);
+        urgent.setPriority(Priority.VERY_HIGH);
+        Post fresh = copy(plain);
+        fresh.setCreatedAt(NOW);
+        Post local = copy(plain);
+        local.setLocation("SFAX");
+        Post matching = copy(plain);
+        matching.setCategory(PostCategory.EVENT);
+        matching.setNeeds(Arrays.asList("food", "Water"));
+        
+        for (Post post : Arrays.asList(followed, urgent, fresh, local, matching)) {
+            assertTrue(ranker.score(post, NOW) > base);
+        }
+        // Category and one need both match
+        assertEquals(base + 2.0, ranker.score(matching, NOW), 1e-9);
+    }
+    
+    @Test
+    public void rank_matchesFullSort() {
+        List<Post> candidates = randomPosts(new Random(25), 1000);
+        FeedRanker ranker = sampleRanker();
+        
+        List<Post> ranked = ranker.rank(candidates, 20, NOW);
+        
+        assertEquals(fullSort(ranker, candidates, NOW).subList(0, 20), ranked);
+        // The city bonus outweighs most other signals at the top
+        assertEquals("Gabès", ranked.get(0).getLocation());
+    }
+    
+    @Test
+    public void rank_keepsEveryCandidateWhenKIsLarger() {
+        List<Post> candidates = randomPosts(new Random(7), 5);
+        FeedRanker ranker = sampleRanker();
+        
+        assertEquals(fullSort(ranker, candidates, NOW), ranker.rank(candidates, 20, NOW));
+        assertTrue(ranker.rank(Collections.emptyList(), 20, NOW).isEmpty());
+    }
+    
+    static FeedRanker sampleRanker() {
+        List<String> followed = new ArrayList<>();
+        for (int org = 0; org < 200; org += 7) {
+            followed.add("org" + org);
+        }
+        return new FeedRanker(followed, "gabes", Arrays.asList("Health", "Aid"), Arrays.asList("medicine", "Cooking"));
+    }
+    
+    static List<Post> randomPosts(Random random, int count) {
+        List<Post> posts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Post post = new Post();
+            post.setId("p" + i);
+            post.setOrganizationId("org" + random.nextInt(200));
+            post.setPriority(Priority.values()[random.nextInt(Priority.values().length)]);
+            post.setCategory(PostCategory.values()[random.nextInt(PostCategory.values().length)]);
+            post.setLocation(CITIES[random.nextInt(CITIES.length)]);
+            post.setCreatedAt(NOW - (long) (random.nextDouble() * 60 * DAY_MS));
+            List<String> needs = new ArrayList<>();
+            for (int n = random.nextInt(4); n > 0; n--) {
+                needs.add(NEEDS[random.nextInt(NEEDS.length)]);
+            }
+            post.setNeeds(needs);
+            posts.add(post);
+        }
+        return posts;
+    }
+    
+    /**
+     * Every candidate scored and sorted in the ranker's order: score, then newest, then id
+     */
+    static List<Post> fullSort(FeedRanker ranker, List<Post> candidates, long now) {
+        double[] scores = new double[candidates.size()];
+        Integer[] order = new Integer[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            scores[i] = ranker.score(candidates.get(i), now);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byScore = Double.compare(scores[b], scores[a]);
+            if (byScore != 0) {
+                return byScore;
+            }
+            int byDate = Long.compare(candidates.get(b).getCreatedAt(), candidates.get(a).getCreatedAt());
+            if (byDate != 0) {
+                return byDate;
+            }
+            return candidates.get(a).getId().compareTo(candidates.get(b).getId());
+        });
+        List<Post> result = new ArrayList<>(order.length);
+        for (int index : order) {
+            result.add(candidates.get(index));
+        }
+        return result;
+    }
+    
+    private static Post copy(Post source) {
+        Post post = new Post();
+        post.setOrganizationId(source.getOrganizationId());
+        post.setPriority(source.getPriority());
+        post.setCreatedAt(source.getCreatedAt());
+        post.setLocation(source.getLocation());
+        return post;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Post;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks FuzzyVocabulary lookups against a distance scan of every live term
+ */
+public class FuzzyVocabularyTest {
+    
+    @Test
+    public void distance_isLevenshtein() {
+        assertEquals(0, FuzzyVocabulary.distance("sfax", "sfax"));
+        assertEquals(1, FuzzyVocabulary.distance("sfx", "sfax"));
+        assertEquals(1, FuzzyVocabulary.distance("educaton", "education"));
+        assertEquals(2, FuzzyVocabulary.distance("sousse", "susse "));
+        assertEquals(3, FuzzyVocabulary.distance("", "abc"));
+    }
+    
+    @Test
+    public void near_matchesScan_throughAddsAndRemovals() {
+        Random random = new Random(5);
+        FuzzyVocabulary vocabulary = new FuzzyVocabulary();
+        List<String> live = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String term = word(random);
+            live.add(term);
+            vocabulary.add(term);
+        }
+        // Enough removals to force a rebuild, with some terms held twice
+        for (int i = 0; i < 2000; i++) {
+            vocabulary.remove(live.remove(random.nextInt(live.size())));
+        }
+        
+        for (int i = 0; i < 200; i++) {
+            String query = word(random);
+            Set<String> expected = new HashSet<>();
+            for (String term : live) {
+                if (FuzzyVocabulary.distance(query, term) <= FuzzyVocabulary.maxDistance(query)) {
+                    expected.add(term);
+                }
+            }
+            assertEquals("query " + query, expected, new HashSet<>(vocabulary.near(query)));
+        }
+        assertEquals(new HashSet<>(live).size(), vocabulary.size());
+    }
+    
+    @Test
+    public void fuzzySearch_forgivesOneTypo() {
+        PostSearchIndex index = new PostSearchIndex();
+        Post post = new Post();
+        post.setId("a");
+        post.setTitle("Soutien scolaire");
+        post.setDescription("Cours d'éducation civique");
+        post.setLocation("Sfax");
+        post.setCreatedAt(1L);
+        index.put(post);
+        
+        assertTrue(index.search("educaton").isEmpty());
+        assertEquals(1, index.search("educaton", true).size());
+        assertEquals(1, index.search("Sfx", true).size());
+        assertEquals(1, index.search("scolare sfx", true).size());
+        assertTrue(index.search("xy", true).isEmpty());
+    }
+    
+    private static String word(Random random) {
+        // A small alphabet so many words sit within an edit or two of each other
+        char[] letters = new char[3 + random.nextInt(7)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = "aeirstu".charAt(random.nextInt(7));
+        }
+        return new String(letters);
+    }
+}
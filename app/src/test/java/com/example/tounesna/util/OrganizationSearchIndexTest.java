@@ -0,0 +1,120 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Organization;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks OrganizationSearchIndex against a scan of every organization with matches
+ */
+public class OrganizationSearchIndexTest {
+    
+    private static final String[] WORDS = {
+        "Croissant", "Rouge", "Tunisien", "Association", "Jeunesse", "Sfax", "école", "Santé",
+        "environnement", "Enfance", "جمعية", "الشباب", "تونس", "food", "bank"
+    };
+    
+    @Test
+    public void search_matchesScan_throughUpdatesAndRemovals() {
+        Random random = new Random(20);
+        OrganizationSearchIndex index = new OrganizationSearchIndex();
+        List<Organization> live = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Organization org = organization("o" + i, sentence(random, 3), sentence(random, 10),
+                    WORDS[random.nextInt(WORDS.length)], i);
+            org.setTags(Arrays.asList(WORDS[random.nextInt(WORDS.length)]));
+            live.add(org);
+            index.put(org);
+        }
+        for (int i = 0; i < 100; i++) {
+            int slot = random.nextInt(live.size());
+            Organization replacement = organization(live.get(slot).getId(), sentence(random, 3), "", "Tunis", i);
+            live.set(slot, replacement);
+            index.put(replacement);
+        }
+        for (int i = 0; i < 50; i++) {
+            index.remove(live.remove(random.nextInt(live.size())).getId());
+        }
+        assertEquals(live.size(), index.size());
+        
+        String[] queries = {"rouge", "ECOL", "sante sfax", "an", "جمعيه", "food bank", "zzz", ""};
+        for (String query : queries) {
+            Set<String> expected = new HashSet<>();
+            for (Organization org : live) {
+                if (OrganizationSearchIndex.matches(org, query)) {
+                    expected.add(org.getId());
+                }
+            }
+            assertEquals("query " + query, expected, ids(index.search(query, false, Integer.MAX_VALUE)));
+        }
+    }
+    
+    @Test
+    public void ranking_prefersNameMatchesThenRecency() {
+        OrganizationSearchIndex index = new OrganizationSearchIndex();
+        index.put(organization("described", "Amis de Sfax", "Collecte de food pour tous", "Sfax", 30));
+        index.put(organization("named-old", "Food Bank", "", "Sfax", 10));
+        index.put(organization("named-new", "Food Bank", "", "Sfax", 20));
+        
+        List<Organization> results = index.search("food", false, Integer.MAX_VALUE);
+        assertEquals("named-new", results.get(0).getId());
+        assertEquals("named-old", results.get(1).getId());
+        assertEquals("described", results.get(2).getId());
+        assertEquals(1, index.search("food", false, 1).size());
+    }
+    
+    @Test
+    public void fuzzy_acceptsTyposInNameTagsAndLocationOnly() {
+        OrganizationSearchIndex index = new OrganizationSearchIndex();
+        Organization located = organization("located", "Croissant Rouge", "", "Sfax", 1);
+        index.put(located);
+        index.put(organization("described", "Jeunesse", "education pour tous", "Tunis", 2));
+        Organization tagged = organization("tagged", "Amis", "", "Sousse", 3);
+        tagged.setTags(Arrays.asList("education"));
+        index.put(tagged);
+        
+        assertTrue(index.search("sfx", false, 10).isEmpty());
+        assertEquals(ids(Arrays.asList(located)), ids(index.search("sfx", true, 10)));
+        // The description word is found as typed but never through a typo
+        assertEquals(new HashSet<>(Arrays.asList("described", "tagged")), ids(index.search("education", false, 10)));
+        assertEquals(ids(Arrays.asList(tagged)), ids(index.search("educaton", true, 10)));
+        
+        index.remove("located");
+        assertTrue(index.search("sfx", true, 10).isEmpty());
+    }
+    
+    private static Organization organization(String id, String name, String description, String location, long createdAt) {
+        Organization org = new Organization();
+        org.setId(id);
+        org.setName(name);
+        org.setDescription(description);
+        org.setLocation(location);
+        org.setCreatedAt(createdAt);
+        return org;
+    }
+    
+    private static String sentence(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(i % 4 == 3 ? ", " : " ");
+        }
+        return text.toString();
+    }
+    
+    private static Set<String> ids(List<Organization> organizations) {
+        Set<String> ids = new HashSet<>();
+        for (Organization org : organizations) {
+            ids.add(org.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Organization;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks OrganizationTrie completions against a ranked scan of every organization
+ */
+public class OrganizationTrieTest {
+    
+    private static final int TOP = 5;
+    private static final String[] WORDS = {
+        "Croissant", "Rouge", "Tunisien", "Association", "Jeunesse", "Sfax", "école", "Santé",
+        "environnement", "Enfance", "جمعية", "الشباب", "تونس", "food", "bank"
+    };
+    
+    @Test
+    public void complete_matchesRankedScan_throughUpdatesAndRemovals() {
+        Random random = new Random(3);
+        OrganizationTrie trie = new OrganizationTrie(TOP);
+        List<Organization> live = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Organization org = organization("o" + i, random);
+            live.add(org);
+            trie.put(org);
+        }
+        // Rating and follower changes arrive as replacements, some organizations go away
+        for (int i = 0; i < 100; i++) {
+            int index = random.nextInt(live.size());
+            Organization replacement = organization(live.get(index).getId(), random);
+            live.set(index, replacement);
+            trie.put(replacement);
+        }
+        for (int i = 0; i < 60; i++) {
+            Organization removed = live.remove(random.nextInt(live.size()));
+            trie.remove(removed.getId());
+        }
+        assertEquals(live.size(), trie.size());
+        
+        String[] prefixes = {"", "c", "CRO", "croissant r", "Croissant  Rouge", "ecol", "san", "sante",
+                "جم", "تو", "rouge", "r", "zzz", "food b", "-food"};
+        Organization[] out = new Organization[TOP];
+        for (String prefix : prefixes) {
+            int count = trie.complete(prefix, out);
+            assertEquals("prefix " + prefix, expected(live, prefix), Arrays.asList(out).subList(0, count));
+        }
+    }
+    
+    @Test
+    public void complete_ranksByRatingThenFollowers() {
+        OrganizationTrie trie = new OrganizationTrie(TOP);
+        trie.put(organization("a", "Sfax Solidaire", 4.0, 10));
+        trie.put(organization("b", "Sfax Jeunesse", 4.5, 2));
+        trie.put(organization("c", "Sfax Santé", 4.0, 50));
+        
+        Organization[] out = new Organization[TOP];
+        assertEquals(3, trie.complete("sfax", out));
+        assertEquals("b", out[0].getId());
+        assertEquals("c", out[1].getId());
+        assertEquals("a", out[2].getId());
+        
+        // A later rating update moves the organization up
+        trie.put(organization("a", "Sfax Solidaire", 5.0, 10));
+        trie.complete("sfax", out);
+        assertEquals("a", out[0].getId());
+    }
+    
+    @Test
+    public void complete_matchesWordsAndTags() {
+        OrganizationTrie trie = new OrganizationTrie(TOP);
+        Organization org = organization("a", "Croissant Rouge Tunisien", 4.0, 10);
+        org.setTags(Arrays.asList("Secours", "Don de sang"));
+        trie.put(org);
+        
+        Organization[] out = new Organization[TOP];
+        assertEquals(1, trie.complete("tunis", out));
+        assertEquals(1, trie.complete("secou", out));
+        assertEquals(1, trie.complete("don de s", out));
+        assertEquals(1, trie.complete("sang", out));
+        assertEquals(0, trie.complete("rouge croissant", out));
+        
+        trie.remove("a");
+        assertEquals(0, trie.complete("", out));
+        assertEquals(0, trie.complete("tunis", out));
+    }
+    
+    private static List<Organization> expected(List<Organization> live, String prefix) {
+        String normalized = OrganizationTrie.normalize(prefix);
+        List<Organization> matches = new ArrayList<>();
+        for (Organization org : live) {
+            if (anyKeyStartsWith(org, normalized)) {
+                matches.add(org);
+            }
+        }
+        Collections.sort(matches, (a, b) -> {
+            int byRating = Double.compare(b.getRating(), a.getRating());
+            if (byRating != 0) {
+                return byRating;
+            }
+            int byFollowers = Integer.compare(b.getFollowersCount(), a.getFollowersCount());
+            if (byFollowers != 0) {
+                return byFollowers;
+            }
+            return a.getName().compareTo(b.getName());
+        });
+        return matches.subList(0, Math.min(TOP, matches.size()));
+    }
+    
+    private static boolean anyKeyStartsWith(Organization org, String prefix) {
+        List<String> texts = new ArrayList<>();
+        texts.add(org.getName());
+        texts.addAll(org.getTags());
+        for (String text : texts) {
+            String normalized = OrganizationTrie.normalize(text);
+            if (normalized.startsWith(prefix)) {
+                return true;
+            }
+            for (String word : normalized.split(" ")) {
+                if (word.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private static Organization organization(String id, Random random) {
+        // Distinct names keep the scan's order total without the trie's slot tie-break
+        Organization org = organization(id,
+                WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + id,
+                random.nextInt(11) / 2.0, random.nextInt(20));
+        org.setTags(Arrays.asList(WORDS[random.nextInt(WORDS.length)], WORDS[random.nextInt(WORDS.length)]));
+        return org;
+    }
+    
+    private static Organization organization(String id, String name, double rating, int followers) {
+        Organization org = new Organization();
+        org.setId(id);
+        org.setName(name);
+        org.setRating(rating);
+        org.setFollowersCount(followers);
+        org.setTags(new ArrayList<>());
+        return org;
+    }
+}
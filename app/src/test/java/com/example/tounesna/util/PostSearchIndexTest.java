@@ -0,0 +1,197 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Post;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks PostSearchIndex against the substring scan it replaces
+ */
+public class PostSearchIndexTest {
+    
+    private static final String[] WORDS = {
+        "Nettoyage", "plage", "école", "Sousse", "Tunis", "Sfax", "collecte", "vêtements",
+        "hôpital", "bénévoles", "cleanup", "beach", "food", "drive", "مدرسة", "تطوع", "صفاقس"
+    };
+    
+    @Test
+    public void fold_stripsAccentsAndArabicVariants() {
+        assertEquals("ecole", PostSearchIndex.fold("École"));
+        assertEquals("coeur", PostSearchIndex.fold("Cœur"));
+        // Harakat and tatweel dropped, hamza alef and ta marbuta normalised
+        assertEquals("مدرسه", PostSearchIndex.fold("مَدْرَسَة"));
+        assertEquals("احمد", PostSearchIndex.fold("أحمـد"));
+    }
+    
+    @Test
+    public void tokenize_splitsOnPunctuationAndSpaces() {
+        assertEquals(Arrays.asList("beach", "cleanup", "2024", "sousse"),
+                PostSearchIndex.tokenize("Beach-cleanup, 2024 (Sousse)"));
+    }
+    
+    @Test
+    public void singleTerm_matchesFoldedSubstringScan() {
+        Random random = new Random(7);
+        PostSearchIndex index = new PostSearchIndex();
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Post post = post("p" + i, sentence(random, 6), sentence(random, 20), WORDS[random.nextInt(WORDS.length)], i);
+            posts.add(post);
+            index.put(post);
+        }
+        
+        String[] queries = {"plage", "PLAGE", "ecol", "ole", "an", "s", "vetement", "مدرس", "ahop", "zzz", "2"};
+        for (String query : queries) {
+            String folded = PostSearchIndex.fold(query);
+            Set<String> expected = new HashSet<>();
+            for (Post post : posts) {
+                if (tokensContain(post, folded)) {
+                    expected.add(post.getId());
+                }
+            }
+            assertEquals("query " + query, expected, ids(index.search(query)));
+        }
+    }
+    
+    @Test
+    public void multipleTerms_areAnded() {
+        PostSearchIndex index = new PostSearchIndex();
+        index.put(post("a", "Nettoyage de plage", "Sousse", "Sousse", 1));
+        index.put(post("b", "Collecte de vêtements", "Sousse", "Sousse", 2));
+        index.put(post("c", "Nettoyage de quartier", "Tunis", "Tunis", 3));
+        
+        assertEquals(new HashSet<>(Arrays.asList("a")), ids(index.search("nettoyage sousse")));
+        assertEquals(new HashSet<>(Arrays.asList("a", "c")), ids(index.search("nettoy")));
+        assertTrue(index.search("plage tunis").isEmpty());
+    }
+    
+    @Test
+    public void results_areNewestFirst() {
+        PostSearchIndex index = new PostSearchIndex();
+        index.put(post("old", "Food drive", "", "", 10));
+        index.put(post("new", "Food drive", "", "", 30));
+        index.put(post("mid", "Food drive", "", "", 20));
+        
+        List<Post> results = index.search("food");
+        assertEquals("new", results.get(0).getId());
+        assertEquals("mid", results.get(1).getId());
+        assertEquals("old", results.get(2).getId());
+    }
+    
+    @Test
+    public void ranking_prefersTitleMatchesThenRecency() {
+        PostSearchIndex index = new PostSearchIndex();
+        index.put(post("described", "Collecte", "Grande collecte pour la plage de Sousse", "Sousse", 30));
+        index.put(post("titled-old", "Nettoyage plage", "Rendez-vous samedi", "Sousse", 10));
+        index.put(post("titled-new", "Nettoyage plage", "Rendez-vous samedi", "Sousse", 20));
+        
+        List<Post> results = index.search("plage");
+        assertEquals("titled-new", results.get(0).getId());
+        assertEquals("titled-old", results.get(1).getId());
+        assertEquals("described", results.get(2).getId());
+        
+        // Only the best one is kept when limited
+        List<Post> best = index.search("plage", false, 1);
+        assertEquals(1, best.size());
+        assertEquals("titled-new", best.get(0).getId());
+    }
+    
+    @Test
+    public void rankedAnswers_areCachedUntilTheIndexChanges() {
+        PostSearchIndex index = new PostSearchIndex();
+        index.put(post("a", "Food drive", "", "Sfax", 1));
+        
+        List<Post> first = index.search("food");
+        assertSame(first, index.search("FOOD"));
+        
+        index.put(post("b", "Food bank", "", "Sfax", 2));
+        List<Post> afterPut = index.search("food");
+        assertNotSame(first, afterPut);
+        assertEquals(2, afterPut.size());
+    }
+    
+    @Test
+    public void updateAndRemove_keepIndexConsistent() {
+        PostSearchIndex index = new PostSearchIndex();
+        index.put(post("a", "Beach cleanup", "", "Sousse", 1));
+        index.put(post("a", "Food drive", "", "Sfax", 1));
+        
+        assertTrue(index.search("beach").isEmpty());
+        assertEquals(1, index.search("food").size());
+        
+        index.remove("a");
+        assertTrue(index.search("food").isEmpty());
+        assertEquals(0, index.size());
+    }
+    
+    @Test
+    public void matches_narrowsExtendedQueriesLikeSearch() {
+        Random random = new Random(11);
+        PostSearchIndex index = new PostSearchIndex();
+        for (int i = 0; i < 500; i++) {
+            index.put(post("p" + i, sentence(random, 5), sentence(random, 12), WORDS[random.nextInt(WORDS.length)], i));
+        }
+        
+        // Each query extends the previous one, as the search box sends them while typing
+        String[] typed = {"n", "ne", "net", "nett", "nettoyage", "nettoyage ", "nettoyage s", "nettoyage sou"};
+        List<Post> shown = index.search("");
+        for (String query : typed) {
+            List<Post> narrowed = new ArrayList<>();
+            for (Post post : shown) {
+                if (PostSearchIndex.matches(post, query)) {
+                    narrowed.add(post);
+                }
+            }
+            assertEquals("query " + query, ids(index.search(query)), ids(narrowed));
+            shown = narrowed;
+        }
+    }
+    
+    private static boolean tokensContain(Post post, String term) {
+        List<String> tokens = new ArrayList<>();
+        tokens.addAll(PostSearchIndex.tokenize(post.getTitle()));
+        tokens.addAll(PostSearchIndex.tokenize(post.getDescription()));
+        tokens.addAll(PostSearchIndex.tokenize(post.getLocation()));
+        for (String token : tokens) {
+            if (token.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String sentence(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(4) == 0 ? ", " : " ");
+        }
+        return text.toString();
+    }
+    
+    private static Post post(String id, String title, String description, String location, long createdAt) {
+        Post post = new Post();
+        post.setId(id);
+        post.setTitle(title);
+        post.setDescription(description);
+        post.setLocation(location);
+        post.setCreatedAt(createdAt);
+        return post;
+    }
+    
+    private static Set<String> ids(List<Post> posts) {
+        Set<String> ids = new HashSet<>();
+        for (Post post : posts) {
+            ids.add(post.getId());
+        }
+        return ids;
+    }
+}
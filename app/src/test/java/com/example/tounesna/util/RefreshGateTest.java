@@ -0,0 +1,37 @@
+package com.example.tounesna.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks RefreshGate's minimum interval against a hand-driven clock
+ */
+public class RefreshGateTest {
+    
+    private long now = 1000;
+    
+    @Test
+    public void tryRefresh_waitsOutTheInterval() {
+        RefreshGate gate = new RefreshGate(30_000, () -> now);
+        
+        assertTrue(gate.tryRefresh());
+        now += 29_999;
+        assertFalse(gate.tryRefresh());
+        now += 1;
+        assertTrue(gate.tryRefresh());
+        // The interval restarts from the last refresh let through
+        now += 10_000;
+        assertFalse(gate.tryRefresh());
+    }
+    
+    @Test
+    public void invalidate_letsTheNextRefreshThrough() {
+        RefreshGate gate = new RefreshGate(30_000, () -> now);
+        
+        assertTrue(gate.tryRefresh());
+        gate.invalidate();
+        assertTrue(gate.tryRefresh());
+        assertFalse(gate.tryRefresh());
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.tounesna.util;
+
+import com.example.tounesna.model.Priority;
+import com.example.tounesna.model.VolunteerRequest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks RequestFilterIndex against the per-row filter loop it replaces
+ */
+public class RequestFilterIndexTest {
+    
+    private static final String[] LOCATIONS = {"Tunis", "Sfax", "Sousse", "Gabès", "Tozeur"};
+    private static final String[] NEEDS = {"Food", "Water", "Clothes", "Shelter", "Medical", "Education", "Transport"};
+    private static final String[] STATUSES = {"PENDING", "PENDING", "PENDING", "APPROVED", "REJECTED"};
+    
+    @Test
+    public void match_agreesWithRowByRowFilter() {
+        Random random = new Random(21);
+        // Distinct timestamps keep both date orders total
+        List<Long> times = new ArrayList<>();
+        for (long time = 0; time < 1000000; time += 50) {
+            times.add(time);
+        }
+        Collections.shuffle(times, random);
+        List<VolunteerRequest> requests = new ArrayList<>();
+        for (int i = 0; i < times.size(); i++) {
+            requests.add(request(random, "r" + i, times.get(i)));
+        }
+        RequestFilterIndex index = new RequestFilterIndex(requests);
+        assertEquals(requests.size(), index.size());
+        
+        for (int i = 0; i < 300; i++) {
+            // Rare values exercise the sparse bitmaps, common ones the dense
+            String location = random.nextInt(3) == 0 ? null
+                    : random.nextInt(10) == 0 ? "Nowhere" : LOCATIONS[random.nextInt(LOCATIONS.length)];
+            Priority priority = random.nextBoolean() ? null : Priority.values()[random.nextInt(4)];
+            List<String> needs = new ArrayList<>();
+            for (int n = random.nextInt(3); n > 0; n--) {
+                needs.add(NEEDS[random.nextInt(NEEDS.length)]);
+            }
+            Long from = random.nextBoolean() ? null : (long) random.nextInt(1000000);
+            Long to = random.nextBoolean() ? null : (long) random.nextInt(1000000);
+            
+            List<VolunteerRequest> expected = new ArrayList<>();
+            for (VolunteerRequest request : requests) {
+                if (accepts(request, location, priority, needs, from, to)) {
+                    expected.add(request);
+                }
+            }
+            Collections.sort(expected, (r1, r2) -> Long.compare(r2.getCreatedAt(), r1.getCreatedAt()));
+            
+            long[] match = index.match("PENDING", location, priority, needs, from, to);
+            assertEquals(expected.size(), RequestFilterIndex.count(match));
+            assertEquals(ids(expected), ids(index.collect(match, RequestFilterIndex.Order.RECENT)));
+            
+            // The stable sorts sortRequests used to run over the newest-first list
+            List<VolunteerRequest> byPriority = new ArrayList<>(expected);
+            Collections.sort(byPriority, (r1, r2) -> Integer.compare(rank(r2), rank(r1)));
+            assertEquals(ids(byPriority), ids(index.collect(match, RequestFilterIndex.Order.PRIORITY_HIGH)));
+            byPriority = new ArrayList<>(expected);
+            Collections.sort(byPriority, (r1, r2) -> Integer.compare(rank(r1), rank(r2)));
+            assertEquals(ids(byPriority), ids(index.collect(match, RequestFilterIndex.Order.PRIORITY_LOW)));
+            
+            Collections.reverse(expected);
+            assertEquals(ids(expected), ids(index.collect(match, RequestFilterIndex.Order.OLD)));
+        }
+    }
+    
+    @Test
+    public void dateRange_isInclusive() {
+        List<VolunteerRequest> requests = new ArrayList<>();
+        for (long time = 10; time <= 50; time += 10) {
+            VolunteerRequest request = new VolunteerRequest();
+            request.setId("t" + time);
+            request.setCreatedAt(time);
+            requests.add(request);
+        }
+        RequestFilterIndex index = new RequestFilterIndex(requests);
+        
+        assertEquals(Arrays.asList("t20", "t30", "t40"), ids(index.collect(index.match(null, null, null, null, 20L, 40L), RequestFilterIndex.Order.OLD)));
+        assertEquals(Arrays.asList("t50"), ids(index.collect(index.match(null, null, null, null, 45L, null), RequestFilterIndex.Order.OLD)));
+        assertEquals(0, RequestFilterIndex.count(index.match(null, null, null, null, 41L, 49L)));
+    }
+    
+    // The loop applyFilters used to run
+    private static boolean accepts(VolunteerRequest request, String location, Priority priority,
+                                   List<String> needs, Long from, Long to) {
+        if (!"PENDING".equals(request.getStatus())) {
+            return false;
+        }
+        if (location != null && !location.equals(request.getLocation())) {
+            return false;
+        }
+        if (priority != null && request.getPriority() != priority) {
+            return false;
+        }
+        if (!needs.isEmpty()) {
+            boolean hasMatchingNeed = false;
+            for (String need : needs) {
+                if (request.getNeeds().contains(need)) {
+                    hasMatchingNeed = true;
+                    break;
+                }
+            }
+            if (!hasMatchingNeed) {
+                return false;
+            }
+        }
+        if (from != null && request.getCreatedAt() < from) {
+            return false;
+        }
+        return to == null || request.getCreatedAt() <= to;
+    }
+    
+    private static int rank(VolunteerRequest request) {
+        return request.getPriority() != null ? request.getPriority().ordinal() + 1 : 0;
+    }
+    
+    private static VolunteerRequest request(Random random, String id, long createdAt) {
+        VolunteerRequest request = new VolunteerRequest();
+        request.setId(id);
+        request.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+        // The last location is rare enough to be kept as a sparse row list
+        request.setLocation(LOCATIONS[random.nextInt(200) == 0 ? LOCATIONS.length - 1 : random.nextInt(LOCATIONS.length - 1)]);
+        request.setPriority(random.nextInt(20) == 0 ? null : Priority.values()[random.nextInt(4)]);
+        List<String> needs = new ArrayList<>();
+        for (int n = random.nextInt(3); n > 0; n--) {
+            needs.add(NEEDS[random.nextInt(NEEDS.length)]);
+        }
+        request.setNeeds(needs);
+        request.setCreatedAt(createdAt);
+        return request;
+    }
+    
+    private static List<String> ids(List<VolunteerRequest> requests) {
+        List<String> ids = new ArrayList<>();
+        for (VolunteerRequest request : requests) {
+            ids.add(request.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.tounesna.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that SingleFlight runs one query per key at a time and answers every waiter
+ */
+public class SingleFlightTest {
+    
+    /**
+     * Query that answers only when the test says so
+     */
+    private static class PendingCalls implements SingleFlight.Call<String> {
+        final List<SingleFlight.Callback<String>> started = new ArrayList<>();
+        
+        @Override
+        public void start(SingleFlight.Callback<String> done) {
+            started.add(done);
+        }
+    }
+    
+    private static class Recorder implements SingleFlight.Callback<String> {
+        final List<String> events = new ArrayList<>();
+        
+        @Override
+        public void onSuccess(String value) {
+            events.add("ok:" + value);
+        }
+        
+        @Override
+        public void onError(String message) {
+            events.add("error:" + message);
+        }
+    }
+    
+    @Test
+    public void concurrentCallers_shareOneQuery() {
+        SingleFlight<String> flights = new SingleFlight<>();
+        PendingCalls calls = new PendingCalls();
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        Recorder third = new Recorder();
+        
+        flights.run("posts", calls, first);
+        flights.run("posts", calls, second);
+        flights.run("posts", calls, third);
+        assertEquals(1, calls.started.size());
+        assertTrue(flights.isInFlight("posts"));
+        
+        calls.started.get(0).onSuccess("page");
+        assertEquals(Arrays.asList("ok:page"), first.events);
+        assertEquals(Arrays.asList("ok:page"), second.events);
+        assertEquals(Arrays.asList("ok:page"), third.events);
+        assertFalse(flights.isInFlight("posts"));
+        
+        // Nothing is cached: the next caller queries again
+        Recorder later = new Recorder();
+        flights.run("posts", calls, later);
+        assertEquals(2, calls.started.size());
+        calls.started.get(1).onError("offline");
+        assertEquals(Arrays.asList("error:offline"), later.events);
+        assertEquals(Arrays.asList("ok:page"), first.events);
+    }
+    
+    @Test
+    public void differentKeys_runSeparately() {
+        SingleFlight<String> flights = new SingleFlight<>();
+        Map<String, PendingCalls> calls = new HashMap<>();
+        Recorder a = new Recorder();
+        Recorder b = new Recorder();
+        calls.put("a", new PendingCalls());
+        calls.put("b", new PendingCalls());
+        
+        flights.run("a", calls.get("a"), a);
+        flights.run("b", calls.get("b"), b);
+        calls.get("b").started.get(0).onSuccess("B");
+        assertTrue(a.events.isEmpty());
+        assertEquals(Arrays.asList("ok:B"), b.events);
+        calls.get("a").started.get(0).onSuccess("A");
+        assertEquals(Arrays.asList("ok:A"), a.events);
+    }
+    
+    @Test
+    public void queryAnsweringSynchronously_freesTheKey() {
+        SingleFlight<String> flights = new SingleFlight<>();
+        Recorder recorder = new Recorder();
+        
+        flights.run("cursor", done -> done.onError("Invalid page cursor"), recorder);
+        assertEquals(Arrays.asList("error:Invalid page cursor"), recorder.events);
+        assertFalse(flights.isInFlight("cursor"));
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.tounesna.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks TopK against a full sort
+ */
+public class TopKTest {
+    
+    @Test
+    public void select_matchesHeadOfFullSort() {
+        Random random = new Random(9);
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            items.add(random.nextInt(1000));
+        }
+        List<Integer> sorted = new ArrayList<>(items);
+        Collections.sort(sorted, Comparator.reverseOrder());
+        
+        for (int k : new int[] {0, 1, 10, 100, 5000, 6000}) {
+            List<Integer> expected = sorted.subList(0, Math.min(k, sorted.size()));
+            assertEquals("k " + k, expected, TopK.select(items, Comparator.reverseOrder(), k));
+        }
+    }
+}